@@ -0,0 +1,91 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-entry outcome of a bulk call such as {@link Collection#saveAll(List)} or
+ * {@link Collection#deleteByIds(java.util.Collection)}.
+ * <p>
+ * Entries are reported in the order they were passed in. Bulk requests are sent in chunks, so
+ * when a chunk fails every entry in it carries that chunk's exception while the other chunks
+ * may still have succeeded.
+ * </p>
+ * @param <T> the type of the entries (Items for saves, item ids for deletes)
+ */
+public class BulkResult<T> {
+
+	private final List<T> entries;
+	private final ClearBladeException[] errors;
+
+	BulkResult(List<T> entries) {
+		this.entries = entries;
+		this.errors = new ClearBladeException[entries.size()];
+	}
+
+	void fail(int index, ClearBladeException error) {
+		errors[index] = error;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns true if every entry succeeded.
+	 */
+	public boolean isSuccess() {
+		return getFailureCount() == 0;
+	}
+
+	public int getSuccessCount() {
+		return entries.size() - getFailureCount();
+	}
+
+	public int getFailureCount() {
+		int count = 0;
+		for (ClearBladeException error : errors) {
+			if (error != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the entry at the given position.
+	 */
+	public T get(int index) {
+		return entries.get(index);
+	}
+
+	/**
+	 * Returns true if the entry at the given position succeeded.
+	 */
+	public boolean isSuccess(int index) {
+		return errors[index] == null;
+	}
+
+	/**
+	 * Returns the exception for the entry at the given position, or null if it succeeded.
+	 */
+	public ClearBladeException getError(int index) {
+		return errors[index];
+	}
+
+	/**
+	 * Returns the entries that failed, for example to retry them.
+	 */
+	public List<T> getFailed() {
+		List<T> failed = new ArrayList<>();
+		for (int i = 0; i < errors.length; i++) {
+			if (errors[i] != null) {
+				failed.add(entries.get(i));
+			}
+		}
+		return failed;
+	}
+}
@@ -0,0 +1,129 @@
+package com.clearblade.java.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.clearblade.java.api.transport.LruResponseCache;
+import com.clearblade.java.api.transport.ResponseCache;
+
+/**
+ * CachePolicy configures the response cache for GET calls. The following values are used by default:
+ *
+ *   defaultTtl - 0 milliseconds (only collections given a TTL are cached)
+ *   collectionTtls - none
+ *   maxBytes - 10485760 (10 MB)
+ *   cache - {@link LruResponseCache} holding at most maxBytes
+ *
+ * Successful GET responses of a collection with a TTL are kept for that long, keyed by method, url
+ * and the credentials of the call, and answered from memory meanwhile. Once an entry expires, it is
+ * revalidated with If-None-Match or If-Modified-Since when the platform sent an ETag or a
+ * Last-Modified date; a 304 answer keeps the cached body for another TTL. Responses marked
+ * Cache-Control: no-store are never kept.
+ *
+ * Any other call (Item.save, Query.update, Query.remove, ...) removes the cached entries of the
+ * collection it was sent to, so reads after a write through this client see the write.
+ *
+ * @see InitOptions#setCachePolicy(CachePolicy)
+ */
+public class CachePolicy {
+
+    public static final int DEFAULT_TTL = 0;
+    public static final long DEFAULT_MAX_BYTES = 10 * 1024 * 1024;
+
+    private int _defaultTtl;
+    private Map<String, Integer> _collectionTtls;
+    private long _maxBytes;
+    private ResponseCache _cache;
+
+    public CachePolicy() {
+        this._defaultTtl = DEFAULT_TTL;
+        this._collectionTtls = new LinkedHashMap<>();
+        this._maxBytes = DEFAULT_MAX_BYTES;
+        this._cache = null;
+    }
+
+    public CachePolicy(CachePolicy other) {
+        this._defaultTtl = other._defaultTtl;
+        this._collectionTtls = new LinkedHashMap<>(other._collectionTtls);
+        this._maxBytes = other._maxBytes;
+        this._cache = other._cache;
+    }
+
+    // Getters
+
+    public int getDefaultTtl() {
+        return this._defaultTtl;
+    }
+
+    public Map<String, Integer> getCollectionTtls() {
+        return new LinkedHashMap<>(this._collectionTtls);
+    }
+
+    /**
+     * Returns the TTL in milliseconds of GET calls to the given url path: the TTL of the collection
+     * it ends with, or the default TTL.
+     */
+    public int getTtl(String path) {
+        String last = path.substring(path.lastIndexOf('/') + 1);
+        Integer ttl = this._collectionTtls.get(last);
+        return ttl != null ? ttl : this._defaultTtl;
+    }
+
+    public long getMaxBytes() {
+        return this._maxBytes;
+    }
+
+    /**
+     * Returns the cache set with {@link #setCache(ResponseCache)}, or null for the default one.
+     */
+    public ResponseCache getCache() {
+        return this._cache;
+    }
+
+    // Setters
+
+    /**
+     * Sets how long in milliseconds GET responses of endpoints without their own TTL are kept; 0
+     * keeps none.
+     */
+    public CachePolicy setDefaultTtl(int ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl must not be negative");
+        }
+        this._defaultTtl = ttl;
+        return this;
+    }
+
+    /**
+     * Sets how long in milliseconds query and item responses of a collection are kept, 0 to never
+     * cache it.
+     * @param collection the collection id, or its name for collections referenced by name
+     */
+    public CachePolicy setCollectionTtl(String collection, int ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl must not be negative");
+        }
+        this._collectionTtls.put(collection, ttl);
+        return this;
+    }
+
+    /**
+     * Sets the memory in bytes the default cache may hold before it evicts the least recently used
+     * responses.
+     */
+    public CachePolicy setMaxBytes(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this._maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Sets the store the responses are kept in, instead of an {@link LruResponseCache} of maxBytes.
+     */
+    public CachePolicy setCache(ResponseCache cache) {
+        this._cache = cache;
+        return this;
+    }
+}
@@ -2,6 +2,14 @@ package com.clearblade.java.api;
 
 import com.clearblade.java.api.auth.Auth;
 import com.clearblade.java.api.auth.AuthException;
+import com.clearblade.java.api.internal.Hedging;
+import com.clearblade.java.api.internal.HttpConnectionPool;
+import com.clearblade.java.api.internal.RequestExecutor;
+import com.clearblade.java.api.internal.Resilience;
+import com.clearblade.java.api.internal.ResponseCaching;
+import com.clearblade.java.api.internal.SingleFlight;
+import com.clearblade.java.api.internal.TlsContext;
+import com.clearblade.java.api.transport.HttpTransport;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -175,6 +183,14 @@ public class ClearBlade {
 	 */
 	public static void setAllowUntrusted(boolean allowUntrustedCertificates){
 		_initOptions.setAllowUntrusted(allowUntrustedCertificates);
+		configureConnections();
+	}
+
+	/**
+	 * Returns the transport carrying the platform calls.
+	 */
+	public static HttpTransport getTransport() {
+		return _initOptions.getTransport();
 	}
 
 	/**
@@ -210,6 +226,15 @@ public class ClearBlade {
 
     	_initOptions = new InitOptions(options);
 
+    	// (re)configures the TLS context and the keep-alive connection pool used by all API calls
+
+		configureConnections();
+		RequestExecutor.configureShared(_initOptions.getMaxInFlightRequests());
+		Resilience.configureShared(_initOptions.getRetryPolicy());
+		Hedging.configureShared(_initOptions.getHedgePolicy());
+		SingleFlight.configureShared(_initOptions.getSingleFlightEndpoints());
+		ResponseCaching.configureShared(_initOptions.getCachePolicy());
+
 	    // checks system parameters
 
 		if (systemKey == null || systemKey.length() <= 0) {
@@ -277,6 +302,15 @@ public class ClearBlade {
 	// Utility
 	// --------------------------------
 
+	/**
+	 * Rebuilds the shared TLS context and connection pool if the init options changed them.
+	 */
+	private static void configureConnections() {
+		TlsContext tls = TlsContext.configureShared(_initOptions.getTlsConfig(), _initOptions.isAllowUntrusted());
+		HttpConnectionPool.configureShared(_initOptions.getMaxConnectionsPerHost(),
+				_initOptions.getConnectionIdleTimeout(), _initOptions.getConnectionValidateAfterInactivity(), tls);
+	}
+
 	/**
 	 * initOptionsFromMap converts a legacy initOptions Map object into an
 	 * InitOptions instance.
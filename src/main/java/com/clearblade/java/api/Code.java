@@ -1,77 +1,111 @@
 package com.clearblade.java.api;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.clearblade.java.api.internal.PlatformResponse;
 import com.clearblade.java.api.internal.RequestEngine;
+import com.clearblade.java.api.internal.RequestExecutor;
 import com.clearblade.java.api.internal.RequestProperties;
+import com.clearblade.java.api.transport.RequestBody;
+import com.clearblade.java.api.transport.ResponseBodyHandler;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 
 public class Code {
 	
 	private String serviceName;
-	private JsonObject parameters; 
-	
-	private RequestEngine request;
+	private RequestBody parameters; 
 
 	public Code(String serName, JsonObject params){
+		serviceName = serName;
+		parameters = params != null ? RequestBody.json(params) : null;
+	}
+
+	/**
+	 * Creates a call whose parameters are streamed to the platform by the given writer, which
+	 * suits large payloads that should not be built as a JsonObject first.
+	 * @param serName the code service to call
+	 * @param params writes the JSON parameters as UTF-8
+	 */
+	public Code(String serName, RequestBody params){
 		serviceName = serName;
 		parameters = params;
-		request = new RequestEngine();
 	}
 	
 	public Code(String serName) {
 		serviceName = serName;
-		request = new RequestEngine();
 	}
 	
 	public void executeWithParams(final CodeCallback callback){
-		RequestProperties headers = new RequestProperties.Builder().method("POST").endPoint("api/v/1/code/" +Util.getSystemKey() + "/" + serviceName).body(parameters).build();
-		request.setHeaders(headers);
-
-		PlatformResponse result= request.execute();
-		if(result.isError()) {
-			Util.logger("Load", "" + result.getData(), true);
-			callback.error(new ClearBladeException("Call to Save failed:"+result.getData()));
-		} else {
-			JsonObject codeResponse = convertJsonToJsonObject((String)result.getData());
-			if(codeResponse != null){
-				callback.done(codeResponse);
-			}else{
-				callback.error(new ClearBladeException("Failed to parse code response"));
-			}
-		}
+		deliver(executeHeaders(parameters), callback);
 	}
 	
 	public void executeWithoutParams(final CodeCallback callback){
-		RequestProperties headers = new RequestProperties.Builder().method("POST").endPoint("api/v/1/code/" +Util.getSystemKey() + "/" + serviceName).build();
-		request.setHeaders(headers);
+		deliver(executeHeaders(null), callback);
+	}
 
-		PlatformResponse result= request.execute();
-		if(result.isError()) {
-			Util.logger("Load", "" + result.getData(), true);
-			callback.error(new ClearBladeException("Call to Save failed:"+result.getData()));
-		} else {
-			JsonObject codeResponse = convertJsonToJsonObject((String)result.getData());
-			if(codeResponse != null){
-				callback.done(codeResponse);
-			}else{
-				callback.error(new ClearBladeException("Failed to parse code response"));
+	/**
+	 * Executes the code service asynchronously, with the parameters given to the constructor if any.
+	 * <pre>
+	 * new Code(serviceName, params).executeAsync().thenAccept(response -&gt; {
+	 *     //your logic here
+	 * });
+	 * </pre>
+	 * @return future completed with the service response, or exceptionally with a ClearBladeException
+	 */
+	public CompletableFuture<JsonObject> executeAsync(){
+		final RequestProperties headers = executeHeaders(parameters);
+		return RequestExecutor.getShared().submit(() -> doExecute(headers));
+	}
+
+	/**
+	 * Executes the code service asynchronously and hands the raw response body to the handler as
+	 * it streams in, so large results can be processed or saved without holding them in memory.
+	 * <pre>
+	 * new Code(serviceName, params).executeAsync(ResponseBodyHandler.ofFile(Paths.get("report.json")));
+	 * </pre>
+	 * @param handler turns the response body into the result
+	 * @return future completed with the handler's result, or exceptionally with a ClearBladeException
+	 */
+	public <T> CompletableFuture<T> executeAsync(ResponseBodyHandler<T> handler){
+		final RequestProperties headers = executeHeaders(parameters);
+		return RequestExecutor.getShared().submit(() -> {
+			PlatformResponse<T> result = new RequestEngine(headers).execute(handler);
+			if(result.isError()) {
+				Util.logger("Load", result.getErrorMessage(), true);
+				throw new ClearBladeException("Call to execute failed:"+result.getErrorMessage());
 			}
-		}
+			return result.getData();
+		});
 	}
-	
-	private JsonObject convertJsonToJsonObject(String json) {
-		// parse json string in to JsonElement
+
+	private void deliver(RequestProperties headers, CodeCallback callback){
 		try {
-			JsonElement toObject = new JsonParser().parse(json);
-			return toObject.getAsJsonObject();
-		}catch(JsonSyntaxException mfe){
-			return null;
-		}catch(IllegalStateException ise){
-			return null;
+			callback.done(doExecute(headers));
+		} catch (ClearBladeException e) {
+			callback.error(e);
+		}
+	}
+
+	private RequestProperties executeHeaders(RequestBody params){
+		RequestProperties.Builder builder = new RequestProperties.Builder().method("POST").endPoint("api/v/1/code/" +Util.getSystemKey() + "/" + serviceName);
+		if(params != null){
+			builder.body(params);
+		}
+		return builder.build();
+	}
+
+	private JsonObject doExecute(RequestProperties headers) throws ClearBladeException {
+		// the response is parsed as it streams in, without an intermediate String
+		PlatformResponse<JsonElement> result = new RequestEngine(headers).execute(ResponseBodyHandler.ofJson());
+		if(result.isError()) {
+			Util.logger("Load", result.getErrorMessage(), true);
+			throw new ClearBladeException("Call to Save failed:"+result.getErrorMessage());
+		}
+		if(!result.getData().isJsonObject()){
+			throw new ClearBladeException("Failed to parse code response");
 		}
+		return result.getData().getAsJsonObject();
 	}
 	
 	
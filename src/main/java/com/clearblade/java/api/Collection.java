@@ -2,9 +2,20 @@ package com.clearblade.java.api;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.clearblade.java.api.internal.PlatformResponse;
 import com.clearblade.java.api.internal.RequestEngine;
+import com.clearblade.java.api.internal.RequestExecutor;
 import com.clearblade.java.api.internal.RequestProperties;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -57,6 +68,11 @@ public class Collection implements Iterable<Item>{
 			throw new UnsupportedOperationException("remove is not supported.");
 		}
 	}
+	/**
+	 * Number of items or ids sent per request by the bulk methods.
+	 */
+	public static final int DEFAULT_BULK_CHUNK_SIZE = 100;
+
 	private final String TAG = "CLEARBLADECOLLECTION";
 	private String collectionId;			// Type of collection
 	
@@ -65,6 +81,8 @@ public class Collection implements Iterable<Item>{
 	
 	private boolean byName = false;
 	private RequestEngine request;	// used to make API requests
+	private volatile SaveCoalescer saveCoalescer;	// null unless save coalescing is enabled
+	private volatile ItemLoader loader;				// created on first use
 
 	/**
 	 * Constructs a new ClearBladeCollection of the specified type
@@ -245,6 +263,487 @@ public class Collection implements Iterable<Item>{
 		return query.fetchSync();
 	}
 
+	/** 
+	 * Asynchronous version of {@link #fetchAll(DataCallback)}.
+	 * <p>Retrieved Items will be stored locally in the Collection once the future completes.</p>
+	 * @return future completed with the query results, or exceptionally with a ClearBladeException
+	 */
+	public CompletableFuture<QueryResponse> fetchAllAsync() {
+		return fetchAsync(new Query(collectionId, byName));
+	}
+
+	/** 
+	 * Asynchronous version of {@link #fetch(Query, DataCallback)}.
+	 * <p>Retrieved Items will be stored locally in the Collection once the future completes.</p>
+	 * @return future completed with the query results, or exceptionally with a ClearBladeException
+	 */
+	public CompletableFuture<QueryResponse> fetchAsync(Query query) {
+		query.setCollectionId(collectionId, byName);
+		return query.fetchAsync().thenApply(response -> {
+			itemArray = response.getDataItems();
+			return response;
+		});
+	}
+
+	/** 
+	 * Asynchronous version of {@link #remove(DataCallback)}.
+	 * @return future completed with the removed items, or exceptionally with a ClearBladeException
+	 */
+	public CompletableFuture<Item[]> removeAsync() {
+		return new Query(collectionId, byName).removeAsync();
+	}
+
+	/**
+	 * Returns a lazy stream over every item in the collection, fetched page by page with the next
+	 * page prefetched in the background. Unlike {@link #fetchAll(DataCallback)} this does not
+	 * store the items in the Collection.
+	 * @param pageSize items per request
+	 * @see Query#stream(int)
+	 */
+	public Stream<Item> stream(int pageSize) {
+		return stream(new Query(collectionId, byName), pageSize, QueryIterator.DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 * Returns a lazy stream over every item matching the query, requesting up to readAhead pages
+	 * ahead of the one being consumed.
+	 * @param query criteria the items must match
+	 * @param pageSize items per request
+	 * @param readAhead number of pages to prefetch
+	 * @see Query#stream(int, int)
+	 */
+	public Stream<Item> stream(Query query, int pageSize, int readAhead) {
+		query.setCollectionId(collectionId, byName);
+		return query.stream(pageSize, readAhead);
+	}
+
+	/**
+	 * Reads the whole collection with pages fetched concurrently and hands every item to the
+	 * consumer. Unlike {@link #fetchAllSync()}, which asks for everything in one request, the wall
+	 * clock time scales with the number of concurrent requests rather than with the collection size.
+	 * <pre>
+	 * collection.scan(new ScanOptions().setPageSize(1000).setParallelism(8), item -&gt; {
+	 *     //your logic here
+	 * });
+	 * </pre>
+	 * <p>The consumer runs on the calling thread, one item at a time, in page completion order.
+	 * Items are not stored in the Collection.</p>
+	 * @param options page size, parallelism and optional range partitions
+	 * @param consumer receives every item
+	 * @throws ClearBladeException if a page could not be fetched; remaining pages are abandoned
+	 */
+	public void scan(ScanOptions options, Consumer<Item> consumer) throws ClearBladeException {
+		scan(new Query(collectionId, byName), options, consumer);
+	}
+
+	/**
+	 * Same as {@link #scan(ScanOptions, Consumer)} for the items matching the query.
+	 */
+	public void scan(Query query, ScanOptions options, Consumer<Item> consumer) throws ClearBladeException {
+		query.setCollectionId(collectionId, byName);
+		try (ParallelScan scan = ParallelScan.of(query, options)) {
+			while (scan.hasNext()) {
+				consumer.accept(scan.next());
+			}
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof ClearBladeException) {
+				throw (ClearBladeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Stream version of {@link #scan(ScanOptions, Consumer)}. A failed page surfaces as a
+	 * RuntimeException whose cause is the ClearBladeException; closing the stream abandons the
+	 * pages still in flight.
+	 */
+	public Stream<Item> scanStream(ScanOptions options) {
+		return scanStream(new Query(collectionId, byName), options);
+	}
+
+	/**
+	 * Stream version of {@link #scan(Query, ScanOptions, Consumer)}.
+	 */
+	public Stream<Item> scanStream(Query query, ScanOptions options) {
+		query.setCollectionId(collectionId, byName);
+		return ParallelScan.of(query, options).stream();
+	}
+
+	/**
+	 * Saves many Items with as few requests as possible.
+	 * <pre>
+	 * BulkResult&lt;Item&gt; result = collection.saveAll(items);
+	 * if (!result.isSuccess()) {
+	 *     List&lt;Item&gt; retry = result.getFailed();
+	 * }
+	 * </pre>
+	 * <p>New Items are inserted {@value #DEFAULT_BULK_CHUNK_SIZE} at a time, each chunk as one
+	 * request holding a JSON array, and receive their item_id like {@link Item#saveSync()}.
+	 * Items that already have an item_id are updated one request each, as the platform has no
+	 * bulk update. All requests run concurrently on the shared request executor, or one after the
+	 * other on the calling thread when that is one of the executor's own threads.</p>
+	 * @param items the Items to save; they should belong to this Collection
+	 * @return the outcome of every Item, in the given order
+	 */
+	public BulkResult<Item> saveAll(List<Item> items) {
+		return saveAll(items, DEFAULT_BULK_CHUNK_SIZE);
+	}
+
+	/**
+	 * Same as {@link #saveAll(List)} with the given number of new Items per insert request.
+	 */
+	public BulkResult<Item> saveAll(List<Item> items, int chunkSize) {
+		return saveAll(items, chunkSize, RequestExecutor.getShared().isWorkerThread()).join();
+	}
+
+	/**
+	 * Asynchronous version of {@link #saveAll(List, int)}. The future always completes normally;
+	 * failures are reported per Item in the result.
+	 */
+	public CompletableFuture<BulkResult<Item>> saveAllAsync(List<Item> items, int chunkSize) {
+		return saveAll(items, chunkSize, false);
+	}
+
+	private CompletableFuture<BulkResult<Item>> saveAll(List<Item> items, int chunkSize, boolean inline) {
+		checkChunkSize(chunkSize);
+		final List<Item> entries = new ArrayList<Item>(items);
+		final BulkResult<Item> result = new BulkResult<Item>(entries);
+		List<CompletableFuture<Void>> calls = new ArrayList<CompletableFuture<Void>>();
+
+		final List<Integer> inserts = new ArrayList<Integer>();
+		for (int i = 0; i < entries.size(); i++) {
+			final Item item = entries.get(i);
+			if (item.isNew()) {
+				inserts.add(i);
+				continue;
+			}
+			final int index = i;
+			calls.add(submit(inline, () -> {
+				item.doSave();
+				return (Void) null;
+			}).whenComplete((ignored, error) -> {
+				if (error != null) {
+					result.fail(index, unwrap(error));
+				}
+			}));
+		}
+
+		for (int start = 0; start < inserts.size(); start += chunkSize) {
+			final List<Integer> chunk = inserts.subList(start, Math.min(start + chunkSize, inserts.size()));
+			calls.add(submit(inline, () -> {
+				insertChunk(entries, chunk, result);
+				return (Void) null;
+			}).whenComplete((ignored, error) -> {
+				if (error != null) {
+					ClearBladeException e = unwrap(error);
+					for (int index : chunk) {
+						result.fail(index, e);
+					}
+				}
+			}));
+		}
+
+		return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[calls.size()]))
+				.handle((ignored, error) -> result);
+	}
+
+	/**
+	 * Saves the Item, as part of a batch if save coalescing is enabled.
+	 * <pre>
+	 * collection.enableSaveCoalescing(100, 20);
+	 * //from any number of threads
+	 * collection.saveAsync(item).thenAccept(saved -&gt; {
+	 *     //your logic here
+	 * });
+	 * </pre>
+	 * @return future completed with the saved Item, or exceptionally with a ClearBladeException
+	 * @see #enableSaveCoalescing(int, long)
+	 */
+	public CompletableFuture<Item> saveAsync(Item item) {
+		SaveCoalescer coalescer = saveCoalescer;
+		if (coalescer == null) {
+			return item.saveAsync();
+		}
+		return coalescer.save(item);
+	}
+
+	/**
+	 * Makes {@link #saveAsync(Item)} collect concurrent saves of new Items and send them as bulk
+	 * inserts, so many threads inserting into this Collection share requests instead of each
+	 * making their own. The batching window adapts to the traffic between zero and maxDelayMillis.
+	 * Updates are not coalesced: saving an Item that has an item_id is sent right away.
+	 * @param maxBatchSize inserts per batch; a full batch is sent right away
+	 * @param maxDelayMillis longest time an insert waits for its batch to fill
+	 * @see SaveCoalescer
+	 */
+	public void enableSaveCoalescing(int maxBatchSize, long maxDelayMillis) {
+		SaveCoalescer previous = saveCoalescer;
+		saveCoalescer = new SaveCoalescer(this, maxBatchSize, maxDelayMillis, TimeUnit.MILLISECONDS);
+		if (previous != null) {
+			previous.flush();
+		}
+	}
+
+	/**
+	 * Sends any pending saves and goes back to one request per save.
+	 */
+	public void disableSaveCoalescing() {
+		SaveCoalescer previous = saveCoalescer;
+		saveCoalescer = null;
+		if (previous != null) {
+			previous.flush();
+		}
+	}
+
+	/**
+	 * Returns the save coalescer, for its statistics, or null if coalescing is not enabled.
+	 */
+	public SaveCoalescer getSaveCoalescer() {
+		return saveCoalescer;
+	}
+
+	/**
+	 * Loads the whole collection into memory and keeps it up to date with delta syncs, so reads
+	 * are served from memory instead of calling {@link #fetchAllSync()} again and again.
+	 * @param options sync intervals, watermark column and scan options
+	 * @return the replica, already loaded; close it to stop the syncs
+	 * @throws ClearBladeException if the collection could not be loaded
+	 * @see CollectionReplica
+	 */
+	public CollectionReplica replicate(ReplicaOptions options) throws ClearBladeException {
+		CollectionReplica replica = new CollectionReplica(this, options);
+		replica.start();
+		return replica;
+	}
+
+	/**
+	 * Inserts the Items at the given positions with one request and merges the created
+	 * properties back in to them, matching the response to the request by position. An Item
+	 * without a created row in the response keeps its changes and is reported as failed.
+	 */
+	private void insertChunk(List<Item> entries, List<Integer> chunk, BulkResult<Item> result) throws ClearBladeException {
+		JsonArray rows = new JsonArray();
+		JsonObject[] sent = new JsonObject[chunk.size()];
+		for (int i = 0; i < chunk.size(); i++) {
+			Item item = entries.get(chunk.get(i));
+			sent[i] = item.copyChanges();
+			JsonObject row = item.json.deepCopy();
+			row.remove("item_id");	// may be present but empty
+			rows.add(row);
+		}
+		JsonArray created = insertRows(rows);
+		for (int i = 0; i < chunk.size(); i++) {
+			JsonElement element = i < created.size() ? created.get(i) : null;
+			if (element == null || !element.isJsonObject() || !element.getAsJsonObject().has("item_id")) {
+				result.fail(chunk.get(i), new ClearBladeException("Call to Save failed: no created item in the response at position " + i));
+				continue;
+			}
+			entries.get(chunk.get(i)).applyCreated(element.getAsJsonObject(), sent[i]);
+		}
+	}
+
+	/**
+	 * Sends one insert request for the given rows.
+	 * @return the created objects, in request order
+	 * @throws ClearBladeException if the request failed or its response is not JSON
+	 */
+	JsonArray insertRows(JsonArray rows) throws ClearBladeException {
+		RequestProperties headers = new RequestProperties.Builder().method("POST").endPoint(getEndPoint()).body(rows).build();
+		PlatformResponse<String> result = new RequestEngine(headers).execute();
+		if(result.isError()) {
+			Util.logger("Save", "" + result.getData(), true);
+			throw new ClearBladeException("Call to Save failed:"+result.getData());
+		}
+		try {
+			JsonElement response = JsonParser.parseString(result.getData());
+			if (response.isJsonArray()) {
+				return response.getAsJsonArray();
+			}
+			JsonArray single = new JsonArray();
+			single.add(response);
+			return single;
+		} catch (JsonSyntaxException e) {
+			throw new ClearBladeException("Call to Save failed: invalid response: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Deletes the Items with the given ids, {@value #DEFAULT_BULK_CHUNK_SIZE} ids per request.
+	 * <p>Every chunk is one delete whose query matches any of its ids; chunks run concurrently
+	 * on the shared request executor, or on the calling thread when that is one of the executor's
+	 * own threads. Deleting an id that does not exist is not an error.</p>
+	 * @param ids the item_ids to delete
+	 * @return the outcome of every id, in the given order
+	 */
+	public BulkResult<String> deleteByIds(java.util.Collection<String> ids) {
+		return deleteByIds(ids, DEFAULT_BULK_CHUNK_SIZE);
+	}
+
+	/**
+	 * Same as {@link #deleteByIds(java.util.Collection)} with the given number of ids per request.
+	 */
+	public BulkResult<String> deleteByIds(java.util.Collection<String> ids, int chunkSize) {
+		return deleteByIds(ids, chunkSize, RequestExecutor.getShared().isWorkerThread()).join();
+	}
+
+	/**
+	 * Asynchronous version of {@link #deleteByIds(java.util.Collection, int)}. The future always
+	 * completes normally; failures are reported per id in the result.
+	 */
+	public CompletableFuture<BulkResult<String>> deleteByIdsAsync(java.util.Collection<String> ids, int chunkSize) {
+		return deleteByIds(ids, chunkSize, false);
+	}
+
+	private CompletableFuture<BulkResult<String>> deleteByIds(java.util.Collection<String> ids, int chunkSize, boolean inline) {
+		checkChunkSize(chunkSize);
+		final List<String> entries = new ArrayList<String>(ids);
+		final BulkResult<String> result = new BulkResult<String>(entries);
+		List<CompletableFuture<Void>> calls = new ArrayList<CompletableFuture<Void>>();
+
+		for (int start = 0; start < entries.size(); start += chunkSize) {
+			final int from = start;
+			final int to = Math.min(start + chunkSize, entries.size());
+			calls.add(submit(inline, () -> {
+				deleteChunk(entries.subList(from, to));
+				return (Void) null;
+			}).whenComplete((ignored, error) -> {
+				if (error != null) {
+					ClearBladeException e = unwrap(error);
+					for (int index = from; index < to; index++) {
+						result.fail(index, e);
+					}
+				}
+			}));
+		}
+
+		return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[calls.size()]))
+				.handle((ignored, error) -> result);
+	}
+
+	/**
+	 * Loads the Items with the given ids with one query, instead of one {@link Item#loadSync(String)}
+	 * per id.
+	 * <p>Repeated ids are loaded once. More than {@value #DEFAULT_BULK_CHUNK_SIZE} ids are split over
+	 * several queries, which run concurrently on the shared request executor, or on the calling
+	 * thread when that is one of the executor's own threads.</p>
+	 * @param ids the item_ids to load
+	 * @return the Items found by id, in the order of the given ids; ids that do not exist are left out
+	 * @throws ClearBladeException if a query failed
+	 */
+	public Map<String, Item> loadAll(java.util.Collection<String> ids) throws ClearBladeException {
+		try {
+			return loadAll(ids, RequestExecutor.getShared().isWorkerThread()).join();
+		} catch (CompletionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link #loadAll(java.util.Collection)}.
+	 * @return future completed with the Items by id, or exceptionally with a ClearBladeException
+	 */
+	public CompletableFuture<Map<String, Item>> loadAllAsync(java.util.Collection<String> ids) {
+		return loadAll(ids, false);
+	}
+
+	private CompletableFuture<Map<String, Item>> loadAll(java.util.Collection<String> ids, boolean inline) {
+		final List<String> distinct = new ArrayList<String>(new LinkedHashSet<String>(ids));
+		List<CompletableFuture<Item[]>> calls = new ArrayList<CompletableFuture<Item[]>>();
+		for (int start = 0; start < distinct.size(); start += DEFAULT_BULK_CHUNK_SIZE) {
+			final List<String> chunk = distinct.subList(start, Math.min(start + DEFAULT_BULK_CHUNK_SIZE, distinct.size()));
+			calls.add(submit(inline, () -> loadChunk(chunk)));
+		}
+		final List<CompletableFuture<Item[]>> results = calls;
+		return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[calls.size()])).thenApply(ignored -> {
+			Map<String, Item> byId = new LinkedHashMap<String, Item>();
+			for (CompletableFuture<Item[]> result : results) {
+				for (Item item : result.join()) {
+					byId.put(item.getId(), item);
+				}
+			}
+			Map<String, Item> ordered = new LinkedHashMap<String, Item>();
+			for (String id : distinct) {
+				Item item = byId.get(id);
+				if (item != null) {
+					ordered.put(id, item);
+				}
+			}
+			return ordered;
+		});
+	}
+
+	/**
+	 * Returns a loader that batches the {@link ItemLoader#load(String)} calls made within a couple
+	 * of milliseconds of each other into {@link #loadAllAsync(java.util.Collection)} calls.
+	 */
+	public ItemLoader loader() {
+		ItemLoader current = loader;
+		if (current == null) {
+			synchronized (this) {
+				if (loader == null) {
+					loader = new ItemLoader(this, DEFAULT_BULK_CHUNK_SIZE, ItemLoader.DEFAULT_WINDOW_MICROS, TimeUnit.MICROSECONDS);
+				}
+				current = loader;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Sends one fetch for the Items with any of the given ids.
+	 */
+	Item[] loadChunk(List<String> ids) throws ClearBladeException {
+		Item[] items = byIdsQuery(ids).fetchPage(0, -1).getDataItems();
+		return items != null ? items : new Item[0];
+	}
+
+	/**
+	 * Sends one delete request matching any of the given ids.
+	 */
+	void deleteChunk(List<String> ids) throws ClearBladeException {
+		byIdsQuery(ids).removeAnySync();
+	}
+
+	Query byIdsQuery(List<String> ids) {
+		Query query = new Query(collectionId, byName);
+		for (String id : ids) {
+			query.or(new Query().equalTo("item_id", id));
+		}
+		return query;
+	}
+
+	/**
+	 * Runs one request of a bulk call on the shared request executor, or right away on this thread.
+	 */
+	private static <T> CompletableFuture<T> submit(boolean inline, Callable<T> call) {
+		return inline ? RequestExecutor.runInline(call) : RequestExecutor.getShared().submit(call);
+	}
+
+	private static void checkChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive");
+		}
+	}
+
+	private static ClearBladeException unwrap(Throwable error) {
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+		if (cause instanceof ClearBladeException) {
+			return (ClearBladeException) cause;
+		}
+		return new ClearBladeException(cause.getMessage(), cause);
+	}
+
+	private String getEndPoint(){
+		String endPoint = "";
+		if(byName){
+			endPoint = "api/v/1/collection/"+Util.getSystemKey() +"/" +collectionId;
+		}else{
+			endPoint = "api/v/1/data/" +collectionId;
+		}
+		return endPoint;
+	}
+
 	/**
 	 * Returns the query to be performed during a call to ClearBladeCollection.fetch(). 
 	 * will be null if not set by setQuery().
@@ -276,6 +775,10 @@ public class Collection implements Iterable<Item>{
 	public void setQuery(Query query) {
 		this.query = query;
 	}
+
+	boolean isByName() {
+		return byName;
+	}
 	
 
 	/**
@@ -0,0 +1,478 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * An in-memory copy of a collection, kept up to date in the background.
+ * <p>
+ * The collection is loaded once with a parallel scan. After that, every sync interval the replica
+ * only fetches the rows whose watermark column (by default {@code _lastModified}) is at least the
+ * highest value it has seen, and merges them by item_id. Deleted rows are only noticed by the full
+ * reloads made every full sync interval, or by {@link #resync()}. With {@link #watch(MqttClient, String)}
+ * changes are pushed over MQTT instead and the delta syncs only fill the gaps left by reconnects.
+ * </p>
+ * <p>
+ * Reads never lock and never call the platform: every sync publishes a new immutable snapshot, and
+ * readers keep using the one they got while the next is built. The Items of a snapshot are shared
+ * by all readers and must not be modified. Listeners are told about every row a sync changed, on
+ * the sync thread, after the snapshot holding the change was published.
+ * </p>
+ * <pre>
+ * CollectionReplica countries = new Collection(collectionId).replicate(new ReplicaOptions().setSyncInterval(10000));
+ * Item france = countries.get(franceId);
+ * countries.addChangeListener((previous, current) -&gt; {
+ *     //your logic here
+ * });
+ * </pre>
+ * @see Collection#replicate(ReplicaOptions)
+ */
+public class CollectionReplica implements AutoCloseable {
+
+	private static final String TAG = "CollectionReplica";
+
+	/**
+	 * Receives the rows a sync changed.
+	 */
+	public interface ChangeListener {
+		/**
+		 * @param previous the row as it was, or null if it is new
+		 * @param current the row as it is now, or null if it was deleted
+		 */
+		void onChange(Item previous, Item current);
+	}
+
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "clearblade-collection-replica");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Collection collection;
+	private final ReplicaOptions options;
+	private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile Map<String, Item> snapshot = Collections.emptyMap();
+	private JsonElement watermark;
+	private ScheduledFuture<?> scheduled;
+
+	// held for a whole sync, so syncs run one at a time; taken before the replica's own lock
+	private final Object syncLock = new Object();
+	// watch changes applied while a scan runs, applied again on top of its result; null when no scan runs
+	private List<CollectionWatch.Event> eventsDuringScan;
+
+	private volatile CollectionWatch watch;
+	// set while watch messages may have been missed; the watermark stays where the gap began
+	private volatile boolean gapPending;
+
+	private volatile long lastSyncTime;
+	private volatile long lastFullSyncTime;
+	private volatile long syncCount;
+	private volatile long failedSyncCount;
+	private volatile long changeCount;
+
+	CollectionReplica(Collection collection, ReplicaOptions options) {
+		this.collection = collection;
+		this.options = new ReplicaOptions(options);
+	}
+
+	/**
+	 * Loads the collection and schedules the syncs.
+	 */
+	void start() throws ClearBladeException {
+		resync();
+		long interval = options.getSyncInterval();
+		synchronized (this) {
+			scheduled = TIMER.scheduleWithFixedDelay(this::syncInBackground, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void syncInBackground() {
+		try {
+			long fullSyncInterval = options.getFullSyncInterval();
+			if (fullSyncInterval > 0 && System.currentTimeMillis() - lastFullSyncTime >= fullSyncInterval) {
+				resync();
+			} else if (watch == null || gapPending) {
+				sync();
+			}
+		} catch (ClearBladeException | RuntimeException e) {
+			// the current snapshot stays in use; the next sync tries again
+			failedSyncCount++;
+			Util.logger(TAG, "sync of " + collection.getCollectionId() + " failed: " + e.getMessage(), true);
+		}
+	}
+
+	/**
+	 * Fetches the rows changed since the last sync and publishes them, without waiting for the schedule.
+	 * @throws ClearBladeException if the rows could not be fetched; the snapshot is left as it was
+	 */
+	public void sync() throws ClearBladeException {
+		synchronized (syncLock) {
+			JsonElement from;
+			synchronized (this) {
+				from = watermark;
+			}
+			if (from == null) {
+				resync();		// an empty collection, or one without watermarks, has nothing to compare to
+				return;
+			}
+			List<Item> rows = scan(new Query().greaterThanEqualTo(options.getWatermarkColumn(), toValue(from)));
+
+			synchronized (this) {
+				Map<String, Item> next = new HashMap<>(snapshot);
+				List<String> touched = new ArrayList<>();
+				for (Item row : rows) {
+					String id = row.getId();
+					if (id == null) {
+						continue;
+					}
+					next.put(id, row);
+					touched.add(id);
+					watermark = max(watermark, row.json.get(options.getWatermarkColumn()));
+				}
+				merge(next, touched);
+			}
+		}
+	}
+
+	/**
+	 * Loads the whole collection again, which also removes the rows deleted on the platform.
+	 * @throws ClearBladeException if the collection could not be loaded; the snapshot is left as it was
+	 */
+	public void resync() throws ClearBladeException {
+		synchronized (syncLock) {
+			List<Item> rows = scan(new Query());
+
+			synchronized (this) {
+				Map<String, Item> next = new HashMap<>(rows.size() * 4 / 3 + 1);
+				JsonElement highest = null;
+				for (Item row : rows) {
+					String id = row.getId();
+					if (id == null) {
+						continue;
+					}
+					next.put(id, row);
+					highest = max(highest, row.json.get(options.getWatermarkColumn()));
+				}
+				List<String> touched = new ArrayList<>(next.keySet());
+				for (String id : snapshot.keySet()) {
+					if (!next.containsKey(id)) {
+						touched.add(id);
+					}
+				}
+				watermark = highest;
+				lastFullSyncTime = System.currentTimeMillis();
+				merge(next, touched);
+			}
+		}
+	}
+
+	/**
+	 * Runs a scan without holding the replica's lock, so watch messages keep being applied (on the
+	 * MQTT callback thread) while it runs; they are recorded to be applied again on top of the result.
+	 */
+	private List<Item> scan(Query query) throws ClearBladeException {
+		boolean fillingGap = gapPending;
+		gapPending = false;
+		synchronized (this) {
+			eventsDuringScan = new ArrayList<>();
+		}
+		List<Item> rows = new ArrayList<>();
+		try {
+			collection.scan(query, options.getScanOptions(), rows::add);
+		} catch (ClearBladeException | RuntimeException e) {
+			synchronized (this) {
+				eventsDuringScan = null;
+			}
+			gapPending |= fillingGap;
+			throw e;
+		}
+		return rows;
+	}
+
+	/**
+	 * Applies the watch messages that arrived during the scan to its result, then publishes it with
+	 * the rows that differ from the current snapshot as changes. Called with the lock held.
+	 */
+	private void merge(Map<String, Item> next, List<String> touched) {
+		List<CollectionWatch.Event> events = eventsDuringScan;
+		eventsDuringScan = null;
+		boolean missingRows = false;
+		if (events != null && !events.isEmpty()) {
+			missingRows = applyTo(next, events);
+			for (CollectionWatch.Event event : events) {
+				touched.add(event.itemId);
+			}
+		}
+
+		Map<String, Item> previousSnapshot = snapshot;
+		List<Item[]> changes = new ArrayList<>();
+		for (String id : new LinkedHashSet<>(touched)) {
+			Item previous = previousSnapshot.get(id);
+			Item current = next.get(id);
+			if (previous != null && current != null && previous.json.equals(current.json)) {
+				next.put(id, previous);		// unchanged rows keep their instance
+			} else if (previous != current) {
+				changes.add(new Item[] { previous, current });
+			}
+		}
+		lastSyncTime = System.currentTimeMillis();
+		boolean firstLoad = syncCount++ == 0;
+		// the first load is not a change
+		update(next, firstLoad ? Collections.<Item[]>emptyList() : changes);
+		if (missingRows) {
+			fillGap();
+		}
+	}
+
+	private void update(Map<String, Item> next, List<Item[]> changes) {
+		snapshot = Collections.unmodifiableMap(next);
+		changeCount += changes.size();
+		for (Item[] change : changes) {
+			for (ChangeListener listener : listeners) {
+				try {
+					listener.onChange(change[0], change[1]);
+				} catch (RuntimeException e) {
+					Util.logger(TAG, "change listener failed: " + e.getMessage(), true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies the changes of a watch message. Runs on the MQTT callback thread, so it only waits for
+	 * other merges, never for a scan.
+	 */
+	synchronized void apply(List<CollectionWatch.Event> events) {
+		if (eventsDuringScan != null) {
+			eventsDuringScan.addAll(events);
+		}
+		Map<String, Item> next = new HashMap<>(snapshot);
+		List<Item[]> changes = new ArrayList<>();
+		boolean missingRows = applyTo(next, events, changes);
+		update(next, changes);
+		if (missingRows) {
+			fillGap();
+		}
+	}
+
+	private boolean applyTo(Map<String, Item> next, List<CollectionWatch.Event> events) {
+		return applyTo(next, events, new ArrayList<Item[]>());
+	}
+
+	/**
+	 * Applies watch changes to a map of rows.
+	 * @param changes receives the rows changed
+	 * @return true if an update named a row the map does not hold, which only a sync can fetch
+	 */
+	private boolean applyTo(Map<String, Item> next, List<CollectionWatch.Event> events, List<Item[]> changes) {
+		String column = options.getWatermarkColumn();
+		boolean missingRows = false;
+		for (CollectionWatch.Event event : events) {
+			Item previous = next.get(event.itemId);
+			if (event.op.equals("delete")) {
+				if (previous != null) {
+					next.remove(event.itemId);
+					changes.add(new Item[] { previous, null });
+				}
+				continue;
+			}
+			if (previous == null && event.op.equals("update")) {
+				// only the changed columns came; a delta sync from the current watermark fetches the whole row
+				missingRows = true;
+				continue;
+			}
+			if (previous != null && compare(event.row.get(column), previous.json.get(column)) < 0) {
+				continue;	// older than the row a sync already fetched
+			}
+			JsonObject row = previous != null && event.op.equals("update") ? previous.json.deepCopy() : new JsonObject();
+			for (Map.Entry<String, JsonElement> field : event.row.entrySet()) {
+				row.add(field.getKey(), field.getValue());
+			}
+			if (previous != null && previous.json.equals(row)) {
+				continue;
+			}
+			Item current = new Item(row, collection.getCollectionId(), collection.isByName());
+			next.put(event.itemId, current);
+			changes.add(new Item[] { previous, current });
+			if (!gapPending && !missingRows) {
+				// frozen during a gap, so the delta sync after the reconnect starts where messages stopped
+				watermark = max(watermark, row.get(column));
+			}
+		}
+		return missingRows;
+	}
+
+	/**
+	 * Pushes changes from MQTT into this replica, see {@link CollectionWatch}. Scheduled delta syncs
+	 * are skipped while the watch is connected.
+	 * @param client a connected client
+	 * @param topic topic the collection's changes are published on; may hold wildcards
+	 * @return the watch; close it to go back to polling
+	 * @throws ClearBladeException if the topic could not be subscribed to, or the first sync failed
+	 */
+	public CollectionWatch watch(MqttClient client, String topic) throws ClearBladeException {
+		CollectionWatch newWatch;
+		synchronized (this) {
+			if (watch != null) {
+				throw new IllegalStateException("the replica is already watching " + watch.getTopic());
+			}
+			newWatch = new CollectionWatch(this, client, topic);
+			watch = newWatch;
+		}
+		// not under the lock: the first sync scans the collection while messages are applied
+		try {
+			newWatch.start();
+		} catch (ClearBladeException | RuntimeException e) {
+			unwatch(newWatch);
+			throw e;
+		}
+		return newWatch;
+	}
+
+	synchronized void unwatch(CollectionWatch closed) {
+		if (watch == closed) {
+			watch = null;
+		}
+	}
+
+	/**
+	 * Called when the watch connection drops.
+	 */
+	void markGap() {
+		gapPending = true;
+	}
+
+	/**
+	 * Called when the watch connection is back, or a watch message updated a row this replica does
+	 * not hold: syncs at once on the sync thread. A failed sync is retried at the next scheduled one.
+	 */
+	void fillGap() {
+		gapPending = true;
+		TIMER.execute(this::syncInBackground);
+	}
+
+	private static JsonElement max(JsonElement current, JsonElement candidate) {
+		if (candidate == null || !candidate.isJsonPrimitive()) {
+			return current;
+		}
+		if (current == null) {
+			return candidate;
+		}
+		return compare(current, candidate) >= 0 ? current : candidate;
+	}
+
+	/**
+	 * Compares two watermarks, numerically if both are numbers; missing ones compare as equal.
+	 */
+	private static int compare(JsonElement a, JsonElement b) {
+		if (a == null || b == null || !a.isJsonPrimitive() || !b.isJsonPrimitive()) {
+			return 0;
+		}
+		JsonPrimitive x = a.getAsJsonPrimitive();
+		JsonPrimitive y = b.getAsJsonPrimitive();
+		return x.isNumber() && y.isNumber()
+				? x.getAsBigDecimal().compareTo(y.getAsBigDecimal())
+				: x.getAsString().compareTo(y.getAsString());
+	}
+
+	private static Object toValue(JsonElement watermark) {
+		JsonPrimitive value = watermark.getAsJsonPrimitive();
+		return value.isNumber() ? value.getAsBigDecimal() : value.getAsString();
+	}
+
+	/**
+	 * Stops the syncs and the watch, if any. The last snapshot can still be read.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (scheduled != null) {
+				scheduled.cancel(false);
+				scheduled = null;
+			}
+		}
+		// not under the lock: unsubscribing waits for the MQTT callback thread, which may be in apply
+		CollectionWatch current = watch;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (ClearBladeException e) {
+				Util.logger(TAG, "unsubscribe from " + current.getTopic() + " failed: " + e.getMessage(), true);
+			}
+		}
+	}
+
+	// Reads
+
+	/**
+	 * Returns the row with the given item_id, or null.
+	 */
+	public Item get(String itemId) {
+		return snapshot.get(itemId);
+	}
+
+	/**
+	 * Returns the current rows keyed by item_id. The map never changes; a later sync publishes a new one.
+	 */
+	public Map<String, Item> getSnapshot() {
+		return snapshot;
+	}
+
+	public Stream<Item> stream() {
+		return snapshot.values().stream();
+	}
+
+	public int size() {
+		return snapshot.size();
+	}
+
+	public void addChangeListener(ChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeChangeListener(ChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	// Stats
+
+	/**
+	 * Returns how many milliseconds ago the last successful sync published its snapshot.
+	 */
+	public long getStaleness() {
+		return System.currentTimeMillis() - lastSyncTime;
+	}
+
+	public long getSyncCount() {
+		return syncCount;
+	}
+
+	/**
+	 * Returns the number of background syncs that failed and left the snapshot as it was.
+	 */
+	public long getFailedSyncCount() {
+		return failedSyncCount;
+	}
+
+	/**
+	 * Returns the number of rows added, changed or removed by the syncs after the first load.
+	 */
+	public long getChangeCount() {
+		return changeCount;
+	}
+}
@@ -0,0 +1,201 @@
+package com.clearblade.java.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Feeds the data change notifications published over MQTT into a {@link CollectionReplica}, so the
+ * replica stays fresh without polling.
+ * <p>
+ * Every message on the watched topic holds one change, or a JSON array of them:
+ * </p>
+ * <pre>
+ * {"op": "insert", "item": {"item_id": "...", ...}}
+ * {"op": "update", "item": {"item_id": "...", "changed column": ..., "_lastModified": ...}}
+ * {"op": "delete", "item": {"item_id": "..."}}
+ * </pre>
+ * <p>
+ * An insert stores the row as given; an update merges its columns into the row the replica holds;
+ * a delete removes the row. Such messages are typically published by a code service run by a
+ * collection trigger. Updates older than the row held, by watermark column, are ignored. An update
+ * for a row the replica does not hold only carries some of its columns, so instead of storing it the
+ * replica runs a delta sync that fetches the whole row.
+ * </p>
+ * <p>
+ * While the watch is connected the replica skips its scheduled delta syncs (full reloads still run).
+ * Messages published while the connection is down are lost, so after a reconnect the replica runs a
+ * delta sync from the watermark it had when the connection dropped, which fills the gap.
+ * </p>
+ * @see CollectionReplica#watch(MqttClient, String)
+ */
+public class CollectionWatch implements AutoCloseable {
+
+	private static final String TAG = "CollectionWatch";
+
+	/**
+	 * One change taken from a message.
+	 */
+	static final class Event {
+		final String op;
+		final String itemId;
+		final JsonObject row;
+
+		Event(String op, String itemId, JsonObject row) {
+			this.op = op;
+			this.itemId = itemId;
+			this.row = row;
+		}
+	}
+
+	private final CollectionReplica replica;
+	private final MqttClient client;
+	private final String topic;
+	private final MqttClient.OnConnectionComplete onComplete = this::connectionComplete;
+	private final MqttClient.OnConnectionLost onLost = this::connectionLost;
+
+	private volatile boolean connected;
+	private final AtomicLong eventCount = new AtomicLong();
+	private final AtomicLong invalidMessageCount = new AtomicLong();
+	private final AtomicLong gapFillCount = new AtomicLong();
+
+	CollectionWatch(CollectionReplica replica, MqttClient client, String topic) {
+		this.replica = replica;
+		this.client = client;
+		this.topic = topic;
+	}
+
+	/**
+	 * Subscribes, then syncs once to pick up the changes made between the last sync and the subscription.
+	 * If that sync fails, the subscription is undone before the error is thrown.
+	 */
+	void start() throws ClearBladeException {
+		client.addConnectionObservers(onComplete, onLost);
+		try {
+			client.subscribe(topic, new MessageCallback() {
+				@Override
+				public void done(String topic, byte[] message) {
+					messageArrived(message);
+				}
+			});
+		} catch (ClearBladeException e) {
+			client.removeConnectionObservers(onComplete, onLost);
+			throw e;
+		}
+		connected = true;
+		try {
+			replica.sync();
+		} catch (ClearBladeException | RuntimeException e) {
+			// the caller never gets this watch, so nothing else could close it
+			connected = false;
+			client.removeConnectionObservers(onComplete, onLost);
+			try {
+				client.unsubscribe(topic);
+			} catch (ClearBladeException unsubscribeError) {
+				Util.logger(TAG, "unsubscribe from " + topic + " failed: " + unsubscribeError.getMessage(), true);
+			}
+			throw e;
+		}
+	}
+
+	private void messageArrived(byte[] message) {
+		List<Event> events;
+		try {
+			events = parse(new String(message, StandardCharsets.UTF_8));
+		} catch (JsonParseException | IllegalStateException | IllegalArgumentException | UnsupportedOperationException e) {
+			invalidMessageCount.incrementAndGet();
+			Util.logger(TAG, "ignored invalid change on " + topic + ": " + e.getMessage(), true);
+			return;
+		}
+		eventCount.addAndGet(events.size());
+		replica.apply(events);
+	}
+
+	/**
+	 * Parses a message, failing before any of its changes is applied if one is invalid.
+	 */
+	static List<Event> parse(String message) {
+		JsonElement json = JsonParser.parseString(message);
+		List<Event> events = new ArrayList<>();
+		if (json.isJsonArray()) {
+			for (JsonElement change : json.getAsJsonArray()) {
+				events.add(parseEvent(change.getAsJsonObject()));
+			}
+		} else {
+			events.add(parseEvent(json.getAsJsonObject()));
+		}
+		return events;
+	}
+
+	private static Event parseEvent(JsonObject change) {
+		String op = change.get("op").getAsString().toLowerCase();
+		if (!op.equals("insert") && !op.equals("update") && !op.equals("delete")) {
+			throw new IllegalArgumentException("unknown op " + op);
+		}
+		JsonObject row = change.getAsJsonObject("item");
+		if (row == null || row.get("item_id") == null) {
+			throw new IllegalArgumentException("change without item.item_id");
+		}
+		return new Event(op, row.get("item_id").getAsString(), row);
+	}
+
+	private void connectionLost(Throwable cause) {
+		connected = false;
+		replica.markGap();
+	}
+
+	private void connectionComplete(boolean reconnected, String url) {
+		// MqttClient resubscribed before calling this; the sync runs off the MQTT callback thread
+		connected = true;
+		gapFillCount.incrementAndGet();
+		replica.fillGap();
+	}
+
+	/**
+	 * Unsubscribes; the replica goes back to its scheduled delta syncs.
+	 */
+	@Override
+	public void close() throws ClearBladeException {
+		client.removeConnectionObservers(onComplete, onLost);
+		connected = false;
+		replica.unwatch(this);
+		client.unsubscribe(topic);
+	}
+
+	// Stats
+
+	public String getTopic() {
+		return topic;
+	}
+
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * Returns the number of changes received, applied or found stale.
+	 */
+	public long getEventCount() {
+		return eventCount.get();
+	}
+
+	/**
+	 * Returns the number of messages dropped because they were not valid changes.
+	 */
+	public long getInvalidMessageCount() {
+		return invalidMessageCount.get();
+	}
+
+	/**
+	 * Returns the number of reconnects, each followed by a delta sync.
+	 */
+	public long getGapFillCount() {
+		return gapFillCount.get();
+	}
+}
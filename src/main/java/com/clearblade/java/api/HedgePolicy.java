@@ -0,0 +1,117 @@
+package com.clearblade.java.api;
+
+/**
+ * HedgePolicy configures request hedging for GET calls. The following values are used by default:
+ *
+ *   percentile - 95
+ *   minDelay - 5 milliseconds
+ *   budgetRatio - 0.05 (at most about 5% extra calls)
+ *   sampleSize - 200
+ *   minSamples - 20
+ *
+ * When a GET call has not answered within the given percentile of the recent latencies of its
+ * endpoint (method and path), the same call is sent once more and the first response wins. The
+ * other one is cancelled, or discarded when it arrives. Hedging starts once an endpoint has
+ * minSamples latencies, and never waits less than minDelay.
+ *
+ * The hedge budget caps the extra load: every GET adds budgetRatio of a token, every hedge takes a
+ * whole one, so in the long run at most budgetRatio hedges are sent per call.
+ *
+ * @see InitOptions#setHedgePolicy(HedgePolicy)
+ */
+public class HedgePolicy {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+    public static final int DEFAULT_MIN_DELAY = 5;
+    public static final double DEFAULT_BUDGET_RATIO = 0.05;
+    public static final int DEFAULT_SAMPLE_SIZE = 200;
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+
+    private double _percentile;
+    private int _minDelay;
+    private double _budgetRatio;
+    private int _sampleSize;
+    private int _minSamples;
+
+    public HedgePolicy() {
+        this._percentile = DEFAULT_PERCENTILE;
+        this._minDelay = DEFAULT_MIN_DELAY;
+        this._budgetRatio = DEFAULT_BUDGET_RATIO;
+        this._sampleSize = DEFAULT_SAMPLE_SIZE;
+        this._minSamples = DEFAULT_MIN_SAMPLES;
+    }
+
+    public HedgePolicy(HedgePolicy other) {
+        this._percentile = other._percentile;
+        this._minDelay = other._minDelay;
+        this._budgetRatio = other._budgetRatio;
+        this._sampleSize = other._sampleSize;
+        this._minSamples = other._minSamples;
+    }
+
+    // Getters
+
+    public double getPercentile() {
+        return this._percentile;
+    }
+
+    public int getMinDelay() {
+        return this._minDelay;
+    }
+
+    public double getBudgetRatio() {
+        return this._budgetRatio;
+    }
+
+    public int getSampleSize() {
+        return this._sampleSize;
+    }
+
+    public int getMinSamples() {
+        return this._minSamples;
+    }
+
+    // Setters
+
+    /**
+     * Sets the latency percentile, between 0 and 100 exclusive, after which a call is hedged.
+     */
+    public HedgePolicy setPercentile(double percentile) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        this._percentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the shortest time in milliseconds a call runs before it is hedged.
+     */
+    public HedgePolicy setMinDelay(int minDelay) {
+        this._minDelay = minDelay;
+        return this;
+    }
+
+    /**
+     * Sets the max share of extra calls hedging may add, e.g. 0.05 for 5%.
+     */
+    public HedgePolicy setBudgetRatio(double budgetRatio) {
+        if (budgetRatio <= 0) {
+            throw new IllegalArgumentException("budgetRatio must be positive");
+        }
+        this._budgetRatio = budgetRatio;
+        return this;
+    }
+
+    /**
+     * Sets the number of recent latencies kept per endpoint, and how many are needed before hedging.
+     */
+    public HedgePolicy setSamples(int sampleSize, int minSamples) {
+        if (sampleSize < 1 || minSamples < 1 || minSamples > sampleSize) {
+            throw new IllegalArgumentException("samples must satisfy 1 <= minSamples <= sampleSize");
+        }
+        this._sampleSize = sampleSize;
+        this._minSamples = minSamples;
+        return this;
+    }
+}
@@ -1,8 +1,16 @@
 package com.clearblade.java.api;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import com.clearblade.java.api.auth.AnonAuth;
 import com.clearblade.java.api.auth.Auth;
 import com.clearblade.java.api.auth.UserAuth;
+import com.clearblade.java.api.internal.HttpConnectionPool;
+import com.clearblade.java.api.internal.RequestExecutor;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.PooledTransport;
 
 /**
  * InitOptions is used for customizing ClearBlade initialization. The following values are used by default:
@@ -15,6 +23,12 @@ import com.clearblade.java.api.auth.UserAuth;
  *   enableLogging - false
  *   callTimeout - false
  *   allowUntrusted - false
+ *   tlsConfig - {@link TlsConfig} defaults (JVM trust store, no pins, shared session cache)
+ *   maxConnectionsPerHost - 10
+ *   connectionIdleTimeout - 30000
+ *   connectionValidateAfterInactivity - 2000
+ *   maxInFlightRequests - 10
+ *   transport - {@link com.clearblade.java.api.transport.PooledTransport}
  */
 public class InitOptions {
 
@@ -28,6 +42,18 @@ public class InitOptions {
     private boolean _enableLogging;
     private int _callTimeout;
     private boolean _allowUntrusted;
+    private TlsConfig _tlsConfig;
+
+    private int _maxConnectionsPerHost;
+    private int _connectionIdleTimeout;
+    private int _connectionValidateAfterInactivity;
+    private int _maxInFlightRequests;
+    private HttpTransport _transport;
+    private int _requestCompressionThreshold;
+    private RetryPolicy _retryPolicy;
+    private HedgePolicy _hedgePolicy;
+    private List<String> _singleFlightEndpoints;
+    private CachePolicy _cachePolicy;
 
     public InitOptions() {
         this._platformUrl = "https://platform.clearblade.com";
@@ -40,6 +66,18 @@ public class InitOptions {
         this._enableLogging = false;
         this._callTimeout = 30000;
         this._allowUntrusted = false;
+        this._tlsConfig = new TlsConfig();
+
+        this._maxConnectionsPerHost = HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+        this._connectionIdleTimeout = HttpConnectionPool.DEFAULT_IDLE_TIMEOUT;
+        this._connectionValidateAfterInactivity = HttpConnectionPool.DEFAULT_VALIDATE_AFTER_INACTIVITY;
+        this._maxInFlightRequests = RequestExecutor.DEFAULT_MAX_IN_FLIGHT;
+        this._transport = new PooledTransport();
+        this._requestCompressionThreshold = -1;
+        this._retryPolicy = null;
+        this._hedgePolicy = null;
+        this._singleFlightEndpoints = new ArrayList<>();
+        this._cachePolicy = null;
     }
 
     public InitOptions(InitOptions other) {
@@ -53,6 +91,18 @@ public class InitOptions {
         this._enableLogging = other._enableLogging;
         this._callTimeout = other._callTimeout;
         this._allowUntrusted = other._allowUntrusted;
+        this._tlsConfig = other._tlsConfig;
+
+        this._maxConnectionsPerHost = other._maxConnectionsPerHost;
+        this._connectionIdleTimeout = other._connectionIdleTimeout;
+        this._connectionValidateAfterInactivity = other._connectionValidateAfterInactivity;
+        this._maxInFlightRequests = other._maxInFlightRequests;
+        this._transport = other._transport;
+        this._requestCompressionThreshold = other._requestCompressionThreshold;
+        this._retryPolicy = other._retryPolicy;
+        this._hedgePolicy = other._hedgePolicy;
+        this._singleFlightEndpoints = new ArrayList<>(other._singleFlightEndpoints);
+        this._cachePolicy = other._cachePolicy;
     }
 
     // Getters
@@ -81,6 +131,50 @@ public class InitOptions {
         return this._allowUntrusted;
     }
 
+    public TlsConfig getTlsConfig() {
+        return this._tlsConfig;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return this._maxConnectionsPerHost;
+    }
+
+    public int getConnectionIdleTimeout() {
+        return this._connectionIdleTimeout;
+    }
+
+    public int getConnectionValidateAfterInactivity() {
+        return this._connectionValidateAfterInactivity;
+    }
+
+    public int getMaxInFlightRequests() {
+        return this._maxInFlightRequests;
+    }
+
+    public HttpTransport getTransport() {
+        return this._transport;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return this._requestCompressionThreshold;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return this._retryPolicy;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return this._hedgePolicy;
+    }
+
+    public List<String> getSingleFlightEndpoints() {
+        return new ArrayList<>(this._singleFlightEndpoints);
+    }
+
+    public CachePolicy getCachePolicy() {
+        return this._cachePolicy;
+    }
+
     // Setters
 
     public InitOptions setPlatformUrl(String platformUrl) {
@@ -142,4 +236,100 @@ public class InitOptions {
         this._allowUntrusted = allow;
         return this;
     }
+
+    /**
+     * Sets the trust store, pinned keys, protocols and session cache used for HTTPS calls to the platform.
+     * The SSL context is built from it once per {@link ClearBlade#initialize} call.
+     */
+    public InitOptions setTlsConfig(TlsConfig tlsConfig) {
+        this._tlsConfig = tlsConfig;
+        return this;
+    }
+
+    /**
+     * Sets the max number of keep-alive connections (idle and in use) opened to the platform host.
+     * Requests wait for a free connection once the limit is reached.
+     */
+    public InitOptions setMaxConnectionsPerHost(int maxConnections) {
+        this._maxConnectionsPerHost = maxConnections;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds an idle keep-alive connection is kept open before being closed.
+     */
+    public InitOptions setConnectionIdleTimeout(int timeout) {
+        this._connectionIdleTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds a connection can stay idle before it is health checked prior to reuse.
+     */
+    public InitOptions setConnectionValidateAfterInactivity(int inactivity) {
+        this._connectionValidateAfterInactivity = inactivity;
+        return this;
+    }
+
+    /**
+     * Sets the max number of asynchronous calls ({@code fetchAsync}, {@code saveAsync}, ...) running at
+     * the same time. Further calls are queued until a slot frees up.
+     */
+    public InitOptions setMaxInFlightRequests(int maxInFlight) {
+        this._maxInFlightRequests = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Sets the transport carrying the platform calls, e.g. a {@link com.clearblade.java.api.transport.InMemoryTransport}
+     * to run without a network. The connection settings above only apply to the default {@link PooledTransport}.
+     */
+    public InitOptions setTransport(HttpTransport transport) {
+        this._transport = transport;
+        return this;
+    }
+
+    /**
+     * Gzips request bodies of at least the given number of bytes before sending them. Negative
+     * (the default) never compresses; only enable it if the platform accepts gzipped bodies.
+     * Responses are always negotiated with {@code Accept-Encoding: gzip, deflate}.
+     */
+    public InitOptions setRequestCompressionThreshold(int bytes) {
+        this._requestCompressionThreshold = bytes;
+        return this;
+    }
+
+    /**
+     * Sets how failed calls are retried and when endpoints fail fast; null (the default) sends every
+     * call once and leaves failures to the caller.
+     */
+    public InitOptions setRetryPolicy(RetryPolicy retryPolicy) {
+        this._retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Sets when slow GET calls get a second, hedged copy; null (the default) never hedges.
+     */
+    public InitOptions setHedgePolicy(HedgePolicy hedgePolicy) {
+        this._hedgePolicy = hedgePolicy;
+        return this;
+    }
+
+    /**
+     * Sets the endpoints whose identical GET calls are collapsed while one is in flight, given as url
+     * path prefixes such as "/api/v/1/data/" or "/api/v/1/collection/"; none are by default.
+     */
+    public InitOptions setSingleFlightEndpoints(String... pathPrefixes) {
+        this._singleFlightEndpoints = new ArrayList<>(Arrays.asList(pathPrefixes));
+        return this;
+    }
+
+    /**
+     * Sets which GET responses are cached and for how long; null (the default) caches nothing.
+     */
+    public InitOptions setCachePolicy(CachePolicy cachePolicy) {
+        this._cachePolicy = cachePolicy;
+        return this;
+    }
 }
@@ -5,15 +5,19 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.clearblade.java.api.internal.PlatformResponse;
 import com.clearblade.java.api.internal.RequestEngine;
+import com.clearblade.java.api.internal.RequestExecutor;
 import com.clearblade.java.api.internal.RequestProperties;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 
 /**
@@ -54,10 +58,9 @@ import com.google.gson.JsonSyntaxException;
 public class Item {
 	
 	protected JsonObject json;			// All properties are stored in this variable
-	private JsonObject changes;			// All changes made to json variable are recorded here.
+	private JsonObject changes;			// Properties set since the last save, sent as the $set of the next update.
 	private final String collectionId; 	// collection the item belongs to.
 	private boolean byName;				// Flag to reference collection by name 
-	private RequestEngine request;		// API caller
 	
 
 	/**
@@ -87,7 +90,6 @@ public class Item {
 		//this.json.addProperty("_created", _created);
 		//this.json.addProperty("_lastModified", _created);
 		this.changes = new JsonObject();
-		this.request = new RequestEngine();
 	}
 	
 	/**
@@ -122,7 +124,6 @@ public class Item {
 //			//this.json.addProperty("_lastModified", _created);
 //		}
 //		this.changes = new JsonObject();
-//		this.request = new RequestEngine();
 //
 //	}
 	
@@ -138,20 +139,42 @@ public class Item {
 		}
 
 		this.changes = new JsonObject();
-		this.request = new RequestEngine();
 	}
 
 	/**
-	 * method used to clear the changes object.
-	 * <p>It should be used after the changes have been saved to the database</p>
+	 * method used to clear the saved changes from the changes object.
+	 * <p>Only changes still holding the value that was sent are cleared, so properties set again
+	 * while the save was in flight are sent with the next save.</p>
 	 * @private
+	 * @param sent the changes that were saved
 	 */
-	private void clearChanges() {
-		for (Entry<String, JsonElement> pairs : this.changes.entrySet()) {
-			changes.remove(pairs.getKey());
+	private void clearChanges(JsonObject sent) {
+		for (String property : sent.keySet()) {
+			if (sent.get(property).equals(this.changes.get(property))) {
+				this.changes.remove(property);
+			}
 		}
 	}
 
+	/**
+	 * Returns true if properties have been set or unset since the Item was loaded or last saved.
+	 * Saving an Item without changes does not make a request.
+	 */
+	public boolean hasChanges() {
+		return isNew() || this.changes.size() > 0;
+	}
+
+	/**
+	 * Stores the value and records it as a change, unless the property already holds it.
+	 */
+	private void record(String property, JsonElement value) {
+		if (value.equals(this.json.get(property))) {
+			return;
+		}
+		this.changes.add(property, value);
+		this.json.add(property, value);
+	}
+
 	/**
 	 * Method used to convert a JSON Array of length one, in string format in to a JsonObject
 	 * @param json - JSON Array in string format
@@ -334,60 +357,50 @@ public class Item {
 	 */
 	
 	public void load (String itemId, final DataCallback callback ) throws ClearBladeException {
-		// create the query string to look for the object
-		loadSetup(itemId);
-//		PlatformResponse<String> result = request.execute();
-//		if(result.getError()) {
-//			throw new ClearBladeException("Call to Load failed:"+result.getData());
-//		} else {
-//			this.json = convertJsonArrayToJsonObject(result.getData());
-//		}
-//		DataTask asyncFetch = new DataTask(new PlatformCallback(this, callback){
-//			@Override
-//			public void done(String response) {
-//				_item.json = convertJsonToJsonObject(response);
-//				Item[] ret = {_item}; 
-//				callback.done(ret);
-//			}
-//
-//			@Override
-//			public void error(ClearBladeException exception) {
-//				callback.error(exception);
-//			}
-//			
-//		});
-//		asyncFetch.execute(request);
-		
-		PlatformResponse result= request.execute();
-		if(result.isError()) {
-			Util.logger("Load", "" + result.getData(), true);
-			callback.error(new ClearBladeException("Call to Save failed:"+result.getData()));
-		} else {
-			this.json = convertJsonToJsonObject((String)result.getData());
+		try {
+			doLoad(loadHeaders(itemId));
 			Item[] ret = {this}; 
 			callback.done(ret);
+		} catch (ClearBladeException e) {
+			callback.error(e);
 		}
 	}
 	
 	public void loadSync(String itemId) throws ClearBladeException{
-		loadSetup(itemId);
-		PlatformResponse<String> result = request.execute();
+		doLoad(loadHeaders(itemId));
+	}
+
+	/**
+	 * Asynchronous version of {@link #load(String, DataCallback)}. The future completes with
+	 * this Item once its properties have been loaded.
+	 * @param itemId the Id of the Item to retrieve from the ClearBlade Cloud
+	 * @return future completed with this Item
+	 */
+	public CompletableFuture<Item> loadAsync(String itemId) {
+		final RequestProperties headers = loadHeaders(itemId);
+		return RequestExecutor.getShared().submit(() -> {
+			doLoad(headers);
+			return this;
+		});
+	}
+
+	private void doLoad(RequestProperties headers) throws ClearBladeException {
+		PlatformResponse<String> result = new RequestEngine(headers).execute();
 		if(result.isError()) {
+			Util.logger("Load", "" + result.getData(), true);
 			throw new ClearBladeException("Call to Load failed:"+result.getData());
 		} else {
 			this.json = convertJsonArrayToJsonObject(result.getData());
 		}
 	}
 	
-	private void loadSetup(String itemId){
+	private RequestProperties loadHeaders(String itemId){
 		JsonObject queryString = new JsonObject();
 		queryString.addProperty("item_id", itemId);
-		RequestProperties headers = new RequestProperties.Builder().method("GET").endPoint(getEndPoint()).qs(queryString).build();
-		request.setHeaders(headers);
-		
+		return new RequestProperties.Builder().method("GET").endPoint(getEndPoint()).qs(queryString).build();
 	}
 	
-	private String getEndPoint(){
+	String getEndPoint(){
 		String endPoint = "";
 		if(byName){
 			endPoint = "api/v/1/collection/"+Util.getSystemKey() +"/" +collectionId;
@@ -407,66 +420,142 @@ public class Item {
 	 * @throws ClearBladeException will be thrown if no Item is found or if the API call failed
 	 */
 	public void save(final DataCallback callback)  {
-		
-		saveSetup();
-//		
-//		DataTask asyncFetch = new DataTask(new PlatformCallback(this, callback){
-//
-//			@Override
-//			public void done(String response) {
-//				_item.json = convertJsonToJsonObject(response);
-//				Item[] ret = {_item}; 
-//				callback.done(ret);
-//			}
-//
-//			@Override
-//			public void error(ClearBladeException exception) {
-//				callback.error(exception);
-//			}
-//			
-//		});
-//		asyncFetch.execute(request);
-		
-		PlatformResponse<?> result= request.execute();
-		if(result.isError()) {
-			Util.logger("Load", "" + result.getData(), true);
-			callback.error(new ClearBladeException("Call to Save failed:"+result.getData()));
-		} else {
-			this.json = convertJsonToJsonObject((String)result.getData());
+		try {
+			doSave();
 			Item[] ret = {this}; 
 			callback.done(ret);
+		} catch (ClearBladeException e) {
+			callback.error(e);
 		}
-        
-		clearChanges();
 	}
 	
 	public Item[] saveSync() throws ClearBladeException{
-		saveSetup();
-		PlatformResponse<String> result = request.execute();
+		doSave();
+		Item[] ret = {this};
+		return ret; 
+	}
+
+	/**
+	 * Asynchronous version of {@link #save(DataCallback)}. The pending changes are captured
+	 * when this method is called; the future completes with this Item once it has been saved.
+	 * @return future completed with this Item
+	 */
+	public CompletableFuture<Item> saveAsync() {
+		final JsonObject sent = this.changes.deepCopy();
+		final RequestProperties headers = saveHeaders(sent);
+		if (headers == null) {
+			return CompletableFuture.completedFuture(this);
+		}
+		return RequestExecutor.getShared().submit(() -> {
+			doSave(headers, sent);
+			return this;
+		});
+	}
+
+	/**
+	 * Asynchronous version of {@link #destroy(DataCallback)}.
+	 * @return future completed with the removed items
+	 */
+	public CompletableFuture<Item[]> destroyAsync() {
+		Query query= new Query(collectionId);
+		query.equalTo("item_id", this.getString("item_id"));
+		return query.removeAsync();
+	}
+
+	/**
+	 * Saves the current changes, if there are any.
+	 */
+	void doSave() throws ClearBladeException {
+		JsonObject sent = this.changes.deepCopy();
+		RequestProperties headers = saveHeaders(sent);
+		if (headers != null) {
+			doSave(headers, sent);
+		}
+	}
+
+	/**
+	 * Executes a save request. Creating an Item merges the returned properties (such as the
+	 * new item_id) in to this Item; updating it keeps the local properties as they are.
+	 * @param sent the changes the request was built from
+	 */
+	void doSave(RequestProperties headers, JsonObject sent) throws ClearBladeException {
+		PlatformResponse<String> result = new RequestEngine(headers).execute();
 		if(result.isError()) {
-			throw new ClearBladeException("Call to Load failed:"+result.getData());
+			Util.logger("Save", "" + result.getData(), true);
+			throw new ClearBladeException("Call to Save failed:"+result.getData());
+		}
+		if(headers.getMethod().equals("POST")) {
+			applyCreated(convertResponseToJsonObject(result.getData()), sent);
 		} else {
-			this.json = convertJsonArrayToJsonObject(result.getData());
+			clearChanges(sent);
+		}
+	}
+
+	/**
+	 * Merges the properties returned for a newly created Item (such as its item_id) in to this
+	 * Item and marks it as saved.
+	 * @param created the object returned by the platform, or null
+	 * @param sent the changes at the time the Item was sent
+	 */
+	void applyCreated(JsonObject created, JsonObject sent) {
+		if(created != null) {
+			for (Entry<String, JsonElement> pairs : created.entrySet()) {
+				this.json.add(pairs.getKey(), pairs.getValue());
+			}
+		}
+		clearChanges(sent);
+	}
+
+	/**
+	 * Returns a copy of the changes not saved yet.
+	 */
+	JsonObject copyChanges() {
+		return this.changes.deepCopy();
+	}
+
+	/**
+	 * Returns true if the Item has not been saved to the platform yet.
+	 */
+	boolean isNew() {
+		String itemId = this.getString("item_id");
+		return itemId == null || itemId.isEmpty();
+	}
+
+	/**
+	 * Returns the JSON object in a save response, which is either the object itself or an array holding it.
+	 */
+	private JsonObject convertResponseToJsonObject(String json) {
+		try {
+			JsonElement element = JsonParser.parseString(json);
+			if(element.isJsonArray() && element.getAsJsonArray().size() > 0) {
+				element = element.getAsJsonArray().get(0);
+			}
+			return element.isJsonObject() ? element.getAsJsonObject() : null;
+		}catch(JsonSyntaxException mfe){
+			return null;
 		}
-		Item[] ret = {this};
-		return ret; 
 	}
 	
-	private void saveSetup(){
+	/**
+	 * Builds the save request: the whole Item for a new one, otherwise only the changed properties.
+	 * @param sent the changes to send
+	 * @return the request, or null if there is nothing to save
+	 */
+	RequestProperties saveHeaders(JsonObject sent){
 		RequestProperties headers = null;
-		if(this.getString("item_id") == null ) {
+		if(isNew()) {
 			headers = new RequestProperties.Builder().method("POST").endPoint(getEndPoint()).body(this.json).build();
-		} else {
+		} else if(sent.size() > 0) {
 			// Create Payload object
 			JsonObject payload = new JsonObject();
-			payload.addProperty("$set", this.changes.toString());
+			payload.add("$set", sent);
 			JsonObject query = new JsonObject();
 			query.addProperty("item_id", this.getString("item_id"));
-			payload.addProperty("query", query.toString());
+			payload.add("query", query);
 			headers = new RequestProperties.Builder().method("PUT").endPoint(getEndPoint()).body(payload).build();
 		}
 
-		request.setHeaders(headers);
+		return headers;
 	}
 
 	/**
@@ -475,10 +564,7 @@ public class Item {
 	 * @param value The value to store
 	 */
 	public void set(String property, boolean value){
-		if(this.hasProperty(property)) {
-			this.changes.addProperty(property, value);
-		}
-		this.json.addProperty(property, value);
+		record(property, new JsonPrimitive(value));
 	}
 
 	/**
@@ -487,10 +573,7 @@ public class Item {
 	 * @param value The value to store
 	 */
 	public void set(String property, double value) {
-		if(this.hasProperty(property)) {
-			this.changes.addProperty(property, value);
-		}
-		this.json.addProperty(property, value);
+		record(property, new JsonPrimitive(value));
 	}
 
 	/**
@@ -499,10 +582,7 @@ public class Item {
 	 * @param value The value to store
 	 */
 	public void set(String property, int value){
-		if(this.hasProperty(property)) {
-			this.changes.addProperty(property, value);
-		}
-		this.json.addProperty(property, value);
+		record(property, new JsonPrimitive(value));
 	}
 
 
@@ -512,10 +592,7 @@ public class Item {
 	 * @param value The value to store
 	 */
 	public void set(String property, long value) {
-		if(this.hasProperty(property)) {
-			this.changes.addProperty(property, value);
-		}
-		this.json.addProperty(property, value);
+		record(property, new JsonPrimitive(value));
 	}
 
 	/**
@@ -528,12 +605,8 @@ public class Item {
 		// Write the array as json
 		String arrayVal = new Gson().toJson(value);
 
-		if(this.hasProperty(property)) {
-			this.changes.addProperty(property, arrayVal);
-		}
-
 		// store it
-		this.json.addProperty(property, arrayVal);
+		record(property, new JsonPrimitive(arrayVal));
 	}
 
 	/**
@@ -542,10 +615,7 @@ public class Item {
 	 * @param value The value to store
 	 */
 	public void set(String property, String value) {
-		if(this.hasProperty(property)) {
-			this.changes.addProperty(property, value);
-		}
-		this.json.addProperty(property, value);
+		record(property, value == null ? JsonNull.INSTANCE : new JsonPrimitive(value));
 	}
 	/**
 	 * returns the Item as a JSON string
@@ -557,12 +627,14 @@ public class Item {
 
 	/**
 	 * Removes the given property and it's value from the Item
-	 * 
+	 * <p>For a saved Item the property is set to null on the next save.</p>
 	 * @param property name to store value under
 	 */
 	public void unset(String property) {
-		if(this.changes.has(property)){
+		if(isNew()) {
 			this.changes.remove(property);
+		} else if(this.json.has(property)) {
+			this.changes.add(property, JsonNull.INSTANCE);
 		}
 		this.json.remove(property);
 	}
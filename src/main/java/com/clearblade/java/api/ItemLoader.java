@@ -0,0 +1,116 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches individual item loads into multi-id queries.
+ * <p>
+ * The first load of a batch opens a short window; loads requested before it closes share one
+ * {@link Collection#loadAllAsync(java.util.Collection)} call. The batch is sent when the window
+ * closes, at once when it reaches the batch size, or when {@link #flush()} is called, so code
+ * resolving a list of references with one {@code load(id)} per reference makes one round trip
+ * instead of one per reference. Loading an id that is already in the open batch returns the
+ * same future.
+ * </p>
+ * <pre>
+ * ItemLoader loader = collection.loader();
+ * List&lt;CompletableFuture&lt;Item&gt;&gt; owners = new ArrayList&lt;&gt;();
+ * for (Item order : orders) {
+ *     owners.add(loader.load(order.getString("owner_id")));
+ * }
+ * </pre>
+ * <p>Loaded Items are not cached; a later batch queries them again.</p>
+ * @see Collection#loader()
+ */
+public class ItemLoader {
+
+	/** How long the first load of a batch waits for others to join it. */
+	static final long DEFAULT_WINDOW_MICROS = 2000;
+
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "clearblade-item-loader");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Collection collection;
+	private final int maxBatchSize;
+	private final long windowNanos;
+
+	private Map<String, CompletableFuture<Item>> pending = new LinkedHashMap<>();
+	private ScheduledFuture<?> scheduled;
+	private long batchCount;
+
+	ItemLoader(Collection collection, int maxBatchSize, long window, TimeUnit unit) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+		if (window < 0) {
+			throw new IllegalArgumentException("window must not be negative");
+		}
+		this.collection = collection;
+		this.maxBatchSize = maxBatchSize;
+		this.windowNanos = unit.toNanos(window);
+	}
+
+	/**
+	 * Queues the id for the open batch.
+	 * @param itemId the Id of the Item to retrieve
+	 * @return future completed with the Item, with null if there is no Item with that id, or
+	 * exceptionally with a ClearBladeException if the batch failed
+	 */
+	public synchronized CompletableFuture<Item> load(String itemId) {
+		CompletableFuture<Item> future = pending.get(itemId);
+		if (future != null) {
+			return future;
+		}
+		future = new CompletableFuture<Item>();
+		pending.put(itemId, future);
+		if (pending.size() >= maxBatchSize) {
+			flush();
+		} else if (scheduled == null) {
+			scheduled = TIMER.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+		}
+		return future;
+	}
+
+	/**
+	 * Sends the open batch now.
+	 */
+	public synchronized void flush() {
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		final Map<String, CompletableFuture<Item>> batch = pending;
+		pending = new LinkedHashMap<>();
+		batchCount++;
+
+		collection.loadAllAsync(new ArrayList<String>(batch.keySet())).whenComplete((items, error) -> {
+			for (Map.Entry<String, CompletableFuture<Item>> entry : batch.entrySet()) {
+				if (error != null) {
+					entry.getValue().completeExceptionally(error.getCause() != null ? error.getCause() : error);
+				} else {
+					entry.getValue().complete(items.get(entry.getKey()));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of batches sent so far.
+	 */
+	public synchronized long getBatchCount() {
+		return batchCount;
+	}
+}
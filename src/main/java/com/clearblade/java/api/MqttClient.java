@@ -1,11 +1,14 @@
 package com.clearblade.java.api;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.clearblade.java.api.auth.Auth;
+import com.clearblade.java.api.internal.StripedExecutor;
+import com.clearblade.java.api.internal.TopicTrie;
+import com.clearblade.java.api.internal.WindowedPublisher;
 import org.eclipse.paho.client.mqttv3.*;
 
 
@@ -19,6 +22,7 @@ public class MqttClient implements MqttCallbackExtended {
 	static final boolean AUTO_RECONNECT = true;
 	static final int MAX_INFLIGHT = 10;
 	static final MqttClientPersistence MQTT_CLIENT_PERSISTENCE = null;
+	static final int PUBLISH_QUEUE_CAPACITY = 1000;
 
 	@FunctionalInterface
 	public interface OnConnectionComplete {
@@ -30,6 +34,15 @@ public class MqttClient implements MqttCallbackExtended {
 	    void onConnectionLost(Throwable cause);
 	}
 
+	/**
+	 * Picks the ordering key of a message for parallel dispatch, for example a device id taken from
+	 * the topic. Messages with equal keys are delivered in order; returning null falls back to the topic.
+	 */
+	@FunctionalInterface
+	public interface MessageKeyExtractor {
+		Object extractKey(String topic, byte[] payload);
+	}
+
 	/**
 	 * The messaging URL this client is using.
 	 */
@@ -81,6 +94,42 @@ public class MqttClient implements MqttCallbackExtended {
 	 */
 	protected Map<String, Integer> qosByTopic;
 
+	/**
+	 * Topic filter trie mirroring callbackByTopic, used to find the callbacks of every subscription
+	 * (wildcards included) matching an incoming message.
+	 */
+	private final TopicTrie<MessageCallback> subscriptions = new TopicTrie<>();
+
+	/**
+	 * Hands a message to a matching callback; static so no lambda is allocated per message.
+	 */
+	private static final TopicTrie.Visitor<MessageCallback, byte[]> DELIVER = (callback, topic, payload) -> {
+		callback.done(topic, payload);
+		callback.done(topic, new String(payload));
+	};
+
+	/**
+	 * Worker stripes message callbacks run on when parallel dispatch is enabled; null delivers on
+	 * Paho's callback thread.
+	 */
+	private volatile StripedExecutor dispatcher;
+
+	/**
+	 * Ordering key used to pick a dispatch stripe; null orders by topic.
+	 */
+	private volatile MessageKeyExtractor dispatchKeyExtractor;
+
+	/**
+	 * Policy and queue size for publishAsync when the in-flight window is full.
+	 */
+	private PublishBackpressure publishBackpressure = PublishBackpressure.BLOCK;
+	private int publishQueueCapacity = PUBLISH_QUEUE_CAPACITY;
+
+	/**
+	 * Windowed publisher behind publishAsync, created on first use for the current connection.
+	 */
+	private WindowedPublisher asyncPublisher;
+
 	/**
 	 * Functional-interface callback for connection complete events.
 	 */
@@ -91,6 +140,12 @@ public class MqttClient implements MqttCallbackExtended {
 	 */
 	private OnConnectionLost onConnectionLost;
 
+	/**
+	 * Connection callbacks of SDK components watching this client, called after the user's ones.
+	 */
+	private final List<OnConnectionComplete> connectionCompleteObservers = new CopyOnWriteArrayList<>();
+	private final List<OnConnectionLost> connectionLostObservers = new CopyOnWriteArrayList<>();
+
 	/**
 	 * Creates a new MqttClient instance using the given identifier. URL and auth method will be obtained from the
 	 * global ClearBlade singleton.
@@ -181,6 +236,65 @@ public class MqttClient implements MqttCallbackExtended {
 		this.onConnectionLost = callback;
 	}
 
+	/**
+	 * Adds connection callbacks next to the ones set with {@link #onConnectionComplete} and
+	 * {@link #onConnectionLost}, for SDK components that must not replace the user's callbacks.
+	 */
+	void addConnectionObservers(OnConnectionComplete onComplete, OnConnectionLost onLost) {
+		connectionCompleteObservers.add(onComplete);
+		connectionLostObservers.add(onLost);
+	}
+
+	void removeConnectionObservers(OnConnectionComplete onComplete, OnConnectionLost onLost) {
+		connectionCompleteObservers.remove(onComplete);
+		connectionLostObservers.remove(onLost);
+	}
+
+	/**
+	 * Delivers messages on the given number of worker threads instead of Paho's callback thread, so
+	 * a slow MessageCallback no longer holds up other subscriptions or keep-alives. Messages on the
+	 * same topic are still delivered in order.
+	 * @param stripes number of worker threads
+	 */
+	public void enableParallelDispatch(int stripes) {
+		enableParallelDispatch(stripes, null);
+	}
+
+	/**
+	 * Delivers messages on the given number of worker threads instead of Paho's callback thread.
+	 * Messages with the same key, as returned by the key extractor, are delivered in order.
+	 * @param stripes number of worker threads
+	 * @param keyExtractor picks the ordering key of a message, or null to order by topic
+	 */
+	public void enableParallelDispatch(int stripes, MessageKeyExtractor keyExtractor) {
+		StripedExecutor previous = this.dispatcher;
+		this.dispatchKeyExtractor = keyExtractor;
+		this.dispatcher = new StripedExecutor("clearblade-mqtt-" + clientIdentifier, stripes);
+		if (previous != null) {
+			previous.shutdown();
+		}
+	}
+
+	/**
+	 * Goes back to delivering messages on Paho's callback thread. Messages already queued on the
+	 * worker threads are still delivered.
+	 */
+	public void disableParallelDispatch() {
+		StripedExecutor previous = this.dispatcher;
+		this.dispatcher = null;
+		if (previous != null) {
+			previous.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the worker stripes used for parallel dispatch (for queue depth metrics), or null when
+	 * messages are delivered on Paho's callback thread.
+	 */
+	public StripedExecutor getDispatcher() {
+		return dispatcher;
+	}
+
 	/**
 	 * Tries to connect to the MQTT service specified by the supplied parameters during object construction.
 	 * @throws ClearBladeException if connection fails.
@@ -256,6 +370,78 @@ public class MqttClient implements MqttCallbackExtended {
 		}
 	}
 
+	/**
+	 * Publishes the given message to the given topic without waiting for the broker's acknowledgement.
+	 * @param topic topic to publish to
+	 * @param message message to publish
+	 * @return future completed once the message has been delivered
+	 */
+	public CompletableFuture<Void> publishAsync(String topic, String message) {
+		return publishAsync(topic, message.getBytes(), defaultQualityOfService, false);
+	}
+
+	/**
+	 * Publishes the given message (bytes) to the given topic without waiting for the broker's
+	 * acknowledgement. Up to maxInflight publishes are outstanding at once; further messages queue
+	 * up and, once the queue is full, the publish backpressure policy applies. With
+	 * {@link PublishBackpressure#BLOCK}, a publish made from a message callback fails instead of
+	 * blocking, since the callback thread is the one that delivers the acknowledgements.
+	 * @param topic topic to publish to
+	 * @param payload message to publish
+	 * @param qos quality of service
+	 * @param retained flag to set whether topic message is retained
+	 * @return future completed once the message has been delivered, or completed exceptionally with
+	 *         a ClearBladeException if it failed, was rejected or was dropped
+	 * @see #setPublishBackpressure(PublishBackpressure, int)
+	 */
+	public CompletableFuture<Void> publishAsync(String topic, byte[] payload, int qos, boolean retained) {
+		WindowedPublisher publisher;
+		try {
+			publisher = getAsyncPublisher();
+		} catch (ClearBladeException e) {
+			CompletableFuture<Void> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		return publisher.publish(topic, payload, qos, retained);
+	}
+
+	/**
+	 * Sets what publishAsync does once maxInflight messages await acknowledgement and queueCapacity
+	 * more are queued. Applies to publishes made after the currently queued ones have drained.
+	 * BLOCK never blocks the MQTT callback thread: publishes made from a message callback fail
+	 * fast when the window and queue are full.
+	 * @param backpressure block the caller, fail the new message, or drop the oldest queued one
+	 * @param queueCapacity max number of messages queued behind the in-flight window
+	 */
+	public synchronized void setPublishBackpressure(PublishBackpressure backpressure, int queueCapacity) {
+		this.publishBackpressure = backpressure;
+		this.publishQueueCapacity = queueCapacity;
+		this.asyncPublisher = null;
+	}
+
+	/**
+	 * Returns the windowed publisher used by publishAsync (for in-flight and queue metrics).
+	 * @throws ClearBladeException if the client is not connected
+	 */
+	public synchronized WindowedPublisher getAsyncPublisher() throws ClearBladeException {
+		IMqttAsyncClient async = asyncClient();
+		if (asyncPublisher == null || asyncPublisher.getClient() != async) {
+			asyncPublisher = new WindowedPublisher(async, maxInflight, publishQueueCapacity, publishBackpressure);
+		}
+		return asyncPublisher;
+	}
+
+	/**
+	 * package-protected method returning the Paho async client underneath the blocking one.
+	 */
+	IMqttAsyncClient asyncClient() throws ClearBladeException {
+		if (!(mqttClient instanceof PahoClient)) {
+			throw new ClearBladeException("(MqttClient) not connected");
+		}
+		return ((PahoClient) mqttClient).getAsyncClient();
+	}
+
 	/**
 	 * Subscribes to the given topic using the given message callback for handling messages.
 	 * @param topic topic to subscribe to
@@ -278,6 +464,7 @@ public class MqttClient implements MqttCallbackExtended {
 			mqttClient.subscribe(topic, qos);
 			callbackByTopic.put(topic, callback);
 			qosByTopic.put(topic, qos);
+			subscriptions.put(topic, callback);
 
 		} catch (MqttException e) {
 			String errmsg = String.format("(MqttClient) subscribe error: %s", e.getMessage());
@@ -312,6 +499,7 @@ public class MqttClient implements MqttCallbackExtended {
 			mqttClient.unsubscribe(topic);
 			callbackByTopic.remove(topic);
 			qosByTopic.remove(topic);
+			subscriptions.remove(topic);
 			return true;
 
 		} catch (MqttException e) {
@@ -331,6 +519,7 @@ public class MqttClient implements MqttCallbackExtended {
 		resubscribe();
 
 		if (this.onConnectionComplete != null) { this.onConnectionComplete.onConnectionComplete(reconnected, url); }
+		for (OnConnectionComplete observer : connectionCompleteObservers) { observer.onConnectionComplete(reconnected, url); }
 	}
 
 	@Override
@@ -340,6 +529,7 @@ public class MqttClient implements MqttCallbackExtended {
 		System.out.println(msg);
 
 		if (this.onConnectionLost != null) { this.onConnectionLost.onConnectionLost(arg0); }
+		for (OnConnectionLost observer : connectionLostObservers) { observer.onConnectionLost(arg0); }
 	}
 
 	@Override
@@ -347,37 +537,46 @@ public class MqttClient implements MqttCallbackExtended {
 
 		byte[] payload = message.getPayload();
 
-		MessageCallback callback = callbackByTopic.get(topic);
+		StripedExecutor executor = this.dispatcher;
+		if (executor == null) {
+			deliver(topic, payload);
+			return;
+		}
 
-		if (callback != null) {
-			callback.done(topic, payload);
-			callback.done(topic, new String(payload));
-		} else if (callbackByTopic.size() > 0) { //Check for wildcards
+		Object key = null;
+		MessageKeyExtractor keyExtractor = this.dispatchKeyExtractor;
+		if (keyExtractor != null) {
+			try {
+				key = keyExtractor.extractKey(topic, payload);
+			} catch (RuntimeException e) {
+				String errmsg = String.format("(MqttClient) key extractor error for topic %s: %s", topic, e.getMessage());
+				System.out.println(errmsg);
+			}
+		}
 
-			Set<String> keys = callbackByTopic.keySet();
-			List<String> newKeys = new ArrayList<>();
-			keys.forEach(key -> {
-				String newKey = key.replace("+", ".*").replace("#", ".*");//replace mqtt wildcards with regex
-				newKeys.add(newKey);
+		try {
+			executor.execute(key != null ? key : topic, () -> {
+				try {
+					deliver(topic, payload);
+				} catch (RuntimeException e) {
+					String errmsg = String.format("(MqttClient) callback error for topic %s: %s", topic, e.getMessage());
+					System.out.println(errmsg);
+				}
 			});
+		} catch (RejectedExecutionException e) {
+			// parallel dispatch was switched off while this message arrived
+			deliver(topic, payload);
+		}
+	}
 
-			List<String> allMatches = new ArrayList<>();
- 			newKeys.forEach(key -> {
-				Pattern pattern = Pattern.compile(key);
+	/**
+	 * Hands the message to every callback whose subscription matches the topic.
+	 */
+	private void deliver(String topic, byte[] payload) {
 
-				if (topic.matches(key)) {
-					List<String> matching = keys.stream()
-							.filter(pattern.asPredicate())
-							.collect(Collectors.toList());//check key set against keys with regex
-					allMatches.addAll(matching);
-				}
-			});
-			if (allMatches.size() == 1) {//if there's more than one match, there's a problem
-				callback = callbackByTopic.get(allMatches.get(0));
-				callback.done(topic, payload);
-				callback.done(topic, new String(payload));
-			}
-		} else {
+		int delivered = subscriptions.match(topic, DELIVER, payload);
+
+		if (delivered == 0) {
 		    String errmsg = String.format("(MqttClient) could not handle message for topic: %s", topic);
 		    System.out.println(errmsg);
 		}
@@ -408,7 +607,7 @@ public class MqttClient implements MqttCallbackExtended {
 		options.setMaxInflight(maxInflight);
 
 		try {
-			org.eclipse.paho.client.mqttv3.MqttClient result = new org.eclipse.paho.client.mqttv3.MqttClient(url, clientIdentifier, MQTT_CLIENT_PERSISTENCE);
+			org.eclipse.paho.client.mqttv3.MqttClient result = new PahoClient(url, clientIdentifier, MQTT_CLIENT_PERSISTENCE);
 			result.setCallback(this);
 			result.connect(options);
 			return result;
@@ -418,5 +617,19 @@ public class MqttClient implements MqttCallbackExtended {
 			throw new ClearBladeException(errmsg, e);
 		}
 	}
-}
 
+	/**
+	 * Paho's blocking client wraps an async client; this exposes it so publishAsync can share the
+	 * connection.
+	 */
+	static class PahoClient extends org.eclipse.paho.client.mqttv3.MqttClient {
+
+		PahoClient(String serverURI, String clientId, MqttClientPersistence persistence) throws MqttException {
+			super(serverURI, clientId, persistence);
+		}
+
+		IMqttAsyncClient getAsyncClient() {
+			return aClient;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.clearblade.java.api.internal.RequestExecutor;
+
+/**
+ * Fetches the pages of one or more queries concurrently and hands their items out as the pages
+ * complete.
+ * <p>
+ * The first page of every partition is requested up front; the total it reports tells which other
+ * pages exist, and those are queued too. At most {@code parallelism} pages are in flight at once.
+ * Items come out in page completion order, not in collection order. A partition whose total is
+ * not reported is paged sequentially until an empty page. A scan consumed on one of the request
+ * executor's own threads fetches its pages one at a time on that thread.
+ * </p>
+ * @see Collection#scan(Query, ScanOptions, java.util.function.Consumer)
+ */
+class ParallelScan implements Iterator<Item>, AutoCloseable {
+
+	private static final class PageTask {
+		final Query query;
+		final int pageNum;
+
+		PageTask(Query query, int pageNum) {
+			this.query = query;
+			this.pageNum = pageNum;
+		}
+	}
+
+	private static final class PageResult {
+		final PageTask task;
+		final CompletableFuture<QueryResponse> future;
+		final QueryResponse response;
+		final Throwable error;
+
+		PageResult(PageTask task, CompletableFuture<QueryResponse> future, QueryResponse response, Throwable error) {
+			this.task = task;
+			this.future = future;
+			this.response = response;
+			this.error = error;
+		}
+	}
+
+	private final int pageSize;
+	private final int parallelism;
+
+	private final ArrayDeque<PageTask> todo = new ArrayDeque<>();
+	private final LinkedBlockingQueue<PageResult> done = new LinkedBlockingQueue<>();
+	private final Set<CompletableFuture<QueryResponse>> inFlight = new HashSet<>();
+
+	private Item[] page = new Item[0];
+	private int index;
+	private long totalCount;
+	private int pagesFetched;
+	private boolean closed;
+
+	ParallelScan(List<Query> partitions, int pageSize, int parallelism) {
+		this.pageSize = pageSize;
+		this.parallelism = parallelism;
+		for (Query partition : partitions) {
+			todo.add(new PageTask(partition, 1));
+		}
+	}
+
+	/**
+	 * Builds the scan for the given options: either pages of the query itself, or one range of
+	 * the partition column per partition.
+	 */
+	static ParallelScan of(Query query, ScanOptions options) {
+		List<Query> partitions = new ArrayList<>();
+		String column = options.getPartitionColumn();
+		if (column == null) {
+			partitions.add(query);
+		} else {
+			Object[] boundaries = options.getPartitionBoundaries();
+			Object lower = null;
+			for (Object upper : boundaries) {
+				partitions.add(query.withRange(column, lower, upper));
+				lower = upper;
+			}
+			partitions.add(query.withRange(column, lower, null));
+		}
+		return new ParallelScan(partitions, options.getPageSize(), options.getParallelism());
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (index >= page.length) {
+			if (closed) {
+				return false;
+			}
+			fill();
+			if (inFlight.isEmpty()) {
+				return false;
+			}
+			nextPage();
+		}
+		return true;
+	}
+
+	@Override
+	public Item next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page[index++];
+	}
+
+	private void fill() {
+		// on a worker of the request executor, pages queued behind it might never run: fetch here, one at a time
+		boolean inline = RequestExecutor.getShared().isWorkerThread();
+		while (inFlight.size() < (inline ? 1 : parallelism) && !todo.isEmpty()) {
+			final PageTask task = todo.poll();
+			Callable<QueryResponse> fetch = () -> task.query.fetchPage(task.pageNum, pageSize);
+			final CompletableFuture<QueryResponse> future = inline ? RequestExecutor.runInline(fetch) : RequestExecutor.getShared().submit(fetch);
+			inFlight.add(future);
+			future.whenComplete((resp, error) -> done.add(new PageResult(task, future, resp, error)));
+		}
+	}
+
+	private void nextPage() {
+		PageResult result;
+		try {
+			result = done.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new RuntimeException("Scan interrupted", e);
+		}
+		inFlight.remove(result.future);
+
+		if (result.error != null) {
+			close();
+			throw new RuntimeException("Call to fetch failed: " + result.error.getMessage(), result.error);
+		}
+
+		QueryResponse resp = result.response;
+		Item[] items = resp.getDataItems() != null ? resp.getDataItems() : new Item[0];
+		pagesFetched++;
+
+		int total = resp.getTotalCount();
+		if (result.task.pageNum == 1 && total > 0) {
+			totalCount += total;
+			int lastPageNum = (total + pageSize - 1) / pageSize;
+			for (int pageNum = 2; pageNum <= lastPageNum; pageNum++) {
+				todo.add(new PageTask(result.task.query, pageNum));
+			}
+		} else if (total <= 0 && items.length > 0) {
+			// no total reported: keep paging this partition until an empty page
+			todo.add(new PageTask(result.task.query, result.task.pageNum + 1));
+		}
+
+		page = items;
+		index = 0;
+	}
+
+	/**
+	 * Returns the sum of the totals reported by the partitions whose first page has arrived.
+	 */
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public int getPagesFetched() {
+		return pagesFetched;
+	}
+
+	/**
+	 * Returns a sequential stream over the remaining items; closing the stream closes the scan.
+	 */
+	public Stream<Item> stream() {
+		Spliterator<Item> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	/**
+	 * Abandons the pages still queued or in flight.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		todo.clear();
+		for (CompletableFuture<QueryResponse> future : inFlight) {
+			future.cancel(false);
+		}
+		inFlight.clear();
+	}
+}
@@ -0,0 +1,25 @@
+package com.clearblade.java.api;
+
+/**
+ * What {@link MqttClient#publishAsync(String, byte[], int, boolean)} does when the in-flight window
+ * and the pending queue are both full.
+ */
+public enum PublishBackpressure {
+
+	/**
+	 * Blocks the publishing thread until a slot frees up. Publishes made from a message callback run
+	 * on the MQTT callback thread, which delivers the acknowledgements; they fail fast instead.
+	 */
+	BLOCK,
+
+	/**
+	 * Fails the new publish right away with a ClearBladeException.
+	 */
+	FAIL_FAST,
+
+	/**
+	 * Drops the oldest message still waiting in the pending queue, failing its future, and queues
+	 * the new one. Suits telemetry where only recent values matter.
+	 */
+	DROP_OLDEST
+}
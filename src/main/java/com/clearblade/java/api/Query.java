@@ -6,10 +6,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import com.clearblade.java.api.internal.PlatformResponse;
 import com.clearblade.java.api.internal.RequestEngine;
+import com.clearblade.java.api.internal.RequestExecutor;
 import com.clearblade.java.api.internal.RequestProperties;
+import com.clearblade.java.api.transport.ResponseBodyHandler;
 import com.google.gson.*;
 
 
@@ -325,22 +329,6 @@ public class Query {
 	 * @param callback - a DataCallback to be called upon success/failure of the query. 
 	 */
 	public void fetch(final DataCallback callback) {
-//		DataTask asyncFetch = new DataTask(new PlatformCallback(this, callback) {
-//			@Override
-//			public void done(String response) {
-//				QueryResponse resp = new QueryResponse();
-//				resp.setDataItems(parseItemArray(response));
-//				callback.done(resp);
-//			}
-//
-//			@Override
-//			public void error(ClearBladeException exception) {
-//				callback.error(exception);
-//			}
-//
-//		});
-//		asyncFetch.execute(request);
-
         try {
             QueryResponse resp = doFetch();
             callback.done(resp);
@@ -355,31 +343,140 @@ public class Query {
 		QueryResponse resp = doFetch();
 		return resp.getDataItems();
 	}
+
+	/**
+	 * Asynchronous version of {@link #fetch(DataCallback)}. The query runs on the shared request
+	 * executor and the returned future completes with the QueryResponse, or exceptionally with a
+	 * ClearBladeException.
+	 * <pre>
+	 * query.fetchAsync().thenAccept(resp -&gt; {
+	 *     //your logic here
+	 * });
+	 * </pre>
+	 * @return future completed with the query results
+	 */
+	public CompletableFuture<QueryResponse> fetchAsync() {
+		final RequestProperties headers = fetchHeaders();
+		return RequestExecutor.getShared().submit(() -> executeFetch(headers));
+	}
+
+	/**
+	 * Runs the query asynchronously and hands the raw response body, a page of
+	 * <code>{"TOTAL":..,"DATA":[..]}</code>, to the handler as it streams in. Suits large pages that
+	 * are exported or filtered on the fly rather than turned into Items.
+	 * <pre>
+	 * query.fetchAsync(ResponseBodyHandler.ofFile(Paths.get("export.json")));
+	 * </pre>
+	 * @param handler turns the response body into the result
+	 * @return future completed with the handler's result, or exceptionally with a ClearBladeException
+	 */
+	public <T> CompletableFuture<T> fetchAsync(ResponseBodyHandler<T> handler) {
+		final RequestProperties headers = fetchHeaders();
+		return RequestExecutor.getShared().submit(() -> {
+			PlatformResponse<T> result = new RequestEngine(headers).execute(handler);
+			if(result.isError()) {
+				Util.logger("Load", result.getErrorMessage(), true);
+				throw new ClearBladeException(String.format("Call to fetch failed: %s", result.getErrorMessage()));
+			}
+			return result.getData();
+		});
+	}
 	
 	protected QueryResponse doFetch() throws ClearBladeException {
+		return executeFetch(fetchHeaders());
+	}
+
+	/**
+	 * Runs the fetch with its own RequestEngine so concurrent fetches do not share request state.
+	 * The response is parsed in a single pass as it streams in.
+	 */
+	private QueryResponse executeFetch(RequestProperties headers) throws ClearBladeException {
+		return executeFetch(headers, getCollectionId(), byName);
+	}
+
+	static QueryResponse executeFetch(RequestProperties headers, final String collectionId, final boolean byName) throws ClearBladeException {
 
-		fetchSetup();
+		RequestEngine request = new RequestEngine(headers);
 
-		PlatformResponse<String> result = request.execute();
+		// items are built while the body streams in, without an intermediate String or JsonArray;
+		// callers sharing a single-flight fetch get their own copy of the items
+		PlatformResponse<QueryResponse> result = request.executeShared("query " + collectionId + " " + byName,
+				body -> QueryResponse.parseStream(body, collectionId, byName),
+				page -> page.copy(collectionId, byName));
 
 		if(result.isError()) {
-			Util.logger("Load", result.getData(), true);
-			String errmsg = String.format("Call to fetch failed: %s", result.getData());
+			Util.logger("Load", result.getErrorMessage(), true);
+			String errmsg = String.format("Call to fetch failed: %s", result.getErrorMessage());
 			throw new ClearBladeException(errmsg);
 
 		} else {
-			QueryResponse resp = QueryResponse.parseJson(result.getData());
-			resp.setDataItems(parseItemArray(resp.getData().toString()));
-			return resp;
+			return result.getData();
 		}
 	}
 
 	protected void fetchSetup(){
+		request.setHeaders(fetchHeaders());
+	}
+
+	private RequestProperties fetchHeaders(){
 		String queryParam = getFetchURLParameter();
-		RequestProperties headers;
-		headers = new RequestProperties.Builder().method("GET").endPoint(getEndPoint()+ queryParam).build();
-		//System.out.println(headers.getUri());
-		request.setHeaders(headers);
+		return new RequestProperties.Builder().method("GET").endPoint(getEndPoint()+ queryParam).build();
+	}
+
+	/**
+	 * Fetches one page of the results, leaving the page settings of this query untouched.
+	 * @param pageNum page to fetch, starting at 1
+	 * @param pageSize items per page
+	 */
+	QueryResponse fetchPage(int pageNum, int pageSize) throws ClearBladeException {
+		String queryParam = getFetchURLParameter(pageNum, pageSize);
+		return executeFetch(new RequestProperties.Builder().method("GET").endPoint(getEndPoint()+ queryParam).build());
+	}
+
+	/**
+	 * Returns an iterator over every item matching the query, fetching pages of the given size as
+	 * it goes. The next page is requested in the background while the current one is consumed.
+	 * <pre>
+	 * try (QueryIterator items = query.iterator(500)) {
+	 *     while (items.hasNext()) {
+	 *         //your logic here
+	 *     }
+	 * }
+	 * </pre>
+	 * @param pageSize items per request
+	 * @return iterator that should be closed if not read to the end
+	 */
+	public QueryIterator iterator(int pageSize) {
+		return iterator(pageSize, QueryIterator.DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 * Same as {@link #iterator(int)}, with the number of pages to request ahead of the one being
+	 * consumed (0 fetches each page only when it is needed).
+	 */
+	public QueryIterator iterator(int pageSize, int readAhead) {
+		return new QueryIterator(this, pageSize, readAhead);
+	}
+
+	/**
+	 * Returns a lazy stream over every item matching the query; see {@link #iterator(int)}.
+	 * Closing the stream stops any prefetch in progress.
+	 * <pre>
+	 * try (Stream&lt;Item&gt; items = query.stream(500)) {
+	 *     items.filter(...).forEach(...);
+	 * }
+	 * </pre>
+	 * @param pageSize items per request
+	 */
+	public Stream<Item> stream(int pageSize) {
+		return stream(pageSize, QueryIterator.DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 * Same as {@link #stream(int)}, with the number of pages to request ahead of the one being consumed.
+	 */
+	public Stream<Item> stream(int pageSize, int readAhead) {
+		return iterator(pageSize, readAhead).stream();
 	}
 
 //	public Item[] fetch(){
@@ -387,32 +484,44 @@ public class Query {
 //	}
 	
 	protected String filtersAsJsonString() {
-		ArrayList<QueryObj> temp = queryObjs;
-		if (queryObjs.size()==0) {
-			//we havent done an or, so just build up an array of the queryObj
-			//we can use the queryObjs list becuase the user may continue to build on the Query
-			//for future use
-			temp = new ArrayList<QueryObj>();
+		if (!hasFilters()) {
+			return null;
 		}
-		temp.add(queryObj);
-		String param = "";//gson.toJson(temp);
-		Iterator<QueryObj> it = temp.iterator();
-		while(it.hasNext())
-		{
-		    QueryObj obj = it.next();
-		    param = param+"["+stringifyQuery(obj);
-		    if (it.hasNext()){
-		    	//there is an or
-		    	param=param+"],";
-		    }
+		QueryWriter out = new QueryWriter();
+		writeFilters(out);
+		return out.toString();
+	}
+
+	private boolean hasFilters() {
+		return !queryObjs.isEmpty() || !isEmpty(queryObj);
+	}
+
+	/**
+	 * Writes the FILTERS array: one inner array per or-branch, the current clauses last. Empty
+	 * current clauses are left out once there are or-branches, as an empty branch matches everything.
+	 */
+	private void writeFilters(QueryWriter out) {
+		out.append('[');
+		boolean first = true;
+		for (QueryObj obj : queryObjs) {
+			//there is an or
+			if (!first) {
+				out.append(',');
+			}
+			out.append('[');
+			writeQueryObj(out, obj);
+			out.append(']');
+			first = false;
 		}
-		if (param.length()>1) {
-			param="["+param+"]]";
-		}else{
-			return null;
+		if (first || !isEmpty(queryObj)) {
+			if (!first) {
+				out.append(',');
+			}
+			out.append('[');
+			writeQueryObj(out, queryObj);
+			out.append(']');
 		}
-		
-		return param;
+		out.append(']');
 	}
 	
 	/**
@@ -420,61 +529,88 @@ public class Query {
 	 * @return String
 	 */
 	public String getFetchURLParameter(){
-		String param = "{";
+		return getFetchURLParameter(this.pageNum, this.pageSize);
+	}
+
+	/**
+	 * Same as {@link #getFetchURLParameter()} but for the given page instead of the one set on this query.
+	 * @param pageNum page to fetch, starting at 1; negative leaves it out (0 returns all data)
+	 * @param pageSize items per page; negative leaves it out
+	 */
+	String getFetchURLParameter(int pageNum, int pageSize){
+		QueryWriter out = new QueryWriter();
+		writeFetchQuery(out, pageNum, pageSize);
+		return "?query=" + urlEncode(out.toString());
+	}
+
+	/**
+	 * Writes the query object sent with a fetch.
+	 */
+	void writeFetchQuery(QueryWriter out, int pageNum, int pageSize) {
+		out.append('{');
 		//add filters to url param
-		if(filtersAsJsonString() != null){
-			param += "\"FILTERS\":" + filtersAsJsonString();
+		if(hasFilters()){
+			out.append("\"FILTERS\":");
+			writeFilters(out);
+			//if defined add page num
+			if(pageNum >= 0){
+				out.append(",\"PAGENUM\":").append(Integer.toString(pageNum));
+			}
 		}else{
-			//no queries specified, so set pagenum as 0 to get all data
-			param += "\"PAGENUM\":" + 0; 
-		}
-		//if defined add page num
-		if(this.pageNum >= 0){
-			param += ",\"PAGENUM\":" + this.pageNum;
+			//no queries specified, so pagenum 0 gets all data
+			out.append("\"PAGENUM\":").append(Integer.toString(Math.max(pageNum, 0)));
 		}
 		//if defined add page size
-		if(this.pageSize >= 0){
-			param += ",\"PAGESIZE\":" + this.pageSize;
+		if(pageSize >= 0){
+			out.append(",\"PAGESIZE\":").append(Integer.toString(pageSize));
 		}
 		//TODO: if defined add sort
-		param += "}";
-		try {
-			param = URLEncoder.encode(param, "UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		}
-		if (param.length()>0){
-			param = "?query="+param;
-		}
-		return param;
+		out.append('}');
+	}
+
+	boolean isByName() {
+		return byName;
+	}
+
+	int getPageNum() {
+		return pageNum;
+	}
+
+	int getPageSize() {
+		return pageSize;
 	}
 	
 	protected String queryAsJsonString() {
+		QueryWriter out = new QueryWriter();
+		writeQuery(out);
+		return out.toString();
+	}
+
+	/**
+	 * Writes the query used by update and remove.
+	 */
+	void writeQuery(QueryWriter out) {
 		ArrayList<QueryObj> temp = queryObjs;
 		if (queryObjs.size()==0) {
 			//we havent done an or, so just build up an array of the queryObj
-			//we can use the queryObjs list becuase the user may continue to build on the Query
-			//for future use
 			temp = new ArrayList<QueryObj>();
 			temp.add(queryObj);
 		}
-		String param = "";//gson.toJson(temp);
+		if (temp.size() == 1 && isEmpty(temp.get(0))) {
+			return;
+		}
+		//add extra brackets for bug in platform
+		out.append("[[");
 		Iterator<QueryObj> it = temp.iterator();
 		while(it.hasNext())
 		{
-		    QueryObj obj = it.next();
-		    param = param+stringifyQuery(obj);
+		    writeQueryObj(out, it.next());
 		    if (it.hasNext()){
 		    	//there is an or
-		    	param=param+",";
+		    	out.append(',');
 		    }
 		}
-		if (param.length()>0) {
-			param="["+param+"]";
-			//add extra brackets for bug in platform
-			param = "["+param+"]";
-		}
-		return param;
+		out.append("]]");
 	}
 	
 	/**
@@ -482,51 +618,67 @@ public class Query {
 	 * @return String
 	 */
 	public String getURLParameter(){
-		String param = queryAsJsonString();
-		try {
-			param = URLEncoder.encode(param, "UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		}
+		String param = urlEncode(queryAsJsonString());
 		if (param.length()>0){
 			param = "?query="+param;
 		}
 		return param;
 	}
+
+	static String urlEncode(String param) {
+		try {
+			return URLEncoder.encode(param, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean isEmpty(QueryObj obj) {
+		return isEmpty(obj.EQ) && isEmpty(obj.GT) && isEmpty(obj.GTE)
+				&& isEmpty(obj.LT) && isEmpty(obj.LTE) && isEmpty(obj.NEQ);
+	}
+
+	private static boolean isEmpty(ArrayList<FieldValue> params) {
+		return params == null || params.isEmpty();
+	}
 	
-	private String stringifyQuery(QueryObj obj){
-		String ret = "";
-		ret= ret + stringifyParam("EQ", obj.EQ);
-		ret= ret + stringifyParam("GT", obj.GT);
-		ret= ret + stringifyParam("GTE", obj.GTE);
-		ret= ret + stringifyParam("LT", obj.LT);
-		ret= ret + stringifyParam("LTE", obj.LTE);
-		ret= ret + stringifyParam("NEQ", obj.NEQ);
-		if (ret.length()>0) {
-			ret = "{"+ ret+ "}";
+	private void writeQueryObj(QueryWriter out, QueryObj obj){
+		if (isEmpty(obj)) {
+			return;
 		}
-		return ret;
+		out.append('{');
+		boolean first = true;
+		first = writeParam(out, "EQ", obj.EQ, first);
+		first = writeParam(out, "GT", obj.GT, first);
+		first = writeParam(out, "GTE", obj.GTE, first);
+		first = writeParam(out, "LT", obj.LT, first);
+		first = writeParam(out, "LTE", obj.LTE, first);
+		writeParam(out, "NEQ", obj.NEQ, first);
+		out.append('}');
 	}
 	
-	private String stringifyParam(String paramType, ArrayList<FieldValue> params){
-		if (params == null || params.size()==0){return "";}
+	/**
+	 * Writes "TYPE":[{"field":value},...] with the values as escaped JSON.
+	 * @return whether nothing has been written for the object yet
+	 */
+	private boolean writeParam(QueryWriter out, String paramType, ArrayList<FieldValue> params, boolean first){
+		if (isEmpty(params)){return first;}
 		
-		String ret="\""+paramType+"\":[";
+		if (!first) {
+			out.append(',');
+		}
+		out.append('"').append(paramType).append("\":[");
 		Iterator<FieldValue> iter = params.iterator();
 		while(iter.hasNext()){
-			FieldValue fv = (FieldValue) iter.next();
-			Class valueClass = fv.value.getClass();
-			if(valueClass.getName().toLowerCase().equalsIgnoreCase("java.lang.string")){
-				ret = ret + "{\""+fv.field+"\":\""+fv.value+"\"}";
-			}else if(valueClass.getName().toLowerCase().equalsIgnoreCase("java.lang.integer")){
-				ret = ret + "{\""+fv.field+"\":"+Integer.toString((Integer) fv.value)+"}";
-			}
+			FieldValue fv = iter.next();
+			out.append('{').string(fv.field).append(':').value(fv.value).append('}');
 			if (iter.hasNext()){
-				ret=ret+",";
+				out.append(',');
 			}
 		}
-		ret=ret+"]";
-		return ret;
+		out.append(']');
+		return false;
 	}
 	
 	private HashMap<String,Object> changes = new HashMap<String,Object>();
@@ -570,82 +722,69 @@ public class Query {
 	 * @param callback
 	 */
 	public void update(final DataCallback callback) {
-		updateSetup();
-//		DataTask asyncFetch = new DataTask(new PlatformCallback(this, callback){
-//
-//			@Override
-//			public void done(String response) {
-//				Item[] ret = parseItemArray(response);
-//				callback.done(ret);
-//			}
-//
-//			@Override
-//			public void error(ClearBladeException exception) {
-//				callback.error(exception);
-//			}
-//			
-//		});
-//		asyncFetch.execute(request);
+		RequestProperties headers = updateHeaders();
 		changes = new HashMap<String,Object>();
-		
-		PlatformResponse result= request.execute();
-		if(result.isError()) {
-			Util.logger("Load", "" + result.getData(), true);
-			callback.error(new ClearBladeException("Call to fetch failed:"+result.getData()));
-		} else {
-			Item[] ret = parseItemArray((String) result.getData());
-			callback.done(ret);
+
+		try {
+			callback.done(executeForItems(headers, "Call to fetch failed:"));
+		} catch (ClearBladeException e) {
+			callback.error(e);
 		}
-		
-		
 	}
 	
 	public Item[] updateSync() throws ClearBladeException{
-		updateSetup();
-		PlatformResponse resp = request.execute();
-		Item[] ret;
-		if(resp.isError()) {
-			throw new ClearBladeException("Call to fetch failed:"+resp.getData());
-		} else {
-			ret = parseItemArray((String) resp.getData());
-		}
-		return ret;
+		return doUpdate();
+	}
+
+	/**
+	 * Asynchronous version of {@link #update(DataCallback)}. The change set is captured when
+	 * this method is called.
+	 * @return future completed with the updated items
+	 */
+	public CompletableFuture<Item[]> updateAsync() {
+		final RequestProperties headers = updateHeaders();
+		return RequestExecutor.getShared().submit(() -> executeForItems(headers, "Call to fetch failed:"));
+	}
+
+	private Item[] doUpdate() throws ClearBladeException {
+		return executeForItems(updateHeaders(), "Call to fetch failed:");
 	}
 	
-	private void updateSetup(){
+	private RequestProperties updateHeaders(){
 		JsonObject payload = new JsonObject();
-		payload.addProperty("$set", changeSetMapAsJsonString());
+		payload.add("$set", changeSetAsJsonObject());
 		//JsonObject query = new JsonObject();
 		JsonElement toObject = new JsonParser().parse(queryAsJsonString());
 		payload.add("query", toObject);
-		String endPoint = "";
 		
-		RequestProperties headers = new RequestProperties.Builder().method("PUT").endPoint(getEndPoint()).body(payload).build();
-		request.setHeaders(headers);
+		return new RequestProperties.Builder().method("PUT").endPoint(getEndPoint()).body(payload).build();
+	}
+
+	/**
+	 * Runs the request with its own RequestEngine and parses the response as an item array.
+	 */
+	private Item[] executeForItems(RequestProperties headers, String errPrefix) throws ClearBladeException {
+		PlatformResponse<String> result = new RequestEngine(headers).execute();
+		if(result.isError()) {
+			Util.logger("Load", "" + result.getData(), true);
+			throw new ClearBladeException(errPrefix + result.getData());
+		}
+		return parseItemArray(result.getData());
 	}
 	
-	private String changeSetMapAsJsonString(){
-		
-		String jsonString = "{";
-		
+	private JsonObject changeSetAsJsonObject(){
+		JsonObject changeSet = new JsonObject();
 		for (Map.Entry<String, Object> entry : changes.entrySet()) {
-		    String key = entry.getKey();
 		    Object value = entry.getValue();
-		    if(value.getClass().getName().equalsIgnoreCase("java.lang.string")){
-		    	jsonString += "\"" + key + "\":" + "\"" + value + "\"";
-		    }else if(value.getClass().getName().equalsIgnoreCase("java.lang.integer")){
-		    	jsonString += "\"" + key + "\":" + value.toString();
+		    if(value instanceof String){
+		    	changeSet.addProperty(entry.getKey(), (String) value);
+		    }else if(value instanceof Number){
+		    	changeSet.addProperty(entry.getKey(), (Number) value);
+		    }else if(value instanceof Boolean){
+		    	changeSet.addProperty(entry.getKey(), (Boolean) value);
 		    }
-		    jsonString += ",";
 		}
-		
-		//remove trailing comma
-		jsonString = jsonString.substring(0, jsonString.length()-1);
-		
-		jsonString += "}";
-		
-		return jsonString;
-		
+		return changeSet;
 	}
 	
 	/**
@@ -667,41 +806,27 @@ public class Query {
 	 * @param callback
 	 */
 	public void remove(final DataCallback callback)  {
-
-		String queryParam = getURLParameter();
-		String endPoint = "";
-		
-		RequestProperties headers = new RequestProperties.Builder().method("DELETE").endPoint(getEndPoint()+ queryParam).build();
-		request.setHeaders(headers);
-		
-//		DataTask asyncFetch = new DataTask(new PlatformCallback(this, callback){
-//
-//			@Override
-//			public void done(String response) {
-//				Item[] ret = parseItemArray(response);
-//				callback.done(ret);
-//			}
-//
-//			@Override
-//			public void error(ClearBladeException exception) {
-//				callback.error(exception);
-//			}
-//			
-//		});
-//		asyncFetch.execute(request);
-		
-		PlatformResponse result= request.execute();
-		if(result.isError()) {
-			Util.logger("Load", "" + result.getData(), true);
-			callback.error(new ClearBladeException("Call to remove failed:"+result.getData()));
-		} else {
-			Item[] ret = parseItemArray((String) result.getData());
-			callback.done(ret);
-			
+		try {
+			callback.done(doRemove());
+		} catch (ClearBladeException e) {
+			callback.error(e);
 		}
 	}
+
+	/**
+	 * Asynchronous version of {@link #remove(DataCallback)}.
+	 * @return future completed with the removed items
+	 */
+	public CompletableFuture<Item[]> removeAsync() {
+		final RequestProperties headers = removeHeaders();
+		return RequestExecutor.getShared().submit(() -> executeForItems(headers, "Call to remove failed:"));
+	}
+
+	private Item[] doRemove() throws ClearBladeException {
+		return executeForItems(removeHeaders(), "Call to remove failed:");
+	}
 	
-	private String getEndPoint(){
+	String getEndPoint(){
 		String endPoint = "";
 		if(byName){
 			endPoint = "api/v/1/collection/"+Util.getSystemKey() +"/" +collectionId;
@@ -711,22 +836,28 @@ public class Query {
 		return endPoint;
 	}
 	public Item[] removeSync() throws ClearBladeException{
-		removeSetup();
-		PlatformResponse resp = request.execute();
-		Item[] ret;
-		if(resp.isError()) {
-			throw new ClearBladeException("Call to fetch failed:"+resp.getData());
-		} else {
-			ret = parseItemArray((String) resp.getData());
-		}
-		return ret;
+		return doRemove();
 	}
 	
-	private void removeSetup(){
+	private RequestProperties removeHeaders(){
 		String queryParam = getURLParameter();
 		
-		RequestProperties headers = new RequestProperties.Builder().method("DELETE").endPoint(getEndPoint()+ queryParam).build();
-		request.setHeaders(headers);
+		return new RequestProperties.Builder().method("DELETE").endPoint(getEndPoint()+ queryParam).build();
+	}
+
+	/**
+	 * Removes the items matching any of the or-branches. {@link #removeSync()} sends the legacy
+	 * query, which puts all branches in one inner array; the platform ANDs the clauses of an inner
+	 * array, so this sends one inner array per branch instead, as a fetch's FILTERS does.
+	 */
+	Item[] removeAnySync() throws ClearBladeException {
+		RequestProperties headers = new RequestProperties.Builder().method("DELETE").endPoint(getEndPoint() + getRemoveAnyURLParameter()).build();
+		return executeForItems(headers, "Call to remove failed:");
+	}
+
+	String getRemoveAnyURLParameter() {
+		String filters = filtersAsJsonString();
+		return filters != null ? "?query=" + urlEncode(filters) : "";
 	}
 
 	/**
@@ -751,6 +882,46 @@ public class Query {
 		this.byName = byName;
 	}
 	
+	/**
+	 * Returns a copy of this query where every or-branch also requires lower &lt;= field &lt; upper.
+	 * A null bound leaves that side of the range open.
+	 */
+	Query withRange(String field, Object lower, Object upper) {
+		Query copy = new Query(collectionId, byName);
+		copy.queryObj = copyWithRange(queryObj, field, lower, upper);
+		for (QueryObj obj : queryObjs) {
+			copy.queryObjs.add(copyWithRange(obj, field, lower, upper));
+		}
+		return copy;
+	}
+
+	private QueryObj copyWithRange(QueryObj obj, String field, Object lower, Object upper) {
+		QueryObj copy = new QueryObj();
+		copy.EQ = copyOf(obj.EQ);
+		copy.NEQ = copyOf(obj.NEQ);
+		copy.GT = copyOf(obj.GT);
+		copy.GTE = copyOf(obj.GTE);
+		copy.LT = copyOf(obj.LT);
+		copy.LTE = copyOf(obj.LTE);
+		if (lower != null) {
+			if (copy.GTE == null) {
+				copy.GTE = new ArrayList<FieldValue>();
+			}
+			copy.GTE.add(new FieldValue(field, lower));
+		}
+		if (upper != null) {
+			if (copy.LT == null) {
+				copy.LT = new ArrayList<FieldValue>();
+			}
+			copy.LT.add(new FieldValue(field, upper));
+		}
+		return copy;
+	}
+
+	private static ArrayList<FieldValue> copyOf(ArrayList<FieldValue> values) {
+		return values == null ? null : new ArrayList<FieldValue>(values);
+	}
+
 	private class FieldValue{
 		public String field;
 		public Object value;
@@ -0,0 +1,172 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.clearblade.java.api.internal.RequestExecutor;
+
+/**
+ * Iterates over every item matching a query, one page at a time.
+ * <p>
+ * While the caller works through page N, pages N+1 .. N+readAhead are already being fetched on the
+ * shared request executor, so processing overlaps the network round trips. Iterated on one of that
+ * executor's own threads, it fetches each page itself when needed instead. Iteration stops after
+ * the page holding the last of {@link QueryResponse#getTotalCount()} items, or at the first empty
+ * page if the platform does not report a total.
+ * </p>
+ * <p>
+ * A failed page fetch surfaces as a RuntimeException whose cause is the ClearBladeException.
+ * Close the iterator when stopping early so that prefetched pages are abandoned.
+ * </p>
+ * <pre>
+ * try (QueryIterator items = new Query(collectionId).iterator(500, 2)) {
+ *     while (items.hasNext()) {
+ *         Item item = items.next();
+ *         //your logic here
+ *     }
+ * }
+ * </pre>
+ * @see Query#iterator(int, int)
+ * @see Query#stream(int, int)
+ */
+public class QueryIterator implements Iterator<Item>, AutoCloseable {
+
+	public static final int DEFAULT_READ_AHEAD = 1;
+
+	private final Query query;
+	private final int pageSize;
+	private final int readAhead;
+
+	private final ArrayDeque<CompletableFuture<QueryResponse>> pending = new ArrayDeque<>();
+	private int nextPageNum = 1;		// platform pages start at 1, 0 means everything
+	private int lastPageNum = -1;		// known once a response reported the total
+	private int totalCount = -1;
+	private int pagesFetched;
+
+	private Item[] page = new Item[0];
+	private int index;
+	private boolean finished;
+	private boolean closed;
+
+	QueryIterator(Query query, int pageSize, int readAhead) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize must be positive");
+		}
+		if (readAhead < 0) {
+			throw new IllegalArgumentException("readAhead must not be negative");
+		}
+		this.query = query;
+		this.pageSize = pageSize;
+		this.readAhead = readAhead;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (index >= page.length) {
+			if (finished || closed) {
+				return false;
+			}
+			nextPage();
+		}
+		return true;
+	}
+
+	@Override
+	public Item next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page[index++];
+	}
+
+	/**
+	 * Tops up the prefetch queue, then waits for the next page.
+	 */
+	private void nextPage() {
+		// on a worker of the request executor, pages queued behind it might never run: fetch here instead
+		boolean inline = RequestExecutor.getShared().isWorkerThread();
+		// the page about to be awaited plus readAhead pages behind it
+		while (pending.size() <= (inline ? 0 : readAhead) && morePages()) {
+			request(inline);
+		}
+		QueryResponse resp;
+		try {
+			resp = pending.poll().join();
+		} catch (CompletionException e) {
+			close();
+			Throwable cause = e.getCause() != null ? e.getCause() : e;
+			throw new RuntimeException("Call to fetch failed: " + cause.getMessage(), cause);
+		}
+		int pageNum = ++pagesFetched;
+
+		if (totalCount < 0 && resp.getTotalCount() > 0) {
+			totalCount = resp.getTotalCount();
+			lastPageNum = (totalCount + pageSize - 1) / pageSize;
+		}
+
+		page = resp.getDataItems() != null ? resp.getDataItems() : new Item[0];
+		index = 0;
+
+		boolean lastPage = lastPageNum >= 0 ? pageNum >= lastPageNum : page.length == 0;
+		if (lastPage) {
+			finished = true;
+			cancelPending();
+		}
+	}
+
+	private boolean morePages() {
+		return lastPageNum < 0 || nextPageNum <= lastPageNum;
+	}
+
+	private void request(boolean inline) {
+		final int pageNum = nextPageNum++;
+		Callable<QueryResponse> fetch = () -> query.fetchPage(pageNum, pageSize);
+		pending.add(inline ? RequestExecutor.runInline(fetch) : RequestExecutor.getShared().submit(fetch));
+	}
+
+	private void cancelPending() {
+		for (CompletableFuture<QueryResponse> future : pending) {
+			future.cancel(false);
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Returns the total reported by the platform, or -1 until the first page has arrived.
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns the number of pages handed to the caller so far.
+	 */
+	public int getPagesFetched() {
+		return pagesFetched;
+	}
+
+	/**
+	 * Returns a sequential stream over the remaining items; closing the stream closes this iterator.
+	 */
+	public Stream<Item> stream() {
+		Spliterator<Item> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+
+	/**
+	 * Abandons any pages still being prefetched.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		cancelPending();
+	}
+}
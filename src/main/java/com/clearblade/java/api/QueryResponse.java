@@ -1,8 +1,20 @@
 package com.clearblade.java.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 public class QueryResponse {
 
@@ -15,6 +27,9 @@ public class QueryResponse {
 
 	@Expose(serialize = false, deserialize = false)
 	private Item[] dataItems;
+
+	// set when DATA was parsed straight into dataItems and has not been rebuilt yet
+	private transient boolean streamed;
 	
 	public QueryResponse() {
 		this.dataItems = new Item[0];
@@ -25,6 +40,97 @@ public class QueryResponse {
 		return gson.fromJson(rawJson, QueryResponse.class);
 	}
 
+	/**
+	 * Parses a query response in a single pass as it streams in. Entries of DATA become Items right
+	 * away (non-object and empty entries are skipped, as in {@link Query#parseItemArrayWith}), so
+	 * the body is never held as a String or a JsonArray.
+	 * @param body response body, read as UTF-8
+	 * @param collectionId collection the items belong to
+	 * @param byName whether the collection is referenced by name
+	 * @return the parsed response
+	 * @throws IOException if the body is not a valid query response
+	 */
+	public static QueryResponse parseStream(InputStream body, String collectionId, boolean byName) throws IOException {
+		return parseStream(new InputStreamReader(body, StandardCharsets.UTF_8), collectionId, byName);
+	}
+
+	/**
+	 * Same as {@link #parseStream(InputStream, String, boolean)} but reads from a character stream.
+	 */
+	public static QueryResponse parseStream(Reader body, String collectionId, boolean byName) throws IOException {
+		QueryResponse resp = new QueryResponse();
+		JsonReader reader = new JsonReader(body);
+		try {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (reader.peek() == JsonToken.NULL) {
+					reader.nextNull();
+					continue;
+				}
+				switch (name) {
+					case "CURRENTPAGE":
+						resp.CURRENTPAGE = reader.nextInt();
+						break;
+					case "TOTAL":
+						resp.TOTAL = reader.nextInt();
+						break;
+					case "NEXTPAGEURL":
+						resp.NEXTPAGEURL = reader.nextString();
+						break;
+					case "PREVPAGEURL":
+						resp.PREVPAGEURL = reader.nextString();
+						break;
+					case "DATA":
+						resp.dataItems = readItems(reader, collectionId, byName);
+						resp.streamed = true;
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IllegalStateException | NumberFormatException e) {
+			throw new IOException("invalid query response: " + e.getMessage(), e);
+		}
+		return resp;
+	}
+
+	private static Item[] readItems(JsonReader reader, String collectionId, boolean byName) throws IOException {
+		ArrayList<Item> items = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				reader.skipValue();
+				continue;
+			}
+			JsonElement elem = JsonParser.parseReader(reader);
+			JsonObject obj = elem.getAsJsonObject();
+			if (obj.size() > 0) {
+				items.add(new Item(obj, collectionId, byName));
+			}
+		}
+		reader.endArray();
+		return items.toArray(new Item[items.size()]);
+	}
+
+	/**
+	 * Returns a copy with its own items, for callers that share a single-flight fetch.
+	 */
+	QueryResponse copy(String collectionId, boolean byName) {
+		QueryResponse copy = new QueryResponse();
+		copy.CURRENTPAGE = CURRENTPAGE;
+		copy.NEXTPAGEURL = NEXTPAGEURL;
+		copy.PREVPAGEURL = PREVPAGEURL;
+		copy.TOTAL = TOTAL;
+		copy.dataItems = new Item[dataItems.length];
+		for (int i = 0; i < dataItems.length; i++) {
+			copy.dataItems[i] = new Item(dataItems[i].json.deepCopy(), collectionId, byName);
+		}
+		copy.streamed = true;
+		return copy;
+	}
+
 	public int getCurrentPage() {
 		return CURRENTPAGE;
 	}
@@ -41,7 +147,19 @@ public class QueryResponse {
 		return TOTAL;
 	}
 
+	/**
+	 * Returns the raw DATA array. For responses parsed with parseStream the array is rebuilt from
+	 * the items on first use; it shares their JsonObjects and leaves out skipped entries.
+	 */
 	public JsonArray getData() {
+		if (DATA == null && streamed) {
+			JsonArray data = new JsonArray(dataItems.length);
+			for (Item item : dataItems) {
+				data.add(item.json);
+			}
+			DATA = data;
+			streamed = false;
+		}
 		return DATA;
 	}
 
@@ -51,6 +169,7 @@ public class QueryResponse {
 
 	public void setDataItems(Item[] items) {
 		dataItems = items;
+		streamed = false;
 	}
 
 }
@@ -0,0 +1,167 @@
+package com.clearblade.java.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.clearblade.java.api.internal.RequestExecutor;
+import com.clearblade.java.api.internal.RequestProperties;
+
+/**
+ * An immutable, compiled query whose filter values are bound per execution.
+ * <p>
+ * The filter JSON of the query is serialized (and url encoded) once when the template is compiled;
+ * an execution only encodes the bound values and joins them with the precomputed segments. A
+ * template holds no request state, so one instance can be shared by any number of threads.
+ * </p>
+ * <pre>
+ * QueryTemplate byDevice = QueryTemplate.compile(new Query(collectionId)
+ *         .equalTo("deviceId", QueryTemplate.param("device"))
+ *         .greaterThan("timestamp", QueryTemplate.param("since")));
+ *
+ * Map&lt;String, Object&gt; values = new HashMap&lt;&gt;();
+ * values.put("device", "sensor-42");
+ * values.put("since", 1700000000);
+ * QueryResponse resp = byDevice.fetch(values);
+ * </pre>
+ * @see Query
+ */
+public final class QueryTemplate {
+
+	/**
+	 * Placeholder for a value bound when the template is executed.
+	 */
+	public static final class Parameter {
+		private final String name;
+
+		private Parameter(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return ":" + name;
+		}
+	}
+
+	private final String endPoint;
+	private final String collectionId;
+	private final boolean byName;
+
+	private final String[] encodedLiterals;
+	private final String[] parameters;
+	private final int literalLength;
+
+	private QueryTemplate(Query query) {
+		this.endPoint = query.getEndPoint();
+		this.collectionId = query.getCollectionId();
+		this.byName = query.isByName();
+
+		QueryWriter out = new QueryWriter();
+		query.writeFetchQuery(out, query.getPageNum(), query.getPageSize());
+
+		List<String> literals = out.getLiterals();
+		this.encodedLiterals = new String[literals.size()];
+		int length = 0;
+		for (int i = 0; i < encodedLiterals.length; i++) {
+			// percent encoding works character by character, so segments can be encoded separately
+			encodedLiterals[i] = Query.urlEncode(literals.get(i));
+			length += encodedLiterals[i].length();
+		}
+		this.parameters = out.getParameters().toArray(new String[0]);
+		this.literalLength = length;
+	}
+
+	/**
+	 * Returns a placeholder to pass as a filter value of the query being compiled.
+	 * @param name name the value is bound by
+	 */
+	public static Parameter param(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("parameter name must not be null");
+		}
+		return new Parameter(name);
+	}
+
+	/**
+	 * Compiles the filters, page number and page size of the query. Later changes to the query do
+	 * not affect the template.
+	 * @param query query whose filter values may be parameters
+	 * @return the compiled template
+	 */
+	public static QueryTemplate compile(Query query) {
+		return new QueryTemplate(query);
+	}
+
+	/**
+	 * Returns the names of the parameters, in the order they appear in the query.
+	 */
+	public List<String> getParameterNames() {
+		return Collections.unmodifiableList(Arrays.asList(parameters));
+	}
+
+	/**
+	 * Returns the query string parameter of a fetch with the given values bound.
+	 * @param values value for every parameter name
+	 * @throws IllegalArgumentException if a parameter has no value
+	 */
+	public String getFetchURLParameter(Map<String, ?> values) {
+		StringBuilder param = new StringBuilder(literalLength + 16 * parameters.length + 8);
+		param.append("?query=");
+		for (int i = 0; i < parameters.length; i++) {
+			param.append(encodedLiterals[i]);
+			if (!values.containsKey(parameters[i])) {
+				throw new IllegalArgumentException("no value bound for parameter " + parameters[i]);
+			}
+			param.append(Query.urlEncode(QueryWriter.toJson(values.get(parameters[i]))));
+		}
+		param.append(encodedLiterals[parameters.length]);
+		return param.toString();
+	}
+
+	/**
+	 * Runs the query with the given values bound.
+	 * @param values value for every parameter name
+	 * @return the query results
+	 * @throws ClearBladeException if the call fails
+	 */
+	public QueryResponse fetch(Map<String, ?> values) throws ClearBladeException {
+		return Query.executeFetch(fetchHeaders(values), collectionId, byName);
+	}
+
+	/**
+	 * Shorthand for a template with a single parameter.
+	 */
+	public QueryResponse fetch(String name, Object value) throws ClearBladeException {
+		Map<String, Object> values = new HashMap<>();
+		values.put(name, value);
+		return fetch(values);
+	}
+
+	/**
+	 * Asynchronous version of {@link #fetch(Map)}. The values are read before this method returns.
+	 * @return future completed with the query results, or exceptionally with a ClearBladeException
+	 */
+	public CompletableFuture<QueryResponse> fetchAsync(Map<String, ?> values) {
+		final RequestProperties headers;
+		try {
+			headers = fetchHeaders(values);
+		} catch (IllegalArgumentException e) {
+			CompletableFuture<QueryResponse> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		return RequestExecutor.getShared().submit(() -> Query.executeFetch(headers, collectionId, byName));
+	}
+
+	private RequestProperties fetchHeaders(Map<String, ?> values) {
+		return new RequestProperties.Builder().method("GET").endPoint(endPoint + getFetchURLParameter(values)).build();
+	}
+}
@@ -0,0 +1,90 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Builds the JSON of a query's filters with a single StringBuilder.
+ * <p>
+ * Values are written as proper JSON, escaped as needed. A {@link QueryTemplate.Parameter} value
+ * is not written; instead the text so far is closed off as a literal segment, which is how a
+ * {@link QueryTemplate} records its shape once and only has to fill in the values later.
+ * </p>
+ */
+class QueryWriter {
+
+	private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+	private final StringBuilder current = new StringBuilder(128);
+	private final List<String> literals = new ArrayList<>();
+	private final List<String> parameters = new ArrayList<>();
+
+	QueryWriter append(String literal) {
+		current.append(literal);
+		return this;
+	}
+
+	QueryWriter append(char literal) {
+		current.append(literal);
+		return this;
+	}
+
+	/**
+	 * Writes a JSON string, escaping quotes and control characters.
+	 */
+	QueryWriter string(String value) {
+		current.append(GSON.toJson(value));
+		return this;
+	}
+
+	/**
+	 * Writes a filter value, or records a parameter slot for template values.
+	 */
+	QueryWriter value(Object value) {
+		if (value instanceof QueryTemplate.Parameter) {
+			literals.add(current.toString());
+			current.setLength(0);
+			parameters.add(((QueryTemplate.Parameter) value).getName());
+		} else {
+			current.append(toJson(value));
+		}
+		return this;
+	}
+
+	boolean hasParameters() {
+		return !parameters.isEmpty();
+	}
+
+	/**
+	 * Returns the literal segments around the parameter slots; there is always one more literal
+	 * than there are parameters.
+	 */
+	List<String> getLiterals() {
+		List<String> result = new ArrayList<>(literals);
+		result.add(current.toString());
+		return result;
+	}
+
+	List<String> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns the JSON written so far.
+	 * @throws IllegalStateException if a template parameter was written
+	 */
+	@Override
+	public String toString() {
+		if (hasParameters()) {
+			throw new IllegalStateException("query has unbound parameters " + parameters + "; compile it into a QueryTemplate");
+		}
+		return current.toString();
+	}
+
+	static String toJson(Object value) {
+		return GSON.toJson(value);
+	}
+}
@@ -0,0 +1,99 @@
+package com.clearblade.java.api;
+
+/**
+ * ReplicaOptions is used for customizing a {@link CollectionReplica}. The following values are used by default:
+ *
+ *   syncInterval - 5000 milliseconds
+ *   fullSyncInterval - 600000 milliseconds (0 never reloads the whole collection)
+ *   watermarkColumn - _lastModified
+ *   scanOptions - {@link ScanOptions} defaults (pages of 1000, 4 in parallel)
+ *
+ * Every syncInterval the replica asks for the rows whose watermarkColumn is at least the highest
+ * value it has seen. Rows deleted on the platform do not show up in such a delta, so every
+ * fullSyncInterval the whole collection is loaded again instead.
+ *
+ * @see Collection#replicate(ReplicaOptions)
+ */
+public class ReplicaOptions {
+
+    public static final long DEFAULT_SYNC_INTERVAL = 5000;
+    public static final long DEFAULT_FULL_SYNC_INTERVAL = 600000;
+    public static final String DEFAULT_WATERMARK_COLUMN = "_lastModified";
+
+    private long _syncInterval;
+    private long _fullSyncInterval;
+    private String _watermarkColumn;
+    private ScanOptions _scanOptions;
+
+    public ReplicaOptions() {
+        this._syncInterval = DEFAULT_SYNC_INTERVAL;
+        this._fullSyncInterval = DEFAULT_FULL_SYNC_INTERVAL;
+        this._watermarkColumn = DEFAULT_WATERMARK_COLUMN;
+        this._scanOptions = new ScanOptions();
+    }
+
+    public ReplicaOptions(ReplicaOptions other) {
+        this._syncInterval = other._syncInterval;
+        this._fullSyncInterval = other._fullSyncInterval;
+        this._watermarkColumn = other._watermarkColumn;
+        this._scanOptions = new ScanOptions(other._scanOptions);
+    }
+
+    // Getters
+
+    public long getSyncInterval() {
+        return this._syncInterval;
+    }
+
+    public long getFullSyncInterval() {
+        return this._fullSyncInterval;
+    }
+
+    public String getWatermarkColumn() {
+        return this._watermarkColumn;
+    }
+
+    public ScanOptions getScanOptions() {
+        return new ScanOptions(this._scanOptions);
+    }
+
+    // Setters
+
+    /**
+     * Sets the time in milliseconds between two delta syncs, which bounds how stale the replica gets.
+     */
+    public ReplicaOptions setSyncInterval(long syncInterval) {
+        if (syncInterval <= 0) {
+            throw new IllegalArgumentException("syncInterval must be positive");
+        }
+        this._syncInterval = syncInterval;
+        return this;
+    }
+
+    /**
+     * Sets the time in milliseconds between two full reloads, which pick up deleted rows; 0 never reloads.
+     */
+    public ReplicaOptions setFullSyncInterval(long fullSyncInterval) {
+        if (fullSyncInterval < 0) {
+            throw new IllegalArgumentException("fullSyncInterval must not be negative");
+        }
+        this._fullSyncInterval = fullSyncInterval;
+        return this;
+    }
+
+    /**
+     * Sets the column that grows whenever a row changes, such as a modification timestamp.
+     */
+    public ReplicaOptions setWatermarkColumn(String watermarkColumn) {
+        this._watermarkColumn = watermarkColumn;
+        return this;
+    }
+
+    /**
+     * Sets the page size and parallelism used to load the collection and its deltas.
+     */
+    public ReplicaOptions setScanOptions(ScanOptions scanOptions) {
+        this._scanOptions = new ScanOptions(scanOptions);
+        return this;
+    }
+}
@@ -0,0 +1,170 @@
+package com.clearblade.java.api;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * RetryPolicy configures how platform calls react to failures. The following values are used by default:
+ *
+ *   maxAttempts - 3 (the first call and up to 2 retries)
+ *   baseDelay - 100 milliseconds
+ *   maxDelay - 5000 milliseconds
+ *   retryableStatusCodes - 408, 429, 502, 503, 504
+ *   budgetMaxTokens - 10
+ *   budgetTokenRatio - 0.1
+ *   breakerFailureThreshold - 5 (0 disables the circuit breaker)
+ *   breakerOpenTime - 30000 milliseconds
+ *
+ * Only idempotent calls (GET, PUT, DELETE) are retried, after a connection failure or one of the
+ * retryable status codes. Delays follow "decorrelated jitter": each one is drawn at random between
+ * baseDelay and three times the previous delay, capped at maxDelay, so clients that failed together
+ * do not retry together. A Retry-After header from the platform is honored up to maxDelay.
+ *
+ * Retries are limited by a budget shared by all calls: it holds budgetMaxTokens tokens, every
+ * failure takes one and every success gives back budgetTokenRatio. Retries stop while fewer than
+ * half the tokens are left, so a brownout adds at most a small share of extra load.
+ *
+ * Each endpoint (method and path) has a circuit breaker. After breakerFailureThreshold failures in
+ * a row it opens and calls fail at once without reaching the platform. After breakerOpenTime one
+ * trial call is let through; it closes the breaker if it succeeds.
+ *
+ * @see InitOptions#setRetryPolicy(RetryPolicy)
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final int DEFAULT_BASE_DELAY = 100;
+    public static final int DEFAULT_MAX_DELAY = 5000;
+    public static final int DEFAULT_BUDGET_MAX_TOKENS = 10;
+    public static final double DEFAULT_BUDGET_TOKEN_RATIO = 0.1;
+    public static final int DEFAULT_BREAKER_FAILURE_THRESHOLD = 5;
+    public static final int DEFAULT_BREAKER_OPEN_TIME = 30000;
+
+    private int _maxAttempts;
+    private int _baseDelay;
+    private int _maxDelay;
+    private Set<Integer> _retryableStatusCodes;
+    private int _budgetMaxTokens;
+    private double _budgetTokenRatio;
+    private int _breakerFailureThreshold;
+    private int _breakerOpenTime;
+
+    public RetryPolicy() {
+        this._maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        this._baseDelay = DEFAULT_BASE_DELAY;
+        this._maxDelay = DEFAULT_MAX_DELAY;
+        this._retryableStatusCodes = new TreeSet<>(Arrays.asList(408, 429, 502, 503, 504));
+        this._budgetMaxTokens = DEFAULT_BUDGET_MAX_TOKENS;
+        this._budgetTokenRatio = DEFAULT_BUDGET_TOKEN_RATIO;
+        this._breakerFailureThreshold = DEFAULT_BREAKER_FAILURE_THRESHOLD;
+        this._breakerOpenTime = DEFAULT_BREAKER_OPEN_TIME;
+    }
+
+    public RetryPolicy(RetryPolicy other) {
+        this._maxAttempts = other._maxAttempts;
+        this._baseDelay = other._baseDelay;
+        this._maxDelay = other._maxDelay;
+        this._retryableStatusCodes = new TreeSet<>(other._retryableStatusCodes);
+        this._budgetMaxTokens = other._budgetMaxTokens;
+        this._budgetTokenRatio = other._budgetTokenRatio;
+        this._breakerFailureThreshold = other._breakerFailureThreshold;
+        this._breakerOpenTime = other._breakerOpenTime;
+    }
+
+    // Getters
+
+    public int getMaxAttempts() {
+        return this._maxAttempts;
+    }
+
+    public int getBaseDelay() {
+        return this._baseDelay;
+    }
+
+    public int getMaxDelay() {
+        return this._maxDelay;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return new TreeSet<>(this._retryableStatusCodes);
+    }
+
+    public boolean isRetryableStatus(int statusCode) {
+        return this._retryableStatusCodes.contains(statusCode);
+    }
+
+    public int getBudgetMaxTokens() {
+        return this._budgetMaxTokens;
+    }
+
+    public double getBudgetTokenRatio() {
+        return this._budgetTokenRatio;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return this._breakerFailureThreshold;
+    }
+
+    public int getBreakerOpenTime() {
+        return this._breakerOpenTime;
+    }
+
+    // Setters
+
+    /**
+     * Sets the max number of times an idempotent call is sent, the first one included. 1 disables retries.
+     */
+    public RetryPolicy setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this._maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Sets the smallest delay in milliseconds before a retry, and the largest any retry waits.
+     */
+    public RetryPolicy setDelays(int baseDelay, int maxDelay) {
+        if (baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("delays must satisfy 0 <= baseDelay <= maxDelay");
+        }
+        this._baseDelay = baseDelay;
+        this._maxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * Sets the response status codes that are retried.
+     */
+    public RetryPolicy setRetryableStatusCodes(Integer... statusCodes) {
+        this._retryableStatusCodes = new TreeSet<>(Arrays.asList(statusCodes));
+        return this;
+    }
+
+    /**
+     * Sets the retry budget: the tokens it holds and the share of a token each success gives back.
+     */
+    public RetryPolicy setBudget(int maxTokens, double tokenRatio) {
+        if (maxTokens < 1 || tokenRatio <= 0) {
+            throw new IllegalArgumentException("maxTokens and tokenRatio must be positive");
+        }
+        this._budgetMaxTokens = maxTokens;
+        this._budgetTokenRatio = tokenRatio;
+        return this;
+    }
+
+    /**
+     * Sets the failures in a row that open an endpoint's circuit breaker (0 disables it), and the time
+     * in milliseconds it stays open before a trial call.
+     */
+    public RetryPolicy setCircuitBreaker(int failureThreshold, int openTime) {
+        if (failureThreshold < 0 || openTime < 0) {
+            throw new IllegalArgumentException("failureThreshold and openTime must not be negative");
+        }
+        this._breakerFailureThreshold = failureThreshold;
+        this._breakerOpenTime = openTime;
+        return this;
+    }
+}
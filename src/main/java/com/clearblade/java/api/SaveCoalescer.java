@@ -0,0 +1,157 @@
+package com.clearblade.java.api;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the saves of new Items made through one {@link Collection} and sends them as bulk inserts.
+ * <p>
+ * Only inserts are coalesced. The platform has no bulk update, so saving an Item that already has
+ * an item_id is sent right away as its own request, without waiting for a window.
+ * </p>
+ * <p>
+ * The first save of a batch starts a window; saves arriving before it closes join the batch, and
+ * a full batch is sent at once. The window adapts to the traffic: it starts at zero, so a lone
+ * save goes out as soon as the flush thread picks it up, grows while batches come out larger than
+ * one insert, up to {@code maxDelay}, and shrinks back while they don't. Light traffic therefore
+ * pays next to no latency and heavy traffic gets large batches.
+ * </p>
+ * <p>
+ * Each save still completes its own future. Saving the same Item again while it is pending
+ * returns the pending future instead of sending the Item twice.
+ * </p>
+ * @see Collection#enableSaveCoalescing(int, long)
+ * @see Collection#saveAll(List, int)
+ */
+public class SaveCoalescer {
+
+	private static final long MIN_WINDOW_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "clearblade-save-coalescer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Collection collection;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+
+	private Map<Item, CompletableFuture<Item>> pending = new IdentityHashMap<>();
+	private ScheduledFuture<?> scheduled;
+	private long windowNanos;
+
+	private long saveCount;
+	private long batchCount;
+
+	SaveCoalescer(Collection collection, int maxBatchSize, long maxDelay, TimeUnit unit) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+		if (maxDelay < 0) {
+			throw new IllegalArgumentException("maxDelay must not be negative");
+		}
+		this.collection = collection;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+	}
+
+	/**
+	 * Queues a new Item for the next batch, or saves an existing one right away.
+	 * @return future completed with the saved Item, or exceptionally with a ClearBladeException
+	 */
+	public synchronized CompletableFuture<Item> save(Item item) {
+		CompletableFuture<Item> future = pending.get(item);
+		if (future == null && !item.isNew()) {
+			return item.saveAsync();	// updates cannot share a request
+		}
+		if (future != null) {
+			return future;
+		}
+		future = new CompletableFuture<Item>();
+		pending.put(item, future);
+		saveCount++;
+		if (pending.size() >= maxBatchSize) {
+			flush();
+		} else if (scheduled == null) {
+			scheduled = TIMER.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+		}
+		return future;
+	}
+
+	/**
+	 * Sends the pending saves now.
+	 */
+	public synchronized void flush() {
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		final Map<Item, CompletableFuture<Item>> batch = pending;
+		pending = new IdentityHashMap<>();
+		batchCount++;
+		adapt(batch.size());
+
+		final List<Item> items = new ArrayList<Item>(batch.keySet());
+		collection.saveAllAsync(items, maxBatchSize).thenAccept(result -> {
+			for (int i = 0; i < result.size(); i++) {
+				CompletableFuture<Item> future = batch.get(result.get(i));
+				if (result.isSuccess(i)) {
+					future.complete(result.get(i));
+				} else {
+					future.completeExceptionally(result.getError(i));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Widens the window after a batch that coalesced several saves and narrows it after a lone one.
+	 */
+	void adapt(int batchSize) {
+		if (batchSize > 1) {
+			windowNanos = Math.min(maxDelayNanos, Math.max(MIN_WINDOW_NANOS, windowNanos * 2));
+		} else {
+			windowNanos = windowNanos / 2 < MIN_WINDOW_NANOS ? 0 : windowNanos / 2;
+		}
+	}
+
+	/**
+	 * Returns the current batching window.
+	 */
+	public synchronized long getWindow(TimeUnit unit) {
+		return unit.convert(windowNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Returns the number of inserts queued so far, not counting repeated saves of a pending Item.
+	 */
+	public synchronized long getSaveCount() {
+		return saveCount;
+	}
+
+	/**
+	 * Returns the number of batches sent so far; saves divided by batches is the average batch size.
+	 */
+	public synchronized long getBatchCount() {
+		return batchCount;
+	}
+
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+}
@@ -0,0 +1,110 @@
+package com.clearblade.java.api;
+
+import java.util.Arrays;
+
+/**
+ * ScanOptions is used for customizing a parallel collection scan. The following values are used by default:
+ *
+ *   pageSize - 1000
+ *   parallelism - 4
+ *   partitions - [NONE] (pages of the whole result are fetched concurrently)
+ *
+ * Pages run on the shared request executor, so at most {@link InitOptions#getMaxInFlightRequests()}
+ * of them are in flight at once whatever the parallelism.
+ *
+ * @see Collection#scan(ScanOptions, java.util.function.Consumer)
+ */
+public class ScanOptions {
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private int _pageSize;
+    private int _parallelism;
+
+    private String _partitionColumn;
+    private Object[] _partitionBoundaries;
+
+    public ScanOptions() {
+        this._pageSize = DEFAULT_PAGE_SIZE;
+        this._parallelism = DEFAULT_PARALLELISM;
+
+        this._partitionColumn = null;
+        this._partitionBoundaries = new Object[0];
+    }
+
+    public ScanOptions(ScanOptions other) {
+        this._pageSize = other._pageSize;
+        this._parallelism = other._parallelism;
+
+        this._partitionColumn = other._partitionColumn;
+        this._partitionBoundaries = other._partitionBoundaries.clone();
+    }
+
+    // Getters
+
+    public int getPageSize() {
+        return this._pageSize;
+    }
+
+    public int getParallelism() {
+        return this._parallelism;
+    }
+
+    public String getPartitionColumn() {
+        return this._partitionColumn;
+    }
+
+    public Object[] getPartitionBoundaries() {
+        return this._partitionBoundaries.clone();
+    }
+
+    // Setters
+
+    /**
+     * Sets the number of items fetched per request.
+     */
+    public ScanOptions setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this._pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets the max number of pages requested at the same time.
+     */
+    public ScanOptions setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this._parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Splits the scan into ranges of a sortable column, each paged on its own, instead of paging
+     * through the whole result. The boundaries must be in ascending order; n boundaries give n + 1
+     * ranges, the first open below and the last open above. Items without a value in the column are
+     * not part of any range.
+     * <pre>
+     * new ScanOptions().setPartitions("age", 18, 30, 50, 65);
+     * </pre>
+     * @param column column to partition on
+     * @param boundaries Integer or String values splitting the column into ranges
+     */
+    public ScanOptions setPartitions(String column, Object... boundaries) {
+        if (column == null || boundaries.length == 0) {
+            throw new IllegalArgumentException("a column and at least one boundary are required");
+        }
+        for (Object boundary : boundaries) {
+            if (!(boundary instanceof Integer) && !(boundary instanceof String)) {
+                throw new IllegalArgumentException("partition boundaries must be Integer or String values");
+            }
+        }
+        this._partitionColumn = column;
+        this._partitionBoundaries = Arrays.copyOf(boundaries, boundaries.length);
+        return this;
+    }
+}
@@ -0,0 +1,121 @@
+package com.clearblade.java.api;
+
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TlsConfig is used for customizing the HTTPS connections to the platform. The following values are used by default:
+ *
+ *   trustStore - [NONE] (the JVM's default trust store)
+ *   pinnedKeys - [NONE] (any certificate the trust store accepts)
+ *   protocols - [NONE] (the JVM's default protocols)
+ *   sessionCacheSize - 100
+ *   sessionTimeout - 86400
+ *
+ * The SSLContext is built once from these settings when the SDK is initialized and shared by all
+ * connections, which lets later connections resume an earlier TLS session instead of running a
+ * full handshake. JVM-wide defaults such as {@link javax.net.ssl.HttpsURLConnection#setDefaultSSLSocketFactory}
+ * are left alone.
+ *
+ * @see InitOptions#setTlsConfig(TlsConfig)
+ */
+public class TlsConfig {
+
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 100;
+    public static final int DEFAULT_SESSION_TIMEOUT = 86400;
+
+    private static final String PIN_PREFIX = "sha256/";
+
+    private KeyStore _trustStore;
+    private List<String> _pinnedKeys;
+    private String[] _protocols;
+    private int _sessionCacheSize;
+    private int _sessionTimeout;
+
+    public TlsConfig() {
+        this._trustStore = null;
+        this._pinnedKeys = new ArrayList<>();
+        this._protocols = null;
+        this._sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+        this._sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    }
+
+    public TlsConfig(TlsConfig other) {
+        this._trustStore = other._trustStore;
+        this._pinnedKeys = new ArrayList<>(other._pinnedKeys);
+        this._protocols = other._protocols != null ? other._protocols.clone() : null;
+        this._sessionCacheSize = other._sessionCacheSize;
+        this._sessionTimeout = other._sessionTimeout;
+    }
+
+    // Getters
+
+    public KeyStore getTrustStore() {
+        return this._trustStore;
+    }
+
+    public List<String> getPinnedKeys() {
+        return new ArrayList<>(this._pinnedKeys);
+    }
+
+    public String[] getProtocols() {
+        return this._protocols != null ? this._protocols.clone() : null;
+    }
+
+    public int getSessionCacheSize() {
+        return this._sessionCacheSize;
+    }
+
+    public int getSessionTimeout() {
+        return this._sessionTimeout;
+    }
+
+    // Setters
+
+    /**
+     * Sets the trust store holding the certificate authorities the platform certificate must chain to,
+     * e.g. for a platform running with a private CA.
+     */
+    public TlsConfig setTrustStore(KeyStore trustStore) {
+        this._trustStore = trustStore;
+        return this;
+    }
+
+    /**
+     * Pins a public key: once at least one pin is set, a certificate chain is only accepted if one of its
+     * certificates has a pinned key. Pins have the form {@code sha256/<base64 of the SHA-256 of the
+     * SubjectPublicKeyInfo>}, as in HTTP public key pinning. The chain must still pass the trust store.
+     */
+    public TlsConfig addPinnedKey(String pin) {
+        if (pin == null || !pin.startsWith(PIN_PREFIX) || pin.length() == PIN_PREFIX.length()) {
+            throw new IllegalArgumentException("pin must have the form sha256/<base64>: " + pin);
+        }
+        this._pinnedKeys.add(pin);
+        return this;
+    }
+
+    /**
+     * Sets the TLS protocols to enable, e.g. {@code "TLSv1.3", "TLSv1.2"}.
+     */
+    public TlsConfig setProtocols(String... protocols) {
+        this._protocols = protocols != null && protocols.length > 0 ? protocols.clone() : null;
+        return this;
+    }
+
+    /**
+     * Sets the max number of TLS sessions kept for resumption (0 means no limit).
+     */
+    public TlsConfig setSessionCacheSize(int size) {
+        this._sessionCacheSize = size;
+        return this;
+    }
+
+    /**
+     * Sets the time in seconds a cached TLS session can be resumed (0 means no limit).
+     */
+    public TlsConfig setSessionTimeout(int seconds) {
+        this._sessionTimeout = seconds;
+        return this;
+    }
+}
@@ -0,0 +1,328 @@
+package com.clearblade.java.api.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.clearblade.java.api.transport.RequestBody;
+
+/**
+ * gzip and deflate support for platform calls.
+ * <p>
+ * {@link RequestEngine} advertises {@link #ACCEPT_ENCODING} on every call and runs the response
+ * body through {@link #decode(InputStream, String)}, which inflates it while the JSON parser reads
+ * it, so the compressed body is never held in memory. Request bodies are gzipped by
+ * {@link #encodeRequest} when they reach the threshold set with
+ * {@link com.clearblade.java.api.InitOptions#setRequestCompressionThreshold(int)}.
+ * </p>
+ * <p>
+ * Byte counts before and after coding are kept in {@link #getStats()}, for all calls made
+ * through the engine.
+ * </p>
+ */
+public class ContentCoding {
+
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private static final Stats stats = new Stats();
+
+	private ContentCoding() {
+	}
+
+	/**
+	 * Returns the byte counts of all calls made so far.
+	 */
+	public static Stats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Compresses a request body.
+	 */
+	public static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Prepares a request body for sending: gzips it when it reaches the threshold, in which case
+	 * Content-Encoding is added to the headers, and counts the bytes as they are written.
+	 * <p>
+	 * A body of unknown length has to be written into memory once to be measured, so it is only
+	 * buffered when compression is enabled.
+	 * </p>
+	 * @param threshold smallest body to compress in bytes, negative to never compress
+	 */
+	static RequestBody encodeRequest(RequestBody body, int threshold, Map<String, String> headers) throws IOException {
+		long length = body.contentLength();
+		if (threshold < 0 || (length >= 0 && length < threshold)) {
+			return new CountedBody(body, -1, false);
+		}
+		byte[] raw = body.toByteArray();
+		if (raw.length < threshold) {
+			return new CountedBody(RequestBody.of(raw), -1, false);
+		}
+		headers.put("Content-Encoding", "gzip");
+		return new CountedBody(RequestBody.of(gzip(raw)), raw.length, true);
+	}
+
+	/**
+	 * Wraps a response body so it is inflated as it is read.
+	 * @param body the body as received
+	 * @param encoding the Content-Encoding header of the response, may be null
+	 * @return the decoded body; closing it closes the received body
+	 * @throws IOException if the encoding is not supported or the body has no valid header; the
+	 *         received body is closed
+	 */
+	public static InputStream decode(InputStream body, String encoding) throws IOException {
+		InputStream wire = new Counting(body, stats.responseWireBytes);
+		InputStream decoded;
+		String coding = encoding == null ? "identity" : encoding.trim().toLowerCase();
+		try {
+			switch (coding) {
+				case "":
+				case "identity":
+					decoded = wire;
+					break;
+				case "gzip":
+				case "x-gzip":
+					decoded = new GZIPInputStream(wire, 8192);		// reads the header, so may throw on a corrupt or empty body
+					stats.compressedResponses.incrementAndGet();
+					break;
+				case "deflate":
+					decoded = inflate(wire);
+					stats.compressedResponses.incrementAndGet();
+					break;
+				default:
+					throw new IOException("unsupported content encoding: " + encoding);
+			}
+		} catch (IOException | RuntimeException e) {
+			// the caller gets no stream to close, so the connection is released here
+			body.close();
+			throw e;
+		}
+		return new Counting(decoded, stats.responseBytes);
+	}
+
+	/**
+	 * "deflate" should be zlib wrapped, but some servers send the raw stream; the first two bytes tell them apart.
+	 */
+	private static InputStream inflate(InputStream wire) throws IOException {
+		BufferedInputStream in = new BufferedInputStream(wire, 8192);
+		in.mark(2);
+		int b0 = in.read();
+		int b1 = in.read();
+		in.reset();
+		boolean zlib = b0 >= 0 && b1 >= 0 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+		return new InflaterInputStream(in, new Inflater(!zlib), 8192) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inf.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Adds the bytes read through it to a counter.
+	 */
+	private static class Counting extends FilterInputStream {
+
+		private final AtomicLong counter;
+
+		Counting(InputStream in, AtomicLong counter) {
+			super(in);
+			this.counter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				counter.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				counter.addAndGet(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			counter.addAndGet(skipped);
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the bytes of a request body to the stats each time it is written.
+	 */
+	private static class CountedBody implements RequestBody {
+
+		private final RequestBody body;
+		private final long rawLength;
+		private final boolean compressed;
+
+		/**
+		 * @param rawLength length before compression, -1 if the body is not compressed
+		 */
+		CountedBody(RequestBody body, long rawLength, boolean compressed) {
+			this.body = body;
+			this.rawLength = rawLength;
+			this.compressed = compressed;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			CountingOutputStream counting = new CountingOutputStream(out);
+			body.writeTo(counting);
+			stats.requestWireBytes.addAndGet(counting.count);
+			stats.requestBytes.addAndGet(rawLength >= 0 ? rawLength : counting.count);
+			if (compressed) {
+				stats.compressedRequests.incrementAndGet();
+			}
+		}
+
+		@Override
+		public long contentLength() {
+			return body.contentLength();
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Bytes sent and received by the engine, before and after compression.
+	 */
+	public static class Stats {
+
+		private final AtomicLong requestBytes = new AtomicLong();
+		private final AtomicLong requestWireBytes = new AtomicLong();
+		private final AtomicLong compressedRequests = new AtomicLong();
+		private final AtomicLong responseBytes = new AtomicLong();
+		private final AtomicLong responseWireBytes = new AtomicLong();
+		private final AtomicLong compressedResponses = new AtomicLong();
+
+		/**
+		 * Returns the request body bytes before compression.
+		 */
+		public long getRequestBytes() {
+			return requestBytes.get();
+		}
+
+		/**
+		 * Returns the request body bytes actually sent.
+		 */
+		public long getRequestWireBytes() {
+			return requestWireBytes.get();
+		}
+
+		public long getCompressedRequestCount() {
+			return compressedRequests.get();
+		}
+
+		/**
+		 * Returns the response body bytes handed to the parsers, after decompression.
+		 */
+		public long getResponseBytes() {
+			return responseBytes.get();
+		}
+
+		/**
+		 * Returns the response body bytes actually received.
+		 */
+		public long getResponseWireBytes() {
+			return responseWireBytes.get();
+		}
+
+		public long getCompressedResponseCount() {
+			return compressedResponses.get();
+		}
+
+		/**
+		 * Returns request bytes before compression over bytes sent, 1.0 when nothing was compressed.
+		 */
+		public double getRequestCompressionRatio() {
+			return ratio(getRequestBytes(), getRequestWireBytes());
+		}
+
+		/**
+		 * Returns response bytes after decompression over bytes received, 1.0 when nothing was compressed.
+		 */
+		public double getResponseCompressionRatio() {
+			return ratio(getResponseBytes(), getResponseWireBytes());
+		}
+
+		/**
+		 * Returns the bytes that compression kept off the network, in both directions.
+		 */
+		public long getSavedBytes() {
+			return getRequestBytes() - getRequestWireBytes() + getResponseBytes() - getResponseWireBytes();
+		}
+
+		public void reset() {
+			requestBytes.set(0);
+			requestWireBytes.set(0);
+			compressedRequests.set(0);
+			responseBytes.set(0);
+			responseWireBytes.set(0);
+			compressedResponses.set(0);
+		}
+
+		private static double ratio(long raw, long wire) {
+			return wire == 0 ? 1.0 : (double) raw / wire;
+		}
+	}
+}
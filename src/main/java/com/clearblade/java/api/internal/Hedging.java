@@ -0,0 +1,282 @@
+package com.clearblade.java.api.internal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.clearblade.java.api.HedgePolicy;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+
+/**
+ * Request hedging for GET calls, as configured by a {@link HedgePolicy}.
+ * <p>
+ * A hedged call runs on a daemon thread while the caller waits for it. If it has not answered
+ * after the policy's percentile of its endpoint's recent latencies, a second copy is sent and
+ * whichever response arrives first is returned. The other copy is cancelled; if it answers anyway,
+ * its body is closed unread. A single shared instance is used by {@link RequestEngine} and
+ * replaced when {@link com.clearblade.java.api.ClearBlade#initialize} changes the policy.
+ * </p>
+ * @see HedgePolicy
+ */
+public class Hedging {
+
+	// a burst of hedges the budget allows after a quiet period
+	private static final double MAX_TOKENS = 10;
+
+	private static final ExecutorService CALLS = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "clearblade-hedged-call");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private static volatile Hedging shared = new Hedging(null);
+
+	private final HedgePolicy policy;
+	private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+	private double tokens;
+
+	private final AtomicLong callCount = new AtomicLong();
+	private final AtomicLong hedgeCount = new AtomicLong();
+	private final AtomicLong hedgeWinCount = new AtomicLong();
+	private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+	/**
+	 * @param policy the policy to apply, or null to never hedge
+	 */
+	public Hedging(HedgePolicy policy) {
+		this.policy = policy != null ? new HedgePolicy(policy) : null;
+	}
+
+	public static Hedging getShared() {
+		return shared;
+	}
+
+	/**
+	 * Replaces the shared instance, dropping the recorded latencies, unless the policy is unchanged.
+	 */
+	public static synchronized void configureShared(HedgePolicy policy) {
+		HedgePolicy current = shared.policy;
+		if (policy == current || (policy != null && current != null
+				&& policy.getPercentile() == current.getPercentile()
+				&& policy.getMinDelay() == current.getMinDelay()
+				&& policy.getBudgetRatio() == current.getBudgetRatio()
+				&& policy.getSampleSize() == current.getSampleSize()
+				&& policy.getMinSamples() == current.getMinSamples())) {
+			return;
+		}
+		shared = new Hedging(policy);
+	}
+
+	/**
+	 * Sends the request, hedging it if it is a GET that runs longer than usual.
+	 */
+	public TransportResponse execute(HttpTransport transport, TransportRequest request) throws IOException {
+		if (policy == null || !"GET".equalsIgnoreCase(request.getMethod())) {
+			return transport.execute(request);
+		}
+		callCount.incrementAndGet();
+		synchronized (this) {
+			tokens = Math.min(MAX_TOKENS, tokens + policy.getBudgetRatio());
+		}
+		LatencyWindow window = windows.computeIfAbsent(request.getUrl().getPath(), p -> new LatencyWindow(policy.getSampleSize()));
+		long delay = window.percentile(policy.getPercentile(), policy.getMinSamples());
+		if (delay < 0) {
+			// not enough history yet: a plain call that only records its latency
+			long start = System.nanoTime();
+			TransportResponse response = transport.execute(request);
+			window.record(System.nanoTime() - start);
+			return response;
+		}
+		return new Race(transport, request, window).run(Math.max(delay, TimeUnit.MILLISECONDS.toNanos(policy.getMinDelay())));
+	}
+
+	private boolean takeToken() {
+		synchronized (this) {
+			if (tokens >= 1) {
+				tokens -= 1;
+				return true;
+			}
+		}
+		budgetExhaustedCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * The original call and its hedge; the first response completes the winner.
+	 */
+	private class Race {
+
+		private final HttpTransport transport;
+		private final TransportRequest request;
+		private final LatencyWindow window;
+		private final CompletableFuture<TransportResponse> winner = new CompletableFuture<>();
+		private final AtomicInteger running = new AtomicInteger();
+		private final Future<?>[] calls = new Future<?>[2];
+		private volatile TransportResponse hedgeResponse;
+
+		Race(HttpTransport transport, TransportRequest request, LatencyWindow window) {
+			this.transport = transport;
+			this.request = request;
+			this.window = window;
+		}
+
+		TransportResponse run(long delayNanos) throws IOException {
+			start(0);
+			try {
+				try {
+					return winner.get(delayNanos, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					if (takeToken()) {
+						hedgeCount.incrementAndGet();
+						start(1);
+					}
+				}
+				TransportResponse response = winner.get();
+				if (response == hedgeResponse) {
+					hedgeWinCount.incrementAndGet();
+				}
+				return response;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while waiting for the response");
+			} finally {
+				cancelAll();
+			}
+		}
+
+		private synchronized void start(int index) {
+			running.incrementAndGet();
+			calls[index] = CALLS.submit(() -> attempt(index));
+		}
+
+		private void attempt(int index) {
+			long start = System.nanoTime();
+			TransportResponse response;
+			try {
+				response = transport.execute(request);
+			} catch (IOException | RuntimeException e) {
+				if (running.decrementAndGet() == 0) {
+					winner.completeExceptionally(e);	// every copy failed
+				}
+				return;
+			}
+			window.record(System.nanoTime() - start);
+			if (index == 1) {
+				hedgeResponse = response;
+			}
+			if (!winner.complete(response)) {
+				close(response);	// lost the race
+			}
+		}
+
+		private synchronized void cancelAll() {
+			for (Future<?> call : calls) {
+				if (call != null) {
+					call.cancel(true);
+				}
+			}
+		}
+
+		private void close(TransportResponse response) {
+			try {
+				response.getBody().close();
+			} catch (IOException e) {
+				// the connection is discarded either way
+			}
+		}
+	}
+
+	/**
+	 * The last latencies of one endpoint, in nanoseconds.
+	 */
+	private static class LatencyWindow {
+
+		private final long[] samples;
+		private int count;
+		private int next;
+
+		LatencyWindow(int size) {
+			this.samples = new long[size];
+		}
+
+		synchronized void record(long nanos) {
+			samples[next] = nanos;
+			next = (next + 1) % samples.length;
+			count = Math.min(count + 1, samples.length);
+		}
+
+		/**
+		 * @return the percentile in nanoseconds, or -1 with fewer than minSamples latencies
+		 */
+		long percentile(double percentile, int minSamples) {
+			long[] sorted;
+			synchronized (this) {
+				if (count < minSamples) {
+					return -1;
+				}
+				sorted = Arrays.copyOf(samples, count);
+			}
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+		}
+	}
+
+	// Stats
+
+	public HedgePolicy getPolicy() {
+		return policy != null ? new HedgePolicy(policy) : null;
+	}
+
+	/**
+	 * Returns the number of GET calls that could have been hedged.
+	 */
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	/**
+	 * Returns the number of hedges sent, i.e. the extra calls.
+	 */
+	public long getHedgeCount() {
+		return hedgeCount.get();
+	}
+
+	/**
+	 * Returns the number of calls answered by their hedge rather than the original.
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWinCount.get();
+	}
+
+	/**
+	 * Returns the number of slow calls that were not hedged because the budget was used up.
+	 */
+	public long getBudgetExhaustedCount() {
+		return budgetExhaustedCount.get();
+	}
+
+	/**
+	 * Returns the current hedge delay of an endpoint path in milliseconds, or -1 while it has too few samples.
+	 */
+	public long getHedgeDelay(String path) {
+		LatencyWindow window = windows.get(path);
+		long nanos = window != null && policy != null ? window.percentile(policy.getPercentile(), policy.getMinSamples()) : -1;
+		return nanos < 0 ? -1 : Math.max(TimeUnit.NANOSECONDS.toMillis(nanos), policy.getMinDelay());
+	}
+}
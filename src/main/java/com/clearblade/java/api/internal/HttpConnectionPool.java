@@ -0,0 +1,436 @@
+package com.clearblade.java.api.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Thread safe pool of keep-alive sockets, keyed by scheme, host, port and proxy.
+ * <p>
+ * Connections through an HTTP proxy go to the proxy; https ones are tunnelled to the host with
+ * {@code CONNECT} before the TLS handshake. SOCKS proxies are left to {@link Socket}.
+ * </p>
+ * <p>
+ * The pool caps the number of open connections per host, evicts connections that have been
+ * idle for too long and validates connections that have been idle for a while before handing
+ * them out again. A single shared pool is used by {@link RequestEngine}; it is reconfigured
+ * from the {@link com.clearblade.java.api.InitOptions} on every
+ * {@link com.clearblade.java.api.ClearBlade#initialize} call.
+ * </p>
+ * @see PooledHttpClient
+ */
+public class HttpConnectionPool {
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+	public static final int DEFAULT_IDLE_TIMEOUT = 30000;
+	public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+
+	private static volatile HttpConnectionPool shared;
+
+	private final int maxConnectionsPerHost;
+	private final long idleTimeout;
+	private final long validateAfterInactivity;
+	private final TlsContext tls;
+
+	private final Map<String, Route> routes = new HashMap<>();
+	private final ScheduledExecutorService evictor;
+	private boolean shutdown = false;
+
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong reusedCount = new AtomicLong();
+	private final AtomicLong evictedCount = new AtomicLong();
+	private final AtomicLong staleCount = new AtomicLong();
+
+	/**
+	 * Per-host bookkeeping. Guarded by the pool monitor.
+	 */
+	private static class Route {
+		final Deque<PooledConnection> idle = new ArrayDeque<>();
+		int leased = 0;
+
+		int total() {
+			return leased + idle.size();
+		}
+	}
+
+	/**
+	 * Constructs a pool with the given limits.
+	 * @param maxConnectionsPerHost max open connections (idle and leased) per host
+	 * @param idleTimeout milliseconds an idle connection is kept before being evicted
+	 * @param validateAfterInactivity milliseconds of inactivity after which a connection is health checked before reuse
+	 */
+	public HttpConnectionPool(int maxConnectionsPerHost, int idleTimeout, int validateAfterInactivity) {
+		this(maxConnectionsPerHost, idleTimeout, validateAfterInactivity, TlsContext.getShared());
+	}
+
+	/**
+	 * Constructs a pool with the given limits whose https connections are made with the given TLS context.
+	 */
+	public HttpConnectionPool(int maxConnectionsPerHost, int idleTimeout, int validateAfterInactivity, TlsContext tls) {
+		if (maxConnectionsPerHost <= 0) {
+			throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		this.idleTimeout = Math.max(0, idleTimeout);
+		this.validateAfterInactivity = validateAfterInactivity;
+		this.tls = tls;
+
+		this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "clearblade-connection-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000, this.idleTimeout / 2);
+		this.evictor.scheduleWithFixedDelay(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the pool shared by all RequestEngine instances, creating it with default limits if needed.
+	 */
+	public static HttpConnectionPool getShared() {
+		HttpConnectionPool pool = shared;
+		if (pool == null) {
+			synchronized (HttpConnectionPool.class) {
+				if (shared == null) {
+					shared = new HttpConnectionPool(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT, DEFAULT_VALIDATE_AFTER_INACTIVITY);
+				}
+				pool = shared;
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Replaces the shared pool if the given limits differ from the current ones. The previous
+	 * pool is shut down; connections it has leased out are closed once released.
+	 */
+	public static synchronized void configureShared(int maxConnectionsPerHost, int idleTimeout, int validateAfterInactivity) {
+		configureShared(maxConnectionsPerHost, idleTimeout, validateAfterInactivity, TlsContext.getShared());
+	}
+
+	/**
+	 * Same as {@link #configureShared(int, int, int)}; the pool is also replaced if its TLS context
+	 * differs, so no connection made with previous TLS settings is reused.
+	 */
+	public static synchronized void configureShared(int maxConnectionsPerHost, int idleTimeout, int validateAfterInactivity, TlsContext tls) {
+		HttpConnectionPool current = shared;
+		if (current != null
+				&& current.maxConnectionsPerHost == maxConnectionsPerHost
+				&& current.idleTimeout == idleTimeout
+				&& current.validateAfterInactivity == validateAfterInactivity
+				&& current.tls == tls) {
+			return;
+		}
+		shared = new HttpConnectionPool(maxConnectionsPerHost, idleTimeout, validateAfterInactivity, tls);
+		if (current != null) {
+			current.shutdown();
+		}
+	}
+
+	/**
+	 * Leases a connection to the given host, reusing an idle one when possible. Blocks while
+	 * the host is at its connection limit.
+	 * @param proxy proxy to connect through, or {@link Proxy#NO_PROXY}
+	 * @param timeout milliseconds to wait for a free slot and to establish a new connection (0 waits forever)
+	 * @param validateAlways health check any idle connection regardless of how long it has been idle
+	 * @throws IOException if no connection could be obtained
+	 */
+	PooledConnection acquire(String scheme, String host, int port, Proxy proxy, int timeout, boolean validateAlways) throws IOException {
+		String key = scheme + "://" + host + ":" + port;
+		if (proxy.type() != Proxy.Type.DIRECT) {
+			key += " via " + proxy;
+		}
+		long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+
+		while (true) {
+			PooledConnection candidate = null;
+			boolean create = false;
+			List<PooledConnection> expired = new ArrayList<>(0);
+
+			synchronized (this) {
+				while (candidate == null && !create) {
+					if (shutdown) {
+						throw new IOException("connection pool is shut down");
+					}
+					Route route = routes.computeIfAbsent(key, k -> new Route());
+					long now = System.currentTimeMillis();
+
+					PooledConnection conn;
+					while ((conn = route.idle.pollFirst()) != null) {
+						if (conn.isExpired(now) || !conn.isOpen()) {
+							expired.add(conn);
+							continue;
+						}
+						candidate = conn;
+						route.leased++;
+						break;
+					}
+
+					if (candidate == null) {
+						if (route.total() < maxConnectionsPerHost) {
+							route.leased++;
+							create = true;
+						} else {
+							long remaining = deadline - now;
+							if (remaining <= 0) {
+								throw new IOException("timed out waiting for a connection to " + key);
+							}
+							try {
+								if (deadline == Long.MAX_VALUE) {
+									wait();
+								} else {
+									wait(remaining);
+								}
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+								throw new IOException("interrupted while waiting for a connection to " + key);
+							}
+						}
+					}
+				}
+			}
+
+			for (PooledConnection conn : expired) {
+				conn.close();
+				evictedCount.incrementAndGet();
+			}
+
+			if (candidate != null) {
+				long idleFor = candidate.getIdleMillis(System.currentTimeMillis());
+				if ((validateAlways || idleFor >= validateAfterInactivity) && candidate.isStale()) {
+					staleCount.incrementAndGet();
+					release(candidate, false, 0);
+					continue;
+				}
+				candidate.markReused();
+				reusedCount.incrementAndGet();
+				return candidate;
+			}
+
+			try {
+				PooledConnection conn = connect(key, scheme, host, port, proxy, timeout);
+				createdCount.incrementAndGet();
+				return conn;
+			} catch (IOException | RuntimeException e) {
+				synchronized (this) {
+					routes.get(key).leased--;
+					notifyAll();
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Hands a leased connection back to the pool.
+	 * @param reusable false if the connection must be closed instead of kept alive
+	 * @param keepAlive milliseconds the server is willing to keep the connection open, or 0 if unknown
+	 */
+	void release(PooledConnection conn, boolean reusable, long keepAlive) {
+		boolean close;
+		synchronized (this) {
+			Route route = routes.get(conn.route);
+			if (route != null) {
+				route.leased--;
+			}
+			close = !reusable || shutdown || route == null || !conn.isOpen();
+			if (!close) {
+				long now = System.currentTimeMillis();
+				long ttl = keepAlive > 0 ? Math.min(keepAlive, idleTimeout) : idleTimeout;
+				conn.markIdle(now, now + ttl);
+				route.idle.addFirst(conn);
+			}
+			notifyAll();
+		}
+		if (close) {
+			conn.close();
+		}
+	}
+
+	/**
+	 * Closes idle connections that have outlived their idle timeout.
+	 */
+	void evictExpired() {
+		List<PooledConnection> expired = new ArrayList<>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (Route route : routes.values()) {
+				Iterator<PooledConnection> it = route.idle.iterator();
+				while (it.hasNext()) {
+					PooledConnection conn = it.next();
+					if (conn.isExpired(now) || !conn.isOpen()) {
+						it.remove();
+						expired.add(conn);
+					}
+				}
+			}
+			if (!expired.isEmpty()) {
+				notifyAll();
+			}
+		}
+		for (PooledConnection conn : expired) {
+			conn.close();
+			evictedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Closes all idle connections and stops the eviction thread. Leased connections are closed
+	 * when they are released.
+	 */
+	public void shutdown() {
+		List<PooledConnection> idle = new ArrayList<>();
+		synchronized (this) {
+			shutdown = true;
+			for (Route route : routes.values()) {
+				idle.addAll(route.idle);
+				route.idle.clear();
+			}
+			notifyAll();
+		}
+		evictor.shutdownNow();
+		for (PooledConnection conn : idle) {
+			conn.close();
+		}
+	}
+
+	private PooledConnection connect(String key, String scheme, String host, int port, Proxy proxy, int timeout) throws IOException {
+		// IPv6 literals come bracketed from java.net.URL
+		String address = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+
+		Socket socket = proxy.type() == Proxy.Type.SOCKS ? new Socket(proxy) : new Socket();
+		try {
+			if (proxy.type() == Proxy.Type.HTTP) {
+				InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
+				socket.connect(new InetSocketAddress(proxyAddress.getHostString(), proxyAddress.getPort()), Math.max(0, timeout));
+			} else if (proxy.type() == Proxy.Type.SOCKS) {
+				// let the proxy resolve the host
+				socket.connect(InetSocketAddress.createUnresolved(address, port), Math.max(0, timeout));
+			} else {
+				socket.connect(new InetSocketAddress(address, port), Math.max(0, timeout));
+			}
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+
+			if (proxy.type() == Proxy.Type.HTTP && "https".equalsIgnoreCase(scheme)) {
+				tunnel(socket, host, port, timeout);
+			}
+			if ("https".equalsIgnoreCase(scheme)) {
+				socket = tls.handshake(socket, address, port);
+			}
+			return new PooledConnection(key, socket);
+
+		} catch (IOException | RuntimeException e) {
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Asks the HTTP proxy at the other end of the socket to open a tunnel to the given host.
+	 * @throws IOException if the proxy does not answer with 2xx
+	 */
+	private static void tunnel(Socket socket, String host, int port, int timeout) throws IOException {
+		String authority = host + ":" + port;
+		OutputStream out = socket.getOutputStream();
+		out.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+
+		// read unbuffered: whatever follows the proxy's reply belongs to the TLS handshake
+		int savedTimeout = socket.getSoTimeout();
+		socket.setSoTimeout(Math.max(0, timeout));
+		try {
+			InputStream in = socket.getInputStream();
+			String statusLine = PooledHttpClient.readLine(in);
+			if (statusLine == null) {
+				throw new IOException("proxy closed the connection before opening a tunnel to " + authority);
+			}
+			String line;
+			while ((line = PooledHttpClient.readLine(in)) != null && line.length() > 0) {
+				// skip the proxy's headers
+			}
+			if (line == null) {
+				throw new IOException("proxy closed the connection before opening a tunnel to " + authority);
+			}
+			String[] parts = statusLine.split(" ", 3);
+			if (parts.length < 2 || !parts[0].startsWith("HTTP/") || !parts[1].startsWith("2")) {
+				throw new IOException("proxy refused a tunnel to " + authority + ": " + statusLine);
+			}
+		} finally {
+			socket.setSoTimeout(savedTimeout);
+		}
+	}
+
+	// Stats
+
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	public TlsContext getTlsContext() {
+		return tls;
+	}
+
+	public synchronized int getIdleCount() {
+		int count = 0;
+		for (Route route : routes.values()) {
+			count += route.idle.size();
+		}
+		return count;
+	}
+
+	public synchronized int getLeasedCount() {
+		int count = 0;
+		for (Route route : routes.values()) {
+			count += route.leased;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of connections opened by this pool so far.
+	 */
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	/**
+	 * Returns the number of times an idle connection was handed out again.
+	 */
+	public long getReusedCount() {
+		return reusedCount.get();
+	}
+
+	/**
+	 * Returns the number of idle connections closed because they expired.
+	 */
+	public long getEvictedCount() {
+		return evictedCount.get();
+	}
+
+	/**
+	 * Returns the number of idle connections that failed their health check.
+	 */
+	public long getStaleCount() {
+		return staleCount.get();
+	}
+}
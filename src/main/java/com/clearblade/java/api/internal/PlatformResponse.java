@@ -10,6 +10,7 @@ public class PlatformResponse<T> {
 	
 	private boolean error;
 	private T data;
+	private String errorMessage;
 	/**
 	 * Returns the Data stored in the ApiResponse Object
 	 * @return T Any Data type stored
@@ -18,6 +19,14 @@ public class PlatformResponse<T> {
 		return this.data;
 	}
 	
+	/**
+	 * Returns the description of the error, or null if the call succeeded. For String responses this
+	 * is the same as {@link #getData()}.
+	 */
+	public String getErrorMessage() {
+		return this.errorMessage;
+	}
+
 	/**
 	 * Returns a boolean that determines if an error
 	 * occurred during the API call
@@ -43,6 +52,19 @@ public class PlatformResponse<T> {
 	public PlatformResponse(boolean error, T data) {
 		this.error = error;
 		this.data = data;
+		if (error && data instanceof String) {
+			this.errorMessage = (String) data;
+		}
+	}
+
+	/**
+	 * Constructs a failed response for calls whose data type cannot hold the error description.
+	 * @param errorMessage description of the error
+	 */
+	public static <T> PlatformResponse<T> failure(String errorMessage) {
+		PlatformResponse<T> result = new PlatformResponse<T>(true, null);
+		result.errorMessage = errorMessage;
+		return result;
 	}
 	
 	
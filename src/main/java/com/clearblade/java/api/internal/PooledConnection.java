@@ -0,0 +1,128 @@
+package com.clearblade.java.api.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * A single keep-alive socket owned by a {@link HttpConnectionPool}.
+ * <p>
+ * Instances are leased to one request at a time and handed back to the pool once the
+ * response body has been fully consumed.
+ * </p>
+ * @see HttpConnectionPool
+ * @see PooledHttpClient
+ */
+class PooledConnection {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	final String route;
+	final InputStream in;
+	final OutputStream out;
+
+	private final Socket socket;
+	private long lastUsedAt;
+	private long expiresAt;
+	private boolean reused;
+	private boolean responseStarted;
+
+	PooledConnection(String route, Socket socket) throws IOException {
+		this.route = route;
+		this.socket = socket;
+		this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+		this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+		this.lastUsedAt = System.currentTimeMillis();
+		this.expiresAt = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Marks the connection as idle, usable until the given absolute time in milliseconds.
+	 */
+	void markIdle(long now, long expiresAt) {
+		this.lastUsedAt = now;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * Marks the connection as leased again after having been idle in the pool.
+	 */
+	void markReused() {
+		this.reused = true;
+		this.responseStarted = false;
+	}
+
+	/**
+	 * Returns true if this connection carried at least one earlier exchange.
+	 */
+	boolean isReused() {
+		return reused;
+	}
+
+	void markResponseStarted() {
+		this.responseStarted = true;
+	}
+
+	/**
+	 * Returns true once a status line has been read for the current exchange.
+	 */
+	boolean isResponseStarted() {
+		return responseStarted;
+	}
+
+	boolean isExpired(long now) {
+		return now >= expiresAt;
+	}
+
+	long getIdleMillis(long now) {
+		return now - lastUsedAt;
+	}
+
+	boolean isOpen() {
+		return !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+	}
+
+	/**
+	 * Health check for idle connections. Peeks at the socket with a very short timeout: a
+	 * healthy keep-alive connection has nothing to read, while a connection the server has
+	 * already closed reports end of stream.
+	 * @return true if the connection must not be reused
+	 */
+	boolean isStale() {
+		if (!isOpen()) {
+			return true;
+		}
+		int savedTimeout = 0;
+		try {
+			savedTimeout = socket.getSoTimeout();
+			socket.setSoTimeout(1);
+			in.mark(1);
+			if (in.read() == -1) {
+				return true;
+			}
+			// unsolicited bytes on an idle connection; nothing we can safely do with it
+			in.reset();
+			return true;
+		} catch (SocketTimeoutException e) {
+			return false;
+		} catch (IOException e) {
+			return true;
+		} finally {
+			try {
+				socket.setSoTimeout(savedTimeout);
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	void close() {
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+		}
+	}
+}
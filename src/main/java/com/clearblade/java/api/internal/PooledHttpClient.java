@@ -0,0 +1,392 @@
+package com.clearblade.java.api.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.clearblade.java.api.transport.RequestBody;
+
+/**
+ * Minimal HTTP/1.1 client that runs every exchange over a keep-alive connection leased from a
+ * {@link HttpConnectionPool}.
+ * <p>
+ * Unlike {@link java.net.HttpURLConnection}, which gives up its socket on every
+ * {@code disconnect()}, connections are returned to the pool as soon as the response body has
+ * been consumed, so consecutive platform calls skip the TCP and TLS handshakes. The proxy is
+ * chosen by the default {@link ProxySelector}, as {@code HttpURLConnection} would.
+ * </p>
+ * <pre>
+ * PooledHttpClient client = new PooledHttpClient(HttpConnectionPool.getShared());
+ * PooledHttpResponse resp = client.execute("GET", url, headers, null, 30000);
+ * try (InputStream in = resp.getBody()) {
+ *     // consume the body
+ * }
+ * </pre>
+ * @see HttpConnectionPool
+ * @see PooledHttpResponse
+ */
+public class PooledHttpClient {
+
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	private final HttpConnectionPool pool;
+
+	public PooledHttpClient(HttpConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sends the request and returns once the status line and headers have been read.
+	 * <p>
+	 * If a reused connection turns out to have been closed by the server, the request is sent
+	 * once more on a fresh connection, provided it is idempotent or was not written yet.
+	 * </p>
+	 * @param method http method
+	 * @param url absolute http or https url
+	 * @param headers request headers; Host, Content-Length and Transfer-Encoding are set by the client
+	 * @param body request body, or null for none
+	 * @param timeout milliseconds to wait for a pooled connection and to connect (0 waits forever)
+	 * @return the response, whose body must be consumed or closed
+	 * @throws IOException if the exchange failed
+	 * @throws IllegalArgumentException if a header name or value contains a line break
+	 */
+	public PooledHttpResponse execute(String method, URL url, Map<String, String> headers, byte[] body, int timeout) throws IOException {
+		return executeStreaming(method, url, headers, body != null ? RequestBody.of(body) : null, timeout);
+	}
+
+	/**
+	 * Same as {@link #execute(String, URL, Map, byte[], int)}, but writes the body straight to the
+	 * connection: with a Content-Length if its length is known, chunked otherwise.
+	 */
+	public PooledHttpResponse executeStreaming(String method, URL url, Map<String, String> headers, RequestBody body, int timeout) throws IOException {
+		String scheme = url.getProtocol();
+		if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+			throw new IOException("unsupported protocol: " + scheme);
+		}
+		checkHeaders(headers);
+		int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+		boolean idempotent = isIdempotent(method);
+		Proxy proxy = selectProxy(url);
+		// a plain http request to a proxy names the whole url; https ones go through a tunnel
+		boolean absoluteTarget = proxy.type() == Proxy.Type.HTTP && "http".equalsIgnoreCase(scheme);
+
+		for (int attempt = 0; ; attempt++) {
+			PooledConnection conn = pool.acquire(scheme, url.getHost(), port, proxy, timeout, attempt > 0);
+			boolean sent = false;
+			try {
+				writeRequest(conn.out, method, url, port, absoluteTarget, headers, body);
+				sent = true;
+				return readResponse(conn, method);
+
+			} catch (IOException e) {
+				pool.release(conn, false, 0);
+				boolean staleConnection = conn.isReused() && !conn.isResponseStarted();
+				if (attempt > 0 || !staleConnection || (sent && !idempotent)) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	private static Proxy selectProxy(URL url) {
+		ProxySelector selector = ProxySelector.getDefault();
+		if (selector == null) {
+			return Proxy.NO_PROXY;
+		}
+		try {
+			List<Proxy> proxies = selector.select(url.toURI());
+			return proxies == null || proxies.isEmpty() ? Proxy.NO_PROXY : proxies.get(0);
+		} catch (URISyntaxException e) {
+			return Proxy.NO_PROXY;
+		}
+	}
+
+	/**
+	 * Rejects header names and values that would end the header line early and smuggle in
+	 * headers or a request of their own.
+	 */
+	private static void checkHeaders(Map<String, String> headers) {
+		for (Map.Entry<String, String> entry : headers.entrySet()) {
+			if (hasLineBreak(entry.getKey()) || hasLineBreak(entry.getValue())) {
+				throw new IllegalArgumentException("line break in request header " + entry.getKey());
+			}
+		}
+	}
+
+	private static boolean hasLineBreak(String s) {
+		return s != null && (s.indexOf('\r') >= 0 || s.indexOf('\n') >= 0);
+	}
+
+	private void writeRequest(OutputStream out, String method, URL url, int port, boolean absoluteTarget, Map<String, String> headers, RequestBody body) throws IOException {
+		String target = url.getFile();
+		if (target == null || target.isEmpty()) {
+			target = "/";
+		}
+		if (absoluteTarget) {
+			target = url.getProtocol() + "://" + url.getAuthority() + target;
+		}
+
+		StringBuilder head = new StringBuilder(256);
+		head.append(method).append(' ').append(target).append(" HTTP/1.1\r\n");
+		head.append("Host: ").append(url.getHost());
+		if (port != url.getDefaultPort()) {
+			head.append(':').append(port);
+		}
+		head.append("\r\n");
+
+		for (Map.Entry<String, String> entry : headers.entrySet()) {
+			if (entry.getValue() == null) {
+				continue;
+			}
+			head.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+		}
+		long length = body != null ? body.contentLength() : -1;
+		if (length >= 0) {
+			head.append("Content-Length: ").append(length).append("\r\n");
+		} else if (body != null) {
+			head.append("Transfer-Encoding: chunked\r\n");
+		}
+		head.append("\r\n");
+
+		out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+		if (body != null) {
+			// the connection's buffer is the only copy of the body
+			ChunkedOutputStream chunked = length >= 0 ? null : new ChunkedOutputStream(out);
+			body.writeTo(new BodyOutputStream(chunked != null ? chunked : out));
+			if (chunked != null) {
+				chunked.finish();
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Keeps a body writer from closing the connection.
+	 */
+	private static class BodyOutputStream extends FilterOutputStream {
+
+		BodyOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			// the request is finished by writeRequest
+		}
+	}
+
+	/**
+	 * Frames the body as HTTP/1.1 chunks, one per write of the buffered writer above.
+	 */
+	private static class ChunkedOutputStream extends OutputStream {
+
+		private static final byte[] CRLF = { '\r', '\n' };
+
+		private final OutputStream out;
+		private final byte[] buffer = new byte[8192];
+		private int count;
+
+		ChunkedOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == buffer.length) {
+				writeChunk();
+			}
+			buffer[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len >= buffer.length) {
+				writeChunk();
+				writeChunk(b, off, len);
+				return;
+			}
+			if (len > buffer.length - count) {
+				writeChunk();
+			}
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+		}
+
+		private void writeChunk() throws IOException {
+			writeChunk(buffer, 0, count);
+			count = 0;
+		}
+
+		private void writeChunk(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return;	// an empty chunk would end the body
+			}
+			out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+			out.write(CRLF);
+			out.write(b, off, len);
+			out.write(CRLF);
+		}
+
+		void finish() throws IOException {
+			writeChunk();
+			out.write('0');
+			out.write(CRLF);
+			out.write(CRLF);
+		}
+	}
+
+	private PooledHttpResponse readResponse(PooledConnection conn, String method) throws IOException {
+		InputStream in = conn.in;
+
+		String statusLine;
+		int statusCode;
+		Map<String, String> headers;
+		do {
+			statusLine = readLine(in);
+			if (statusLine == null) {
+				throw new IOException("connection closed before a response was received");
+			}
+			conn.markResponseStarted();
+			statusCode = parseStatusCode(statusLine);
+			headers = readHeaders(in);
+		} while (statusCode / 100 == 1);	// skip interim responses
+
+		String reasonPhrase = parseReasonPhrase(statusLine);
+		boolean http10 = statusLine.startsWith("HTTP/1.0");
+
+		String connection = headers.get("connection");
+		boolean reusable = http10
+				? connection != null && connection.toLowerCase().contains("keep-alive")
+				: connection == null || !connection.toLowerCase().contains("close");
+
+		boolean noBody = "HEAD".equalsIgnoreCase(method) || statusCode == 204 || statusCode == 304;
+		String transferEncoding = headers.get("transfer-encoding");
+		boolean chunked = !noBody && transferEncoding != null && transferEncoding.toLowerCase().contains("chunked");
+
+		long contentLength = PooledHttpResponse.BodyStream.UNTIL_CLOSE;
+		if (noBody) {
+			contentLength = 0;
+		} else if (!chunked && headers.get("content-length") != null) {
+			try {
+				contentLength = Long.parseLong(headers.get("content-length").trim());
+			} catch (NumberFormatException e) {
+				throw new IOException("invalid content length: " + headers.get("content-length"));
+			}
+		}
+
+		InputStream body = new PooledHttpResponse.BodyStream(pool, conn, chunked, contentLength, reusable, parseKeepAlive(headers.get("keep-alive")));
+		return new PooledHttpResponse(statusCode, reasonPhrase, headers, body);
+	}
+
+	private static Map<String, String> readHeaders(InputStream in) throws IOException {
+		Map<String, String> headers = new LinkedHashMap<>();
+		String line;
+		while ((line = readLine(in)) != null && line.length() > 0) {
+			int colon = line.indexOf(':');
+			if (colon <= 0) {
+				continue;
+			}
+			String name = line.substring(0, colon).trim().toLowerCase();
+			String value = line.substring(colon + 1).trim();
+			headers.merge(name, value, (a, b) -> a + "," + b);
+		}
+		if (line == null) {
+			throw new IOException("connection closed while reading response headers");
+		}
+		return headers;
+	}
+
+	private static int parseStatusCode(String statusLine) throws IOException {
+		// HTTP/1.1 200 OK
+		int start = statusLine.indexOf(' ');
+		if (!statusLine.startsWith("HTTP/") || start < 0 || statusLine.length() < start + 4) {
+			throw new IOException("invalid status line: " + statusLine);
+		}
+		try {
+			return Integer.parseInt(statusLine.substring(start + 1, start + 4));
+		} catch (NumberFormatException e) {
+			throw new IOException("invalid status line: " + statusLine);
+		}
+	}
+
+	private static String parseReasonPhrase(String statusLine) {
+		int start = statusLine.indexOf(' ');
+		int reason = statusLine.indexOf(' ', start + 1);
+		return reason < 0 ? "" : statusLine.substring(reason + 1);
+	}
+
+	/**
+	 * Parses the timeout of a {@code Keep-Alive: timeout=5, max=100} header into milliseconds.
+	 */
+	private static long parseKeepAlive(String keepAlive) {
+		if (keepAlive == null) {
+			return 0;
+		}
+		for (String param : keepAlive.split(",")) {
+			String[] pair = param.trim().split("=", 2);
+			if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("timeout")) {
+				try {
+					return Long.parseLong(pair[1].trim()) * 1000;
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads a CRLF (or bare LF) terminated line as ISO-8859-1.
+	 * @return the line without its terminator, or null at end of stream
+	 */
+	static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+		int b;
+		while ((b = in.read()) != -1) {
+			if (b == '\n') {
+				break;
+			}
+			if (line.size() >= MAX_LINE_LENGTH) {
+				throw new IOException("response line too long");
+			}
+			line.write(b);
+		}
+		if (b == -1 && line.size() == 0) {
+			return null;
+		}
+		byte[] bytes = line.toByteArray();
+		int len = bytes.length;
+		if (len > 0 && bytes[len - 1] == '\r') {
+			len--;
+		}
+		return new String(bytes, 0, len, StandardCharsets.ISO_8859_1);
+	}
+
+	static boolean isIdempotent(String method) {
+		switch (method.toUpperCase()) {
+			case "GET":
+			case "HEAD":
+			case "PUT":
+			case "DELETE":
+			case "OPTIONS":
+				return true;
+			default:
+				return false;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.clearblade.java.api.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Response of a {@link PooledHttpClient} exchange.
+ * <p>
+ * The body must be read to the end or closed: that is what hands the underlying connection
+ * back to its {@link HttpConnectionPool}.
+ * </p>
+ */
+public class PooledHttpResponse {
+
+	private final int statusCode;
+	private final String reasonPhrase;
+	private final Map<String, String> headers;
+	private final InputStream body;
+
+	PooledHttpResponse(int statusCode, String reasonPhrase, Map<String, String> headers, InputStream body) {
+		this.statusCode = statusCode;
+		this.reasonPhrase = reasonPhrase;
+		this.headers = Collections.unmodifiableMap(headers);
+		this.body = body;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public String getReasonPhrase() {
+		return reasonPhrase;
+	}
+
+	/**
+	 * Returns the response headers keyed by lower case name. Repeated headers are joined with a comma.
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Returns the value of the given header, or null.
+	 * @param name case insensitive header name
+	 */
+	public String getHeader(String name) {
+		return headers.get(name.toLowerCase());
+	}
+
+	/**
+	 * Returns the response body. Closing it releases the connection.
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+
+	/**
+	 * Body stream that decodes the HTTP/1.1 message framing (content length, chunked or
+	 * read-until-close) and gives the connection back to the pool once the body is consumed.
+	 */
+	static class BodyStream extends InputStream {
+
+		static final long UNTIL_CLOSE = -1;
+		private static final int DRAIN_LIMIT = 64 * 1024;
+
+		private final HttpConnectionPool pool;
+		private final PooledConnection conn;
+		private final InputStream in;
+		private final boolean chunked;
+		private final boolean reusable;
+		private final long keepAlive;
+
+		private long remaining;			// bytes left in the body (fixed length) or current chunk (chunked)
+		private boolean firstChunk = true;
+		private boolean eof = false;
+		private boolean closed = false;
+		private boolean released = false;
+
+		BodyStream(HttpConnectionPool pool, PooledConnection conn, boolean chunked, long contentLength, boolean reusable, long keepAlive) {
+			this.pool = pool;
+			this.conn = conn;
+			this.in = conn.in;
+			this.chunked = chunked;
+			this.reusable = reusable && (chunked || contentLength != UNTIL_CLOSE);
+			this.keepAlive = keepAlive;
+			this.remaining = chunked ? 0 : contentLength;
+			if (!chunked && contentLength == 0) {
+				finish();
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			int n = read(one, 0, 1);
+			return n == -1 ? -1 : (one[0] & 0xff);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("response body is closed");
+			}
+			if (eof) {
+				return -1;
+			}
+			if (len == 0) {
+				return 0;
+			}
+			try {
+				if (chunked && remaining == 0) {
+					remaining = nextChunkSize();
+					if (remaining == 0) {
+						skipTrailers();
+						finish();
+						return -1;
+					}
+				}
+
+				int toRead = remaining == UNTIL_CLOSE ? len : (int) Math.min(len, remaining);
+				int n = in.read(b, off, toRead);
+				if (n == -1) {
+					if (remaining == UNTIL_CLOSE) {
+						finish();
+						return -1;
+					}
+					throw new EOFException("premature end of response body");
+				}
+				if (remaining != UNTIL_CLOSE) {
+					remaining -= n;
+					if (!chunked && remaining == 0) {
+						finish();
+					}
+				}
+				return n;
+
+			} catch (IOException e) {
+				discard();
+				throw e;
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			if (closed || eof) {
+				return 0;
+			}
+			int avail = in.available();
+			return remaining == UNTIL_CLOSE ? avail : (int) Math.min(avail, remaining);
+		}
+
+		/**
+		 * Closes the body. Small unread remainders are drained so the connection can still be
+		 * reused; anything larger closes the connection.
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			if (!eof && reusable) {
+				try {
+					byte[] buf = new byte[4096];
+					long drained = 0;
+					int n;
+					while (drained < DRAIN_LIMIT && (n = read(buf, 0, buf.length)) != -1) {
+						drained += n;
+					}
+				} catch (IOException ignored) {
+				}
+			}
+			closed = true;
+			if (!eof) {
+				discard();
+			}
+		}
+
+		private long nextChunkSize() throws IOException {
+			if (!firstChunk) {
+				PooledHttpClient.readLine(in);		// CRLF terminating the previous chunk
+			}
+			firstChunk = false;
+			String line = PooledHttpClient.readLine(in);
+			if (line == null) {
+				throw new EOFException("premature end of chunked response body");
+			}
+			int ext = line.indexOf(';');
+			if (ext >= 0) {
+				line = line.substring(0, ext);
+			}
+			try {
+				return Long.parseLong(line.trim(), 16);
+			} catch (NumberFormatException e) {
+				throw new IOException("invalid chunk size: " + line);
+			}
+		}
+
+		private void skipTrailers() throws IOException {
+			String line;
+			do {
+				line = PooledHttpClient.readLine(in);
+			} while (line != null && line.length() > 0);
+		}
+
+		private void finish() {
+			eof = true;
+			if (!released) {
+				released = true;
+				pool.release(conn, reusable, keepAlive);
+			}
+		}
+
+		private void discard() {
+			if (!released) {
+				released = true;
+				pool.release(conn, false, 0);
+			}
+		}
+	}
+}
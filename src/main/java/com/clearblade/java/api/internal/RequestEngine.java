@@ -1,28 +1,22 @@
 package com.clearblade.java.api.internal;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URL;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
+import java.util.function.UnaryOperator;
 
 import com.clearblade.java.api.ClearBlade;
 import com.clearblade.java.api.Util;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.RequestBody;
+import com.clearblade.java.api.transport.ResponseBodyHandler;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
 
 
 /**
@@ -47,16 +41,13 @@ import com.clearblade.java.api.Util;
  * @author Clyde Byrd III
  * @author Aaron Allsbrook
  * @since 1.0
- * @see HttpURLConnection
+ * @see com.clearblade.java.api.transport.HttpTransport
  * @see PlatformResponse
  *
  */
 public class RequestEngine {
 	private final String TAG = "RequestEngine";
 	
-	//internal flag for understanding the use of SSL on the platform server
-	private int isSSL = -1;
-	
 	private RequestProperties headers;
 	
 	/**
@@ -83,6 +74,53 @@ public class RequestEngine {
 	public PlatformResponse<String> execute() {
 		return request();
 	}
+
+	/**
+	 * Executes the API call and hands a successful response body to the given handler as it
+	 * streams in, instead of reading it into a String first. On failure the returned response has
+	 * no data and describes the error in {@link PlatformResponse#getErrorMessage()}.
+	 * @param handler turns the response body into the result
+	 * @return result stores the condition of the ApiRequest
+	 */
+	public <T> PlatformResponse<T> execute(ResponseBodyHandler<T> handler) {
+		return request(handler);
+	}
+
+	/**
+	 * Same as {@link #execute(ResponseBodyHandler)}, but a GET to an endpoint configured for
+	 * single-flight waits for an identical call already in flight and shares its result instead
+	 * of calling the platform again.
+	 * @param kind names what the handler builds; only calls of the same kind share results
+	 * @param handler turns the response body into the result
+	 * @param copy gives a caller that shares the result its own copy, if the result is mutable
+	 * @return result stores the condition of the ApiRequest
+	 * @see SingleFlight
+	 */
+	public <T> PlatformResponse<T> executeShared(String kind, ResponseBodyHandler<T> handler, UnaryOperator<T> copy) {
+		if (this.headers == null) {
+			throw new IllegalArgumentException("The headers must not be null!");
+		}
+		SingleFlight flights = SingleFlight.getShared();
+		if (!"GET".equalsIgnoreCase(this.headers.getMethod()) || !flights.appliesTo(path(this.headers.getUri()))) {
+			return request(handler);
+		}
+		// calls made with different credentials never share a result
+		String key = kind + " " + this.headers.getUri() + " " + ClearBlade.getAuth().getRequestHeaders();
+		SingleFlight.Result<PlatformResponse<T>> result = flights.execute(key, () -> request(handler));
+		PlatformResponse<T> response = result.getValue();
+		if (!result.isShared() || response.isError()) {
+			return response;
+		}
+		return new PlatformResponse<T>(false, copy.apply(response.getData()));
+	}
+
+	private static String path(String uri) {
+		int query = uri.indexOf('?');
+		String withoutQuery = query >= 0 ? uri.substring(0, query) : uri;
+		int scheme = withoutQuery.indexOf("://");
+		int slash = withoutQuery.indexOf('/', scheme >= 0 ? scheme + 3 : 0);
+		return slash >= 0 ? withoutQuery.substring(slash) : "/";
+	}
 	
 	/**
 	 * Returns an ApiResponse<String> object that contains the 
@@ -96,18 +134,17 @@ public class RequestEngine {
 	
 	/**
 	 * Returns the output from an InputStream
-	 * @param in inputStream to get data from
+	 * @param in inputStream to get data from, read as UTF-8
 	 * @return output A string gathered from the inputStream
 	 * @throws IOException
 	 */
 	private String readStream(InputStream in) throws IOException {
-		StringBuilder sb = new StringBuilder();  
-		BufferedReader r = new BufferedReader(new InputStreamReader(in), 4096);  
-		for (String line = r.readLine(); line != null; line =r.readLine()){  
-			sb.append(line);  
-		}  
-		in.close();  
-		return sb.toString();
+		try {
+			return ResponseBodyHandler.ofString().handle(in);
+		} finally {
+			// closing the body hands the connection back to the pool
+			in.close();
+		}
 	}
 
 		
@@ -130,11 +167,24 @@ public class RequestEngine {
 	 * @throws IllegalArgumentException will be thrown if headers is null
 	 */
 	private PlatformResponse<String> request(){
+		// Strings are immutable, so callers sharing a single-flight result need no copy
+		PlatformResponse<String> result = executeShared("string", this::readStream, UnaryOperator.identity());
+		if (result.isError()) {
+			return new PlatformResponse<String>(true, result.getErrorMessage());
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the API call, passing a successful body to the handler.
+	 * @private
+	 * @throws IllegalArgumentException will be thrown if headers is null
+	 */
+	private <T> PlatformResponse<T> request(ResponseBodyHandler<T> handler){
 		if(this.headers == null){
 			throw new IllegalArgumentException("The headers must not be null!");
 		}
 		
-		HttpURLConnection urlConnection = null;
 		// used to determine if error happened during call
 		boolean err = false;
 
@@ -142,27 +192,14 @@ public class RequestEngine {
 		int responseCode = 0;
 		String responseMessage = null;
 
-		PlatformResponse<String> result = null;
-		SSLContext ctx=null;
+		PlatformResponse<T> result = null;
 		try {
-			if (isSSL() && ClearBlade.isAllowUntrusted()) {
-				ctx = createUntrustedManager(ctx);
-				HttpsURLConnection.setDefaultSSLSocketFactory(ctx.getSocketFactory());
-			}
+			// TLS settings, including allowUntrusted, live in the pool's shared TlsContext
 			String method = this.headers.getMethod();
 			String charset = "UTF-8";
 			URL url = new URL(this.headers.getUri());
-			
-			if (isSSL()){
-				urlConnection = (HttpsURLConnection) url.openConnection();
-				
-			}else {
-				urlConnection = (HttpURLConnection) url.openConnection();
-				
-			}
-			
-			urlConnection.setRequestMethod(method);
-			urlConnection.setConnectTimeout(this.headers.getTimeout());
+
+			Map<String, String> requestHeaders = new LinkedHashMap<String, String>();
 
 			// things get ugly here. most requests should just need usertoken, but you need key/secret
 			// to get token on the auth request and to register new user. also both token and key/secret 
@@ -175,18 +212,18 @@ public class RequestEngine {
 			String systemSecret = Util.getSystemSecret();
 
 			if (systemKey != null) {
-				urlConnection.setRequestProperty("CLEARBLADE-SYSTEMKEY", systemKey);
+				requestHeaders.put("CLEARBLADE-SYSTEMKEY", systemKey);
 			}
 
 			if (systemSecret != null) {
-				urlConnection.setRequestProperty("CLEARBLADE-SYSTEMSECRET", systemSecret);
+				requestHeaders.put("CLEARBLADE-SYSTEMSECRET", systemSecret);
 			}
 
 			// sets headers obtained from Auth method
 
 			Map<String, String> authHeaders = ClearBlade.getAuth().getRequestHeaders();
 			for (Map.Entry<String, String> entry : authHeaders.entrySet()) {
-			    urlConnection.setRequestProperty(entry.getKey(), entry.getValue());
+			    requestHeaders.put(entry.getKey(), entry.getValue());
 			}
 
 //			// set headers (old legacy code, commented out for reference)
@@ -209,41 +246,52 @@ public class RequestEngine {
 //				urlConnection.setRequestProperty("ClearBlade-UserToken", userToken);
 //			}
 
-			urlConnection.setRequestProperty("Accept", "application/json");
-			urlConnection.setRequestProperty("Accept-Charset", charset);
+			requestHeaders.put("Accept", "application/json");
+			requestHeaders.put("Accept-Charset", charset);
+			requestHeaders.put("Accept-Encoding", ContentCoding.ACCEPT_ENCODING);
 			
-			OutputStream output = null;
+			RequestBody body = null;
 
 			if (method.equalsIgnoreCase("POST") || method.equalsIgnoreCase("PUT")) {
-				urlConnection.setDoOutput(true);
-				urlConnection.setFixedLengthStreamingMode(this.headers.getBody().length());
-				//setDoOutput implicitly sets method to POST so re-set method for PUTs
-				urlConnection.setRequestMethod(method);
 				// Content-Type is necessary for POST and PUTS
-				urlConnection.setRequestProperty("Content-Type", "application/json");
-				
-				output = urlConnection.getOutputStream();
-				output.write(this.headers.getBody().getBytes(charset));
+				requestHeaders.put("Content-Type", "application/json; charset=" + charset);
+				body = this.headers.getBody() != null ? this.headers.getBody() : RequestBody.of(new byte[0]);
+				body = ContentCoding.encodeRequest(body, ClearBlade.getInitOptions().getRequestCompressionThreshold(), requestHeaders);
 			}
-			
-			//TODO : what is the expense of getResponseCode(), getResponseMessage(), getInputStream()
-			responseCode = urlConnection.getResponseCode();
-			responseMessage = urlConnection.getResponseMessage();
+
+			// the connection (or stream) is released once the body stream has been consumed
+			TransportRequest request = new TransportRequest(method, url, requestHeaders, body, this.headers.getTimeout());
+			// the response cache, if a CachePolicy was configured, in front of retries and circuit
+			// breakers, if a RetryPolicy was configured, around each attempt, which is hedged if it
+			// is a slow GET and a HedgePolicy was configured
+			HttpTransport transport = ClearBlade.getTransport();
+			Hedging hedging = Hedging.getShared();
+			Resilience resilience = Resilience.getShared();
+			TransportResponse response = ResponseCaching.getShared().execute(
+					req -> resilience.execute(r -> hedging.execute(transport, r), req), request, systemKey + " " + authHeaders);
+
+			responseCode = response.getStatusCode();
+			responseMessage = response.getReasonPhrase();
+
+			// inflates a gzip or deflate body while the handler reads it
+			InputStream in = ContentCoding.decode(response.getBody(), response.getHeader("Content-Encoding"));
 
 			if(responseCode / 100 == 2) {  // If the response code is within 200 range success
-				InputStream in = new BufferedInputStream(urlConnection.getInputStream());
-				String json = readStream(in);
-				result = new PlatformResponse<String>(err, json);
+				try {
+					result = new PlatformResponse<T>(err, handler.handle(in));
+				} finally {
+					// closing the body hands the connection back to the pool
+					in.close();
+				}
 				Util.logger(TAG,method + " "+ responseCode + ":" + responseMessage, false);
 
 			} else {	// else an Error Occurred 
 				String errMessage;
-				InputStream in = new BufferedInputStream(urlConnection.getErrorStream());
 				errMessage = readStream(in);
 				String errResp = responseCode + ":" + responseMessage + ":" + errMessage;
 				Util.logger(TAG,errResp, true);
 				err = true;
-				result = new PlatformResponse<String>(err,errResp);
+				result = PlatformResponse.failure(errResp);
 			}
 		}catch(Exception e) {
 
@@ -261,68 +309,10 @@ public class RequestEngine {
 			}
 			err = true;
 			e.printStackTrace();
-			result = new PlatformResponse<String>(err,"RequestEngine Caught " + caught + e.getMessage());
-		}
-		finally {
-			// Make sure to close connection
-			if (urlConnection!= null){
-				urlConnection.disconnect();
-			}
+			result = PlatformResponse.failure("RequestEngine Caught " + caught + e.getMessage());
 		}
 
 		return result;
 	}
-	
-	/**
-	 * Internal function to identify if the hosted platform is running under SSL
-	 * @return true if the platform uri contains https at the start
-	 */
-	private boolean isSSL() {
-		if (isSSL == -1) {
-			if (this.headers.getUri().startsWith("https")){
-				// if starts with https, then SSL is in use 
-				isSSL = 1;	
-			}else {
-				isSSL=0;
-			}
-		}
-		if (isSSL==1){
-			return true;
-		}
-		return false;
-	}
-	
-	/**
-	 * Internal function to hack around unsigned certificates on platform servers.  
-	 * @param ctx
-	 * @return SSLContext object that has a TrustManager that will accept all certificates
-	 * @throws KeyManagementException
-	 * @throws NoSuchAlgorithmException
-	 */
-	private SSLContext createUntrustedManager(SSLContext ctx) throws KeyManagementException, NoSuchAlgorithmException{
-		ctx = SSLContext.getInstance("SSL");
-		ctx.init(null, new TrustManager[] {
-			
-	       new X509TrustManager() {
-	          public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-	            return null;
-	          }
-
-			public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType)
-					throws CertificateException {
-				System.out.println("AARON : checking for client trusted");
-			}
-
-			public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType)
-					throws CertificateException {
-				System.out.println("AARON : checking for server trusted");
-				
-			}
-
-	       }
-		}, new java.security.SecureRandom());
-		return ctx;
-	}
 
 }
-
@@ -0,0 +1,159 @@
+package com.clearblade.java.api.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs platform calls off the caller's thread for the asynchronous API ({@code fetchAsync},
+ * {@code saveAsync}, {@code executeAsync}, ...).
+ * <p>
+ * At most {@code maxInFlight} calls run at the same time; any further calls are queued rather
+ * than getting a thread of their own, so fanning out hundreds of requests costs hundreds of
+ * futures, not hundreds of threads. Worker threads are daemons and time out when idle.
+ * </p>
+ * <pre>
+ * CompletableFuture&lt;QueryResponse&gt; future = RequestExecutor.getShared().submit(() -&gt; doFetch());
+ * </pre>
+ * @see RequestEngine
+ */
+public class RequestExecutor {
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 10;
+
+	private static volatile RequestExecutor shared;
+
+	// the executor owning the current worker thread
+	private static final ThreadLocal<RequestExecutor> OWNER = new ThreadLocal<>();
+
+	private final int maxInFlight;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Constructs an executor that runs at most the given number of calls concurrently.
+	 * @param maxInFlight max number of calls in flight
+	 */
+	public RequestExecutor(int maxInFlight) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("maxInFlight must be positive");
+		}
+		this.maxInFlight = maxInFlight;
+
+		final AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = r -> {
+			Thread t = new Thread(() -> {
+				OWNER.set(this);
+				r.run();
+			}, "clearblade-request-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+		this.executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), factory);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Returns the executor shared by the asynchronous API, creating it with default limits if needed.
+	 */
+	public static RequestExecutor getShared() {
+		RequestExecutor current = shared;
+		if (current == null) {
+			synchronized (RequestExecutor.class) {
+				if (shared == null) {
+					shared = new RequestExecutor(DEFAULT_MAX_IN_FLIGHT);
+				}
+				current = shared;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Replaces the shared executor if the limit differs from the current one. Calls already
+	 * submitted to the previous executor still run to completion.
+	 */
+	public static synchronized void configureShared(int maxInFlight) {
+		RequestExecutor current = shared;
+		if (current != null && current.maxInFlight == maxInFlight) {
+			return;
+		}
+		shared = new RequestExecutor(maxInFlight);
+		if (current != null) {
+			current.executor.shutdown();
+		}
+	}
+
+	/**
+	 * Schedules the given call and returns a future for its result. An exception thrown by the
+	 * call (typically a ClearBladeException) completes the future exceptionally.
+	 * @param call the blocking call to run
+	 * @return future completed with the call's result
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> call) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		try {
+			executor.execute(() -> {
+				if (future.isDone()) {
+					return;		// cancelled while queued
+				}
+				try {
+					future.complete(call.call());
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Returns true on one of this executor's worker threads. A worker that waits for calls it
+	 * submitted here can wait forever once every worker does the same, so blocking wrappers run
+	 * their calls inline on such threads instead.
+	 */
+	public boolean isWorkerThread() {
+		return OWNER.get() == this;
+	}
+
+	/**
+	 * Runs the call right away on the calling thread and returns its completed future; for blocking
+	 * callers that find themselves on a worker thread, see {@link #isWorkerThread()}.
+	 * @param call the blocking call to run
+	 * @return future completed with the call's result, or exceptionally with what it threw
+	 */
+	public static <T> CompletableFuture<T> runInline(Callable<T> call) {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		try {
+			future.complete(call.call());
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+		}
+		return future;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Returns the number of calls currently running.
+	 */
+	public int getInFlightCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of calls waiting for a free slot.
+	 */
+	public int getQueuedCount() {
+		return executor.getQueue().size();
+	}
+}
@@ -5,6 +5,8 @@ import java.net.URLEncoder;
 import java.util.Map.Entry;
 
 import com.clearblade.java.api.ClearBlade;
+import com.clearblade.java.api.transport.RequestBody;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 /**
@@ -24,7 +26,7 @@ import com.google.gson.JsonObject;
  */
 public class RequestProperties {
 	private String authentication;		// Holds authentication for API Call
-	private String body;				// Holds the content of the API Call
+	private RequestBody body;			// Holds the content of the API Call, null for none
 	private String endPoint;			// The section of the backend to send this information to, 
 	private String method;				// The http method to use
 	private String qs;					// the query string to be used
@@ -41,7 +43,7 @@ public class RequestProperties {
 
 		//optional 
 		private String uri;
-		private String body = "";
+		private RequestBody body;
 		private String endPoint = "";
 		private String method = "GET";
 		private String qs = "";
@@ -133,12 +135,29 @@ public class RequestProperties {
 		 * @return this the builder Object being modified
 		 */
 		public Builder body (JsonObject data) {
-			body = data.toString();
-			// if a JsonObject is inserted as a key-value pair in to another JsonObject
-			// the JsonObject to be converted is inserted as an escaped string.
-			// we need to unescape it for the API call; The backend currently will not accept it as is.
-			if(body.contains("\\"))		
-				body = body.replace("\"{", "{").replace("}\"", "}").replace("\\", "");
+			body = RequestBody.json(data);
+			return this;
+		}
+
+		/** 
+		 * returns the current Builder Object with body
+		 * set as the given array, as used by bulk requests.
+		 * @param data the payload for the request
+		 * @return this the builder Object being modified
+		 */
+		public Builder body (JsonArray data) {
+			body = RequestBody.json(data);
+			return this;
+		}
+
+		/** 
+		 * returns the current Builder Object with body
+		 * set as the given writer, which streams the payload to the connection.
+		 * @param data the payload for the request
+		 * @return this the builder Object being modified
+		 */
+		public Builder body (RequestBody data) {
+			body = data;
 			return this;
 		}
 
@@ -174,9 +193,9 @@ public class RequestProperties {
 
 	/**
 	 * Returns the payload for the RequestProperties
-	 * @return payload The content of the API call to be made
+	 * @return payload The content of the API call to be made, or null for none
 	 */
-	public String getBody() {
+	public RequestBody getBody() {
 		return body;
 	}
 
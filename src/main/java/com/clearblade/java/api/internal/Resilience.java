@@ -0,0 +1,295 @@
+package com.clearblade.java.api.internal;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.clearblade.java.api.RetryPolicy;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+
+/**
+ * Retries, retry budget and per-endpoint circuit breakers around the transport, as configured by a
+ * {@link RetryPolicy}.
+ * <p>
+ * A single shared instance is used by {@link RequestEngine}; it is replaced when
+ * {@link com.clearblade.java.api.ClearBlade#initialize} is called with a different policy. Without
+ * a policy calls go straight to the transport.
+ * </p>
+ * @see RetryPolicy
+ */
+public class Resilience {
+
+	/**
+	 * Thrown instead of calling the platform while an endpoint's circuit breaker is open.
+	 */
+	public static class CircuitOpenException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		CircuitOpenException(String endpoint) {
+			super("circuit breaker open for " + endpoint);
+		}
+	}
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private static volatile Resilience shared = new Resilience(null);
+
+	private final RetryPolicy policy;
+	private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	// retry budget, in tokens
+	private final double maxTokens;
+	private double tokens;
+
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong budgetExhaustedCount = new AtomicLong();
+	private final AtomicLong shortCircuitCount = new AtomicLong();
+
+	/**
+	 * @param policy the policy to apply, or null to only pass calls through
+	 */
+	public Resilience(RetryPolicy policy) {
+		this.policy = policy != null ? new RetryPolicy(policy) : null;
+		this.maxTokens = policy != null ? policy.getBudgetMaxTokens() : 0;
+		this.tokens = maxTokens;
+	}
+
+	public static Resilience getShared() {
+		return shared;
+	}
+
+	/**
+	 * Replaces the shared instance, resetting breakers and budget, unless the policy is unchanged.
+	 */
+	public static synchronized void configureShared(RetryPolicy policy) {
+		if (policy == shared.policy || (policy != null && shared.policy != null && sameSettings(policy, shared.policy))) {
+			return;
+		}
+		shared = new Resilience(policy);
+	}
+
+	private static boolean sameSettings(RetryPolicy a, RetryPolicy b) {
+		return a.getMaxAttempts() == b.getMaxAttempts()
+				&& a.getBaseDelay() == b.getBaseDelay()
+				&& a.getMaxDelay() == b.getMaxDelay()
+				&& a.getRetryableStatusCodes().equals(b.getRetryableStatusCodes())
+				&& a.getBudgetMaxTokens() == b.getBudgetMaxTokens()
+				&& a.getBudgetTokenRatio() == b.getBudgetTokenRatio()
+				&& a.getBreakerFailureThreshold() == b.getBreakerFailureThreshold()
+				&& a.getBreakerOpenTime() == b.getBreakerOpenTime();
+	}
+
+	/**
+	 * Sends the request, retrying it as the policy allows.
+	 * @return the last response, which may still carry an error status once retries are used up
+	 * @throws CircuitOpenException if the endpoint's breaker is open
+	 * @throws IOException if the last attempt failed to get a response
+	 */
+	public TransportResponse execute(HttpTransport transport, TransportRequest request) throws IOException {
+		if (policy == null) {
+			return transport.execute(request);
+		}
+		String endpoint = request.getMethod().toUpperCase() + " " + request.getUrl().getPath();
+		CircuitBreaker breaker = policy.getBreakerFailureThreshold() > 0
+				? breakers.computeIfAbsent(endpoint, e -> new CircuitBreaker()) : null;
+		int maxAttempts = isIdempotent(request.getMethod()) ? policy.getMaxAttempts() : 1;
+		long delay = policy.getBaseDelay();
+
+		for (int attempt = 1; ; attempt++) {
+			if (breaker != null && !breaker.allow()) {
+				shortCircuitCount.incrementAndGet();
+				throw new CircuitOpenException(endpoint);
+			}
+			TransportResponse response;
+			try {
+				response = transport.execute(request);
+			} catch (IOException e) {
+				onFailure(breaker);
+				if (!mayRetry(attempt, maxAttempts)) {
+					throw e;
+				}
+				delay = sleep(delay, -1);
+				continue;
+			}
+
+			int status = response.getStatusCode();
+			if (!policy.isRetryableStatus(status) && status < 500) {
+				onSuccess(breaker);
+				return response;
+			}
+			onFailure(breaker);
+			if (!policy.isRetryableStatus(status) || !mayRetry(attempt, maxAttempts)) {
+				return response;
+			}
+			long retryAfter = retryAfter(response.getHeader("Retry-After"));
+			response.getBody().close();		// hands the connection back before waiting
+			delay = sleep(delay, retryAfter);
+		}
+	}
+
+	private boolean mayRetry(int attempt, int maxAttempts) {
+		if (attempt >= maxAttempts) {
+			return false;
+		}
+		synchronized (this) {
+			if (tokens <= maxTokens / 2) {
+				budgetExhaustedCount.incrementAndGet();
+				return false;
+			}
+		}
+		retryCount.incrementAndGet();
+		return true;
+	}
+
+	private void onSuccess(CircuitBreaker breaker) {
+		synchronized (this) {
+			tokens = Math.min(maxTokens, tokens + policy.getBudgetTokenRatio());
+		}
+		if (breaker != null) {
+			breaker.onSuccess();
+		}
+	}
+
+	private void onFailure(CircuitBreaker breaker) {
+		synchronized (this) {
+			tokens = Math.max(0, tokens - 1);
+		}
+		if (breaker != null) {
+			breaker.onFailure();
+		}
+	}
+
+	/**
+	 * Waits before a retry with decorrelated jitter, or as long as Retry-After asks.
+	 * @return the delay waited, the base of the next one
+	 */
+	private long sleep(long previous, long retryAfter) throws IOException {
+		long delay;
+		if (retryAfter >= 0) {
+			delay = Math.min(retryAfter, policy.getMaxDelay());
+		} else {
+			long base = policy.getBaseDelay();
+			long upper = Math.max(base, previous * 3);
+			delay = Math.min(policy.getMaxDelay(), base + (long) (ThreadLocalRandom.current().nextDouble() * (upper - base)));
+		}
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting to retry");
+		}
+		return Math.max(delay, policy.getBaseDelay());
+	}
+
+	/**
+	 * Parses a Retry-After header given in seconds; HTTP dates are ignored.
+	 * @return the delay in milliseconds, or -1 if there is none
+	 */
+	private static long retryAfter(String header) {
+		if (header == null) {
+			return -1;
+		}
+		try {
+			return Math.max(0, Long.parseLong(header.trim()) * 1000);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static boolean isIdempotent(String method) {
+		switch (method.toUpperCase()) {
+			case "GET":
+			case "HEAD":
+			case "PUT":
+			case "DELETE":
+			case "OPTIONS":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	// Stats
+
+	public RetryPolicy getPolicy() {
+		return policy != null ? new RetryPolicy(policy) : null;
+	}
+
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * Returns the number of retries that were skipped because the retry budget ran low.
+	 */
+	public long getBudgetExhaustedCount() {
+		return budgetExhaustedCount.get();
+	}
+
+	/**
+	 * Returns the number of calls failed at once by an open circuit breaker.
+	 */
+	public long getShortCircuitCount() {
+		return shortCircuitCount.get();
+	}
+
+	/**
+	 * Returns the state of an endpoint's breaker, such as {@code "GET /api/v/1/data/<collectionId>"}.
+	 */
+	public State getBreakerState(String endpoint) {
+		CircuitBreaker breaker = breakers.get(endpoint);
+		return breaker != null ? breaker.getState() : State.CLOSED;
+	}
+
+	/**
+	 * Consecutive-failure breaker for one endpoint.
+	 */
+	private class CircuitBreaker {
+
+		private State state = State.CLOSED;
+		private int failures;
+		private long openedAt;
+		private boolean trialInFlight;
+
+		synchronized boolean allow() {
+			if (state == State.CLOSED) {
+				return true;
+			}
+			if (state == State.OPEN && System.currentTimeMillis() - openedAt >= policy.getBreakerOpenTime()) {
+				state = State.HALF_OPEN;
+				trialInFlight = false;
+			}
+			if (state == State.HALF_OPEN && !trialInFlight) {
+				trialInFlight = true;	// one trial call; the others keep failing fast
+				return true;
+			}
+			return false;
+		}
+
+		synchronized void onSuccess() {
+			state = State.CLOSED;
+			failures = 0;
+			trialInFlight = false;
+		}
+
+		synchronized void onFailure() {
+			failures++;
+			if (state == State.HALF_OPEN || failures >= policy.getBreakerFailureThreshold()) {
+				state = State.OPEN;
+				openedAt = System.currentTimeMillis();
+				trialInFlight = false;
+			}
+		}
+
+		synchronized State getState() {
+			if (state == State.OPEN && System.currentTimeMillis() - openedAt >= policy.getBreakerOpenTime()) {
+				return State.HALF_OPEN;
+			}
+			return state;
+		}
+	}
+}
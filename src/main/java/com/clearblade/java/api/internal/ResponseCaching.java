@@ -0,0 +1,200 @@
+package com.clearblade.java.api.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.clearblade.java.api.CachePolicy;
+import com.clearblade.java.api.transport.CachedResponse;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.LruResponseCache;
+import com.clearblade.java.api.transport.ResponseCache;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+
+/**
+ * The response cache in front of the transport, as configured by a {@link CachePolicy}.
+ * <p>
+ * Fresh entries answer GET calls without reaching the platform; expired ones are revalidated with
+ * their ETag or Last-Modified date when they have one. Every other call invalidates the entries of
+ * its url path once it has been sent. A single shared instance is used by {@link RequestEngine} and
+ * replaced when {@link com.clearblade.java.api.ClearBlade#initialize} changes the policy.
+ * </p>
+ * @see CachePolicy
+ */
+public class ResponseCaching {
+
+	private static volatile ResponseCaching shared = new ResponseCaching(null);
+
+	private final CachePolicy policy;
+	private final ResponseCache cache;
+
+	// bumped by every write, so a GET that overlapped one does not store what it read
+	private final AtomicLong writes = new AtomicLong();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong revalidatedCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	/**
+	 * @param policy the policy to apply, or null to cache nothing
+	 */
+	public ResponseCaching(CachePolicy policy) {
+		this.policy = policy != null ? new CachePolicy(policy) : null;
+		if (policy == null) {
+			this.cache = null;
+		} else {
+			this.cache = policy.getCache() != null ? policy.getCache() : new LruResponseCache(policy.getMaxBytes());
+		}
+	}
+
+	public static ResponseCaching getShared() {
+		return shared;
+	}
+
+	/**
+	 * Replaces the shared instance, dropping the default cache's entries, unless the policy is unchanged.
+	 */
+	public static synchronized void configureShared(CachePolicy policy) {
+		CachePolicy current = shared.policy;
+		if (policy == current || (policy != null && current != null
+				&& policy.getDefaultTtl() == current.getDefaultTtl()
+				&& policy.getCollectionTtls().equals(current.getCollectionTtls())
+				&& policy.getMaxBytes() == current.getMaxBytes()
+				&& policy.getCache() == current.getCache())) {
+			return;
+		}
+		shared = new ResponseCaching(policy);
+	}
+
+	/**
+	 * Answers the request from the cache, or sends it and caches the response.
+	 * @param identity the credentials the call is made with; only calls with the same identity share entries
+	 */
+	public TransportResponse execute(HttpTransport transport, TransportRequest request, String identity) throws IOException {
+		if (policy == null) {
+			return transport.execute(request);
+		}
+		String method = request.getMethod().toUpperCase();
+		String path = request.getUrl().getPath();
+		if (method.equals("HEAD") || method.equals("OPTIONS")) {
+			return transport.execute(request);
+		}
+		if (!method.equals("GET")) {
+			try {
+				return transport.execute(request);
+			} finally {
+				// also when the call failed: the platform may have applied it anyway
+				writes.incrementAndGet();
+				cache.invalidate(path);
+				invalidationCount.incrementAndGet();
+			}
+		}
+		int ttl = policy.getTtl(path);
+		if (ttl <= 0) {
+			return transport.execute(request);
+		}
+
+		String key = "GET " + request.getUrl() + " " + identity;
+		CachedResponse cached = cache.get(key);
+		if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+			hitCount.incrementAndGet();
+			return cached.toResponse();
+		}
+		long writesBefore = writes.get();
+		TransportRequest sent = request;
+		if (cached != null && (cached.getETag() != null || cached.getLastModified() != null)) {
+			Map<String, String> headers = new LinkedHashMap<>(request.getHeaders());
+			if (cached.getETag() != null) {
+				headers.put("If-None-Match", cached.getETag());
+			}
+			if (cached.getLastModified() != null) {
+				headers.put("If-Modified-Since", cached.getLastModified());
+			}
+			sent = new TransportRequest(request.getMethod(), request.getUrl(), headers, request.getRequestBody(), request.getTimeout());
+		}
+
+		TransportResponse response = transport.execute(sent);
+		if (response.getStatusCode() == 304 && sent != request) {
+			response.getBody().close();
+			revalidatedCount.incrementAndGet();
+			CachedResponse refreshed = cached.withExpiry(System.currentTimeMillis() + ttl);
+			store(key, refreshed, writesBefore);
+			return refreshed.toResponse();
+		}
+		missCount.incrementAndGet();
+		if (response.getStatusCode() != 200 || isNoStore(response.getHeader("Cache-Control"))) {
+			return response;
+		}
+		CachedResponse entry = new CachedResponse(path, response, readAll(response.getBody()), System.currentTimeMillis() + ttl);
+		store(key, entry, writesBefore);
+		return entry.toResponse();
+	}
+
+	private void store(String key, CachedResponse entry, long writesBefore) {
+		if (writes.get() == writesBefore) {
+			cache.put(key, entry);
+		}
+	}
+
+	private static boolean isNoStore(String cacheControl) {
+		return cacheControl != null && cacheControl.toLowerCase().contains("no-store");
+	}
+
+	private static byte[] readAll(InputStream body) throws IOException {
+		try (InputStream in = body) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	// Stats
+
+	public CachePolicy getPolicy() {
+		return policy != null ? new CachePolicy(policy) : null;
+	}
+
+	/**
+	 * Returns the store the responses are kept in, or null without a policy.
+	 */
+	public ResponseCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the number of GET calls answered by a fresh entry, without reaching the platform.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of cacheable GET calls that were sent and answered with a new body.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the number of expired entries the platform confirmed unchanged with a 304.
+	 */
+	public long getRevalidatedCount() {
+		return revalidatedCount.get();
+	}
+
+	/**
+	 * Returns the number of writes that invalidated the entries of their path.
+	 */
+	public long getInvalidationCount() {
+		return invalidationCount.get();
+	}
+}
@@ -0,0 +1,160 @@
+package com.clearblade.java.api.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical GET calls that are in flight at the same time into one.
+ * <p>
+ * The first caller of a key (the leader) makes the call; callers arriving with the same key before
+ * it completes wait for it and share its result instead of going to the platform themselves.
+ * Nothing is cached: a call that starts after the leader finished makes a call of its own. Only
+ * endpoints whose path starts with one of the configured prefixes are collapsed, see
+ * {@link com.clearblade.java.api.InitOptions#setSingleFlightEndpoints(String...)}.
+ * </p>
+ */
+public class SingleFlight {
+
+	private static volatile SingleFlight shared = new SingleFlight(Collections.<String>emptyList());
+
+	private final List<String> prefixes;
+	private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong leaderCount = new AtomicLong();
+	private final AtomicLong sharedCount = new AtomicLong();
+
+	/**
+	 * @param prefixes paths (without leading slash) of the endpoints to collapse, e.g. "api/v/1/data/"
+	 */
+	public SingleFlight(List<String> prefixes) {
+		List<String> normalized = new ArrayList<>();
+		for (String prefix : prefixes) {
+			normalized.add(prefix.startsWith("/") ? prefix.substring(1) : prefix);
+		}
+		this.prefixes = Collections.unmodifiableList(normalized);
+	}
+
+	public static SingleFlight getShared() {
+		return shared;
+	}
+
+	/**
+	 * Replaces the shared instance unless the endpoints are unchanged. Calls in flight finish as they are.
+	 */
+	public static synchronized void configureShared(List<String> prefixes) {
+		if (!new SingleFlight(prefixes).prefixes.equals(shared.prefixes)) {
+			shared = new SingleFlight(prefixes);
+		}
+	}
+
+	/**
+	 * Returns true if calls to the given url path are collapsed.
+	 */
+	public boolean appliesTo(String path) {
+		String relative = path.startsWith("/") ? path.substring(1) : path;
+		for (String prefix : prefixes) {
+			if (relative.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Makes the call, or waits for an identical one in flight.
+	 * @param key identifies identical calls, including whose credentials they carry
+	 * @param call makes the call
+	 * @return the result and whether it came from another caller's call
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Result<T> execute(String key, Supplier<T> call) {
+		CompletableFuture<Object> flight = new CompletableFuture<>();
+		CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			sharedCount.incrementAndGet();
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return new Result<>((T) existing.get(), true);
+					} catch (InterruptedException e) {
+						interrupted = true;		// the leader's result is still wanted
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		leaderCount.incrementAndGet();
+		try {
+			T result = call.get();
+			flight.complete(result);
+			return new Result<>(result, false);
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	/**
+	 * A call's result, and whether it was shared from another caller.
+	 */
+	public static class Result<T> {
+		private final T value;
+		private final boolean shared;
+
+		Result(T value, boolean shared) {
+			this.value = value;
+			this.shared = shared;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		public boolean isShared() {
+			return shared;
+		}
+	}
+
+	// Stats
+
+	public List<String> getEndpoints() {
+		return prefixes;
+	}
+
+	/**
+	 * Returns the number of calls that went to the platform.
+	 */
+	public long getLeaderCount() {
+		return leaderCount.get();
+	}
+
+	/**
+	 * Returns the number of calls answered with the result of an identical call in flight.
+	 */
+	public long getSharedCount() {
+		return sharedCount.get();
+	}
+
+	/**
+	 * Returns the number of distinct calls in flight right now.
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+}
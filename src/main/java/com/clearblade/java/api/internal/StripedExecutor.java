@@ -0,0 +1,135 @@
+package com.clearblade.java.api.internal;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a fixed number of single-threaded stripes, picking the stripe from a key.
+ * <p>
+ * Tasks sharing a key always land on the same stripe and therefore run one after another in
+ * submission order, while tasks with different keys spread over all stripes and run in parallel.
+ * This is what {@code MqttClient} uses to take slow message callbacks off Paho's callback thread
+ * without reordering the messages of a topic (or device).
+ * </p>
+ * <pre>
+ * StripedExecutor executor = new StripedExecutor("mqtt-dispatch", 4);
+ * executor.execute(topic, () -&gt; callback.done(topic, payload));
+ * </pre>
+ */
+public class StripedExecutor {
+
+	private final ThreadPoolExecutor[] stripes;
+
+	/**
+	 * Constructs an executor with the given number of stripes.
+	 * @param name prefix for the worker thread names
+	 * @param stripeCount number of stripes, each backed by one daemon thread
+	 */
+	public StripedExecutor(String name, int stripeCount) {
+		if (stripeCount <= 0) {
+			throw new IllegalArgumentException("stripeCount must be positive");
+		}
+		this.stripes = new ThreadPoolExecutor[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			final String threadName = name + "-" + i;
+			ThreadFactory factory = r -> {
+				Thread t = new Thread(r, threadName);
+				t.setDaemon(true);
+				return t;
+			};
+			stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), factory);
+		}
+	}
+
+	/**
+	 * Queues the task on the stripe owning the given key.
+	 * @param key partitioning key; tasks with equal keys run in order. null uses the first stripe
+	 * @param task the task to run
+	 */
+	public void execute(Object key, Runnable task) {
+		stripes[stripeFor(key)].execute(task);
+	}
+
+	/**
+	 * Returns the index of the stripe tasks with the given key run on.
+	 */
+	public int stripeFor(Object key) {
+		if (key == null) {
+			return 0;
+		}
+		int h = key.hashCode();
+		h ^= (h >>> 16);	// fold the high bits in, as HashMap does
+		return (h & 0x7fffffff) % stripes.length;
+	}
+
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * Returns the number of tasks waiting on the given stripe, not counting the one running.
+	 */
+	public int getQueueDepth(int stripe) {
+		return stripes[stripe].getQueue().size();
+	}
+
+	/**
+	 * Returns the number of tasks waiting over all stripes.
+	 */
+	public int getTotalQueueDepth() {
+		int total = 0;
+		for (ThreadPoolExecutor stripe : stripes) {
+			total += stripe.getQueue().size();
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the queue depth of the busiest stripe, which shows a hot key better than the total.
+	 */
+	public int getMaxQueueDepth() {
+		int max = 0;
+		for (ThreadPoolExecutor stripe : stripes) {
+			max = Math.max(max, stripe.getQueue().size());
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the approximate number of tasks that have finished running.
+	 */
+	public long getCompletedCount() {
+		long total = 0;
+		for (ThreadPoolExecutor stripe : stripes) {
+			total += stripe.getCompletedTaskCount();
+		}
+		return total;
+	}
+
+	/**
+	 * Stops accepting tasks; tasks already queued still run.
+	 */
+	public void shutdown() {
+		for (ThreadPoolExecutor stripe : stripes) {
+			stripe.shutdown();
+		}
+	}
+
+	/**
+	 * Waits for queued tasks to finish after a {@link #shutdown()}.
+	 * @return true if every stripe finished within the timeout
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (ThreadPoolExecutor stripe : stripes) {
+			long remaining = deadline - System.nanoTime();
+			if (!stripe.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
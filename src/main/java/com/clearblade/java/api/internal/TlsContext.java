@@ -0,0 +1,256 @@
+package com.clearblade.java.api.internal;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import com.clearblade.java.api.TlsConfig;
+
+/**
+ * The SSLContext used for HTTPS connections to the platform, built once from a {@link TlsConfig}.
+ * <p>
+ * Every connection is created from the same context, so its client session cache lets a new
+ * connection to a host resume the TLS session of an earlier one with an abbreviated handshake.
+ * Nothing is installed as a JVM-wide default; other HTTPS clients in the process are unaffected.
+ * </p>
+ * <pre>
+ * TlsContext tls = TlsContext.getShared();
+ * SSLSocket socket = tls.handshake(plainSocket, host, port);
+ * </pre>
+ * @see HttpConnectionPool
+ */
+public class TlsContext {
+
+	private static volatile TlsContext shared;
+
+	private final TlsConfig config;
+	private final boolean allowUntrusted;
+	private final SSLContext context;
+
+	private final AtomicLong handshakeCount = new AtomicLong();
+	private final AtomicLong resumedCount = new AtomicLong();
+
+	/**
+	 * Builds the context.
+	 * @param config trust store, pins, protocols and session cache settings
+	 * @param allowUntrusted accept any certificate and skip the host name check, for platforms
+	 * running with a self signed certificate
+	 * @throws IllegalStateException if the context cannot be built from the config
+	 */
+	public TlsContext(TlsConfig config, boolean allowUntrusted) {
+		this.config = new TlsConfig(config);
+		this.allowUntrusted = allowUntrusted;
+		try {
+			this.context = SSLContext.getInstance("TLS");
+			this.context.init(null, new TrustManager[] { trustManager(this.config, allowUntrusted) }, null);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("could not build the TLS context: " + e.getMessage(), e);
+		}
+		SSLSessionContext sessions = this.context.getClientSessionContext();
+		sessions.setSessionCacheSize(this.config.getSessionCacheSize());
+		sessions.setSessionTimeout(this.config.getSessionTimeout());
+	}
+
+	/**
+	 * Returns the context shared by all platform connections, creating one with default settings if needed.
+	 */
+	public static TlsContext getShared() {
+		TlsContext current = shared;
+		if (current == null) {
+			synchronized (TlsContext.class) {
+				if (shared == null) {
+					shared = new TlsContext(new TlsConfig(), false);
+				}
+				current = shared;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Replaces the shared context unless it was built from the same settings, and returns it.
+	 * A replaced context drops its session cache, so the next connections handshake in full.
+	 */
+	public static synchronized TlsContext configureShared(TlsConfig config, boolean allowUntrusted) {
+		TlsContext current = shared;
+		if (current != null && current.allowUntrusted == allowUntrusted && current.sameConfig(config)) {
+			return current;
+		}
+		shared = new TlsContext(config, allowUntrusted);
+		return shared;
+	}
+
+	private boolean sameConfig(TlsConfig other) {
+		return config.getTrustStore() == other.getTrustStore()
+				&& config.getPinnedKeys().equals(other.getPinnedKeys())
+				&& Arrays.equals(config.getProtocols(), other.getProtocols())
+				&& config.getSessionCacheSize() == other.getSessionCacheSize()
+				&& config.getSessionTimeout() == other.getSessionTimeout();
+	}
+
+	/**
+	 * Layers TLS over the connected socket and runs the handshake.
+	 * @param socket connected plain socket; closed along with the returned socket
+	 * @param host host name, used for SNI, the host name check and session resumption
+	 * @param port remote port, used for session resumption
+	 */
+	public SSLSocket handshake(Socket socket, String host, int port) throws IOException {
+		SSLSocket sslSocket = (SSLSocket) context.getSocketFactory().createSocket(socket, host, port, true);
+		configure(sslSocket);
+		long started = System.currentTimeMillis();
+		sslSocket.startHandshake();
+		handshakeCount.incrementAndGet();
+		SSLSession session = sslSocket.getSession();
+		if (session.getCreationTime() < started) {
+			// the session predates this handshake, so it was resumed
+			resumedCount.incrementAndGet();
+		}
+		return sslSocket;
+	}
+
+	/**
+	 * Applies the configured protocols and the host name check to a socket created from this context.
+	 */
+	void configure(SSLSocket socket) {
+		SSLParameters params = socket.getSSLParameters();
+		if (!allowUntrusted) {
+			params.setEndpointIdentificationAlgorithm("HTTPS");
+		}
+		if (config.getProtocols() != null) {
+			params.setProtocols(config.getProtocols());
+		}
+		socket.setSSLParameters(params);
+	}
+
+	public SSLContext getSSLContext() {
+		return context;
+	}
+
+	public boolean isAllowUntrusted() {
+		return allowUntrusted;
+	}
+
+	/**
+	 * Returns the number of handshakes run so far.
+	 */
+	public long getHandshakeCount() {
+		return handshakeCount.get();
+	}
+
+	/**
+	 * Returns the number of handshakes that resumed an earlier session rather than negotiating a new one.
+	 */
+	public long getResumedCount() {
+		return resumedCount.get();
+	}
+
+	private static X509TrustManager trustManager(TlsConfig config, boolean allowUntrusted) throws GeneralSecurityException {
+		if (allowUntrusted) {
+			return new TrustAllManager();
+		}
+		TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		factory.init(config.getTrustStore());	// null means the JVM's default trust store
+		X509TrustManager trust = null;
+		for (TrustManager manager : factory.getTrustManagers()) {
+			if (manager instanceof X509TrustManager) {
+				trust = (X509TrustManager) manager;
+				break;
+			}
+		}
+		if (trust == null) {
+			throw new NoSuchAlgorithmException("no X509TrustManager available");
+		}
+		List<String> pins = config.getPinnedKeys();
+		return pins.isEmpty() ? trust : new PinningTrustManager(trust, new HashSet<String>(pins));
+	}
+
+	/**
+	 * Returns the pin of a certificate's public key, in the form used by {@link TlsConfig#addPinnedKey(String)}.
+	 */
+	public static String pinOf(X509Certificate certificate) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(certificate.getPublicKey().getEncoded());
+			return "sha256/" + Base64.getEncoder().encodeToString(digest);
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is always supported
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Accepts a chain the delegate trusts only if one of its certificates has a pinned key.
+	 */
+	static class PinningTrustManager implements X509TrustManager {
+
+		private final X509TrustManager delegate;
+		private final Set<String> pins;
+
+		PinningTrustManager(X509TrustManager delegate, Set<String> pins) {
+			this.delegate = delegate;
+			this.pins = pins;
+		}
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+			delegate.checkClientTrusted(chain, authType);
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+			delegate.checkServerTrusted(chain, authType);
+			checkPinned(chain);
+		}
+
+		void checkPinned(X509Certificate[] chain) throws CertificateException {
+			for (X509Certificate certificate : chain) {
+				if (pins.contains(pinOf(certificate))) {
+					return;
+				}
+			}
+			throw new CertificateException("no certificate in the chain has a pinned public key");
+		}
+
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return delegate.getAcceptedIssuers();
+		}
+	}
+
+	/**
+	 * Accepts any certificate, for platforms running with a self signed one.
+	 */
+	private static class TrustAllManager implements X509TrustManager {
+
+		@Override
+		public void checkClientTrusted(X509Certificate[] chain, String authType) {
+		}
+
+		@Override
+		public void checkServerTrusted(X509Certificate[] chain, String authType) {
+		}
+
+		@Override
+		public X509Certificate[] getAcceptedIssuers() {
+			return new X509Certificate[0];
+		}
+	}
+}
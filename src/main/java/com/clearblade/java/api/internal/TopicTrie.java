@@ -0,0 +1,226 @@
+package com.clearblade.java.api.internal;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps MQTT topic filters to values and finds every filter matching a topic.
+ * <p>
+ * Filters follow the MQTT rules: {@code +} matches exactly one topic level, {@code #} matches
+ * the parent level and any number of levels below it, and wildcards at the first level never
+ * match topics starting with {@code $}. Matching walks one trie node per topic level and does
+ * not allocate; subscriptions are expected to change far less often than messages arrive, so
+ * every change rebuilds an immutable snapshot that readers use without locking.
+ * </p>
+ * <pre>
+ * TopicTrie&lt;MessageCallback&gt; trie = new TopicTrie&lt;&gt;();
+ * trie.put("devices/+/telemetry", callback);
+ * trie.match("devices/42/telemetry", (cb, topic, payload) -&gt; cb.done(topic, payload), payload);
+ * </pre>
+ * @param <V> the value stored for each filter
+ */
+public class TopicTrie<V> {
+
+	/**
+	 * Receives the value of every filter matching a topic. The context argument lets callers
+	 * pass per-message state without allocating a capturing lambda per message.
+	 */
+	@FunctionalInterface
+	public interface Visitor<V, C> {
+		void visit(V value, String topic, C context);
+	}
+
+	private static final int END = -1;
+
+	private final Map<String, V> filters = new LinkedHashMap<>();
+	private volatile Node<V> root = new Builder<V>().freeze();
+
+	/**
+	 * Adds or replaces the value for the given topic filter.
+	 * @return the previous value for the filter, or null
+	 */
+	public synchronized V put(String filter, V value) {
+		V previous = filters.put(filter, value);
+		rebuild();
+		return previous;
+	}
+
+	/**
+	 * Removes the given topic filter.
+	 * @return the removed value, or null if the filter was not present
+	 */
+	public synchronized V remove(String filter) {
+		V previous = filters.remove(filter);
+		if (previous != null) {
+			rebuild();
+		}
+		return previous;
+	}
+
+	public synchronized V get(String filter) {
+		return filters.get(filter);
+	}
+
+	public synchronized int size() {
+		return filters.size();
+	}
+
+	public synchronized void clear() {
+		filters.clear();
+		rebuild();
+	}
+
+	/**
+	 * Calls the visitor once for every filter matching the given topic.
+	 * @param topic the topic a message arrived on (no wildcards)
+	 * @param visitor receives each matching value
+	 * @param context passed through to the visitor
+	 * @return the number of matching filters
+	 */
+	public <C> int match(String topic, Visitor<? super V, C> visitor, C context) {
+		boolean system = topic.length() > 0 && topic.charAt(0) == '$';
+		return match(root, topic, 0, true, system, visitor, context);
+	}
+
+	private static <V, C> int match(Node<V> node, String topic, int start, boolean firstLevel, boolean system, Visitor<? super V, C> visitor, C context) {
+		boolean wildcardsAllowed = !(firstLevel && system);
+		int count = 0;
+
+		// '#' also matches the parent level, so it applies whether or not levels remain
+		if (node.multiLevel != null && wildcardsAllowed) {
+			visitor.visit(node.multiLevel, topic, context);
+			count++;
+		}
+
+		if (start == END) {
+			if (node.value != null) {
+				visitor.visit(node.value, topic, context);
+				count++;
+			}
+			return count;
+		}
+
+		int end = topic.indexOf('/', start);
+		if (end < 0) {
+			end = topic.length();
+		}
+		int next = end < topic.length() ? end + 1 : END;
+
+		Node<V> child = node.child(topic, start, end);
+		if (child != null) {
+			count += match(child, topic, next, false, system, visitor, context);
+		}
+		if (node.singleLevel != null && wildcardsAllowed) {
+			count += match(node.singleLevel, topic, next, false, system, visitor, context);
+		}
+		return count;
+	}
+
+	private void rebuild() {
+		Builder<V> builder = new Builder<>();
+		for (Map.Entry<String, V> entry : filters.entrySet()) {
+			builder.add(entry.getKey(), entry.getValue());
+		}
+		root = builder.freeze();
+	}
+
+	/**
+	 * Mutable node used while rebuilding the trie.
+	 */
+	private static class Builder<V> {
+		final Map<String, Builder<V>> children = new HashMap<>();
+		Builder<V> singleLevel;
+		V multiLevel;
+		V value;
+
+		void add(String filter, V v) {
+			Builder<V> node = this;
+			int start = 0;
+			while (true) {
+				int end = filter.indexOf('/', start);
+				boolean last = end < 0;
+				String level = last ? filter.substring(start) : filter.substring(start, end);
+
+				if (last && level.equals("#")) {
+					node.multiLevel = v;
+					return;
+				}
+				if (level.equals("+")) {
+					if (node.singleLevel == null) {
+						node.singleLevel = new Builder<>();
+					}
+					node = node.singleLevel;
+				} else {
+					node = node.children.computeIfAbsent(level, k -> new Builder<>());
+				}
+				if (last) {
+					node.value = v;
+					return;
+				}
+				start = end + 1;
+			}
+		}
+
+		Node<V> freeze() {
+			return new Node<>(this);
+		}
+	}
+
+	/**
+	 * Immutable trie node. Children are kept in an open addressing table keyed by the
+	 * String hash of the level, so a level can be looked up straight from the topic without
+	 * creating a substring.
+	 */
+	private static final class Node<V> {
+		final String[] keys;
+		final Node<V>[] children;
+		final int mask;
+		final Node<V> singleLevel;
+		final V multiLevel;
+		final V value;
+
+		@SuppressWarnings("unchecked")
+		Node(Builder<V> builder) {
+			int size = 1;
+			while (size < builder.children.size() * 2) {
+				size <<= 1;
+			}
+			this.keys = new String[size];
+			this.children = (Node<V>[]) new Node<?>[size];
+			this.mask = size - 1;
+			for (Map.Entry<String, Builder<V>> entry : builder.children.entrySet()) {
+				int i = entry.getKey().hashCode() & mask;
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = entry.getKey();
+				children[i] = entry.getValue().freeze();
+			}
+			this.singleLevel = builder.singleLevel == null ? null : builder.singleLevel.freeze();
+			this.multiLevel = builder.multiLevel;
+			this.value = builder.value;
+		}
+
+		/**
+		 * Looks up the child for the topic level between start and end. The table always has
+		 * a free slot, so probing stops.
+		 */
+		Node<V> child(String topic, int start, int end) {
+			int len = end - start;
+			int h = 0;
+			for (int i = start; i < end; i++) {
+				h = 31 * h + topic.charAt(i);
+			}
+			int i = h & mask;
+			String key;
+			while ((key = keys[i]) != null) {
+				if (key.length() == len && topic.regionMatches(start, key, 0, len)) {
+					return children[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+	}
+}
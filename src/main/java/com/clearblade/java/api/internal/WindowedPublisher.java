@@ -0,0 +1,258 @@
+package com.clearblade.java.api.internal;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import com.clearblade.java.api.ClearBladeException;
+import com.clearblade.java.api.PublishBackpressure;
+
+/**
+ * Publishes MQTT messages without waiting for each acknowledgement in turn.
+ * <p>
+ * Up to {@code window} publishes are handed to the Paho async client at once; each completes its
+ * future when the broker acknowledges it (or, for QoS 0, once it is written). Further messages wait
+ * in a pending queue of {@code queueCapacity} and are sent as acknowledgements come back. When both
+ * are full the {@link PublishBackpressure} policy decides whether the caller blocks, the new message
+ * fails, or the oldest pending message is dropped.
+ * </p>
+ * <p>
+ * Acknowledgements come back on Paho's callback thread, the same thread that delivers incoming
+ * messages. A BLOCK publish made from that thread would wait for an acknowledgement only that
+ * thread can deliver, so there it fails fast instead, like {@link PublishBackpressure#FAIL_FAST}.
+ * </p>
+ * <p>
+ * The window should not exceed the max inflight setting of the connection, or Paho rejects the
+ * publishes above its own limit.
+ * </p>
+ * <pre>
+ * WindowedPublisher publisher = new WindowedPublisher(asyncClient, 1000, 10000, PublishBackpressure.BLOCK);
+ * publisher.publish("devices/42/telemetry", payload, 1, false).thenRun(() -&gt; ...);
+ * </pre>
+ */
+public class WindowedPublisher {
+
+	/**
+	 * Paho names the thread running its callbacks "MQTT Call: " followed by the client id.
+	 */
+	private static final String CALLBACK_THREAD_PREFIX = "MQTT Call: ";
+
+	private final IMqttAsyncClient client;
+	private final int window;
+	private final int queueCapacity;
+	private final PublishBackpressure backpressure;
+
+	private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+	private int inFlight;
+
+	private long publishedCount;
+	private long failedCount;
+	private long droppedCount;
+	private long rejectedCount;
+
+	/**
+	 * @param client connected Paho async client
+	 * @param window max number of publishes awaiting acknowledgement
+	 * @param queueCapacity max number of messages waiting for a window slot
+	 * @param backpressure what to do when the window and the queue are full
+	 */
+	public WindowedPublisher(IMqttAsyncClient client, int window, int queueCapacity, PublishBackpressure backpressure) {
+		if (window <= 0) {
+			throw new IllegalArgumentException("window must be positive");
+		}
+		if (queueCapacity < 0 || (queueCapacity == 0 && backpressure == PublishBackpressure.DROP_OLDEST)) {
+			throw new IllegalArgumentException("queueCapacity must be positive to drop the oldest message");
+		}
+		this.client = client;
+		this.window = window;
+		this.queueCapacity = queueCapacity;
+		this.backpressure = backpressure;
+	}
+
+	public IMqttAsyncClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Publishes the message, or queues it when the window is full.
+	 * @return future completed once the broker acknowledged the message, or completed exceptionally
+	 *         with a ClearBladeException if it failed, was rejected or was dropped
+	 */
+	public CompletableFuture<Void> publish(String topic, byte[] payload, int qos, boolean retained) {
+		Pending message = new Pending(topic, payload, qos, retained);
+		Pending dropped = null;
+		boolean send = false;
+
+		synchronized (this) {
+			while (true) {
+				if (inFlight < window && pending.isEmpty()) {
+					inFlight++;
+					send = true;
+					break;
+				}
+				if (pending.size() < queueCapacity) {
+					pending.add(message);
+					break;
+				}
+				if (backpressure == PublishBackpressure.FAIL_FAST) {
+					rejectedCount++;
+					message.future.completeExceptionally(new ClearBladeException("(MqttClient) publish window full"));
+					return message.future;
+				}
+				if (backpressure == PublishBackpressure.BLOCK && isCallbackThread()) {
+					rejectedCount++;
+					message.future.completeExceptionally(new ClearBladeException("(MqttClient) publish window full, cannot block the MQTT callback thread"));
+					return message.future;
+				}
+				if (backpressure == PublishBackpressure.DROP_OLDEST) {
+					dropped = pending.poll();
+					droppedCount++;
+					pending.add(message);
+					break;
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					message.future.completeExceptionally(new ClearBladeException("(MqttClient) interrupted waiting for publish window", e));
+					return message.future;
+				}
+			}
+		}
+
+		if (dropped != null) {
+			dropped.future.completeExceptionally(new ClearBladeException("(MqttClient) publish dropped, window full: " + dropped.topic));
+		}
+		if (send) {
+			send(message);
+		}
+		return message.future;
+	}
+
+	/**
+	 * Returns true on Paho's callback thread, which must not wait for acknowledgements.
+	 */
+	static boolean isCallbackThread() {
+		return Thread.currentThread().getName().startsWith(CALLBACK_THREAD_PREFIX);
+	}
+
+	/**
+	 * Hands the message to Paho; if that fails right away, moves on to the next pending message in
+	 * a loop rather than recursing.
+	 */
+	private void send(Pending message) {
+		while (message != null) {
+			try {
+				client.publish(message.topic, message.payload, message.qos, message.retained, null, message);
+				return;
+			} catch (MqttException e) {
+				String errmsg = String.format("(MqttClient) publish error: %s", e.getMessage());
+				message = finish(message, new ClearBladeException(errmsg, e));
+			} catch (RuntimeException e) {
+				message = finish(message, new ClearBladeException("(MqttClient) publish error: " + e.getMessage(), e));
+			}
+		}
+	}
+
+	/**
+	 * Completes the message and frees its window slot, or hands the slot to the next pending message.
+	 * @return the pending message that took over the slot, which the caller must send
+	 */
+	private Pending finish(Pending message, ClearBladeException error) {
+		Pending next;
+		synchronized (this) {
+			if (error == null) {
+				publishedCount++;
+			} else {
+				failedCount++;
+			}
+			next = pending.poll();
+			if (next == null) {
+				inFlight--;
+			}
+			notifyAll();
+		}
+		if (error == null) {
+			message.future.complete(null);
+		} else {
+			message.future.completeExceptionally(error);
+		}
+		return next;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public PublishBackpressure getBackpressure() {
+		return backpressure;
+	}
+
+	/**
+	 * Returns the number of publishes awaiting acknowledgement.
+	 */
+	public synchronized int getInFlightCount() {
+		return inFlight;
+	}
+
+	/**
+	 * Returns the number of messages waiting for a window slot.
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	public synchronized long getPublishedCount() {
+		return publishedCount;
+	}
+
+	public synchronized long getFailedCount() {
+		return failedCount;
+	}
+
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * A message on its way to the broker; doubles as the Paho listener so no separate listener is
+	 * allocated per publish.
+	 */
+	private final class Pending implements IMqttActionListener {
+		final String topic;
+		final byte[] payload;
+		final int qos;
+		final boolean retained;
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		Pending(String topic, byte[] payload, int qos, boolean retained) {
+			this.topic = topic;
+			this.payload = payload;
+			this.qos = qos;
+			this.retained = retained;
+		}
+
+		@Override
+		public void onSuccess(IMqttToken token) {
+			send(finish(this, null));
+		}
+
+		@Override
+		public void onFailure(IMqttToken token, Throwable cause) {
+			String errmsg = String.format("(MqttClient) publish error: %s", cause == null ? "unknown" : cause.getMessage());
+			send(finish(this, new ClearBladeException(errmsg, cause)));
+		}
+	}
+}
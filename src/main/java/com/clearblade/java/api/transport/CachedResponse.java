@@ -0,0 +1,89 @@
+package com.clearblade.java.api.transport;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+
+/**
+ * A response kept in a {@link ResponseCache}: status, headers and the body bytes as received (still
+ * gzip or deflate encoded if the platform sent them so), with the url path it was read from and the
+ * time it expires.
+ */
+public class CachedResponse {
+
+    private final String _path;
+    private final int _statusCode;
+    private final String _reasonPhrase;
+    private final Map<String, String> _headers;
+    private final byte[] _body;
+    private final long _expiresAt;
+
+    /**
+     * @param path url path of the call, used to invalidate the entry
+     * @param response status and headers of the response; its body is not read
+     * @param body the whole response body
+     * @param expiresAt time in milliseconds (as System.currentTimeMillis) after which the entry is revalidated
+     */
+    public CachedResponse(String path, TransportResponse response, byte[] body, long expiresAt) {
+        this(path, response.getStatusCode(), response.getReasonPhrase(), response.getHeaders(), body, expiresAt);
+    }
+
+    private CachedResponse(String path, int statusCode, String reasonPhrase, Map<String, String> headers, byte[] body, long expiresAt) {
+        this._path = path;
+        this._statusCode = statusCode;
+        this._reasonPhrase = reasonPhrase;
+        this._headers = headers;
+        this._body = body;
+        this._expiresAt = expiresAt;
+    }
+
+    /**
+     * Returns the same entry with a new expiry, after the platform confirmed it is unchanged.
+     */
+    public CachedResponse withExpiry(long expiresAt) {
+        return new CachedResponse(_path, _statusCode, _reasonPhrase, _headers, _body, expiresAt);
+    }
+
+    public String getPath() {
+        return this._path;
+    }
+
+    public long getExpiresAt() {
+        return this._expiresAt;
+    }
+
+    public boolean isFresh(long now) {
+        return now < this._expiresAt;
+    }
+
+    /**
+     * Returns the ETag the platform sent, or null.
+     */
+    public String getETag() {
+        return this._headers.get("etag");
+    }
+
+    /**
+     * Returns the Last-Modified date the platform sent, or null.
+     */
+    public String getLastModified() {
+        return this._headers.get("last-modified");
+    }
+
+    /**
+     * Returns roughly how many bytes of memory the entry holds.
+     */
+    public int getSize() {
+        int size = 64 + _body.length + _path.length() * 2;
+        for (Map.Entry<String, String> header : _headers.entrySet()) {
+            size += (header.getKey().length() + header.getValue().length()) * 2;
+        }
+        return size;
+    }
+
+    /**
+     * Returns a response that reads the cached body.
+     */
+    public TransportResponse toResponse() {
+        return new TransportResponse(_statusCode, _reasonPhrase, _headers, new ByteArrayInputStream(_body));
+    }
+}
@@ -0,0 +1,410 @@
+package com.clearblade.java.api.transport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+
+import com.clearblade.java.api.internal.TlsContext;
+
+/**
+ * Transport that multiplexes concurrent calls as HTTP/2 streams over a few connections, using
+ * the {@code java.net.http.HttpClient} of Java 11 and later.
+ * <p>
+ * Each of the {@code connections} clients keeps one connection per host, and at most
+ * {@code maxConcurrentStreams} calls run on a connection at once. A call goes to the connection
+ * with the most free streams and waits (up to its timeout) when all of them are busy, so
+ * hundreds of concurrent calls share a handful of sockets instead of needing one each. Servers
+ * that do not speak HTTP/2 are talked to over HTTP/1.1 by the same clients; the response counts
+ * tell which protocol was negotiated.
+ * </p>
+ * <p>
+ * The SDK still compiles for Java 8, so the client is driven through reflection; constructing
+ * this transport on an older runtime throws UnsupportedOperationException. HTTPS connections use
+ * the shared TLS context of {@link com.clearblade.java.api.TlsConfig}. The JDK client always
+ * checks the host name, so {@code allowUntrusted} only skips the certificate check here.
+ * </p>
+ * <pre>
+ * InitOptions options = new InitOptions().setTransport(new Http2Transport(2, 100));
+ * </pre>
+ */
+public class Http2Transport implements HttpTransport {
+
+    public static final int DEFAULT_CONNECTIONS = 1;
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+    private final Object[] clients;
+    private final Semaphore[] streams;
+    private TlsContext tls;
+    private final int maxConcurrentStreams;
+
+    private final AtomicInteger peakStreams = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong http2Count = new AtomicLong();
+
+    public Http2Transport() {
+        this(DEFAULT_CONNECTIONS, DEFAULT_MAX_CONCURRENT_STREAMS);
+    }
+
+    /**
+     * @param connections number of clients, each with its own connection to a host
+     * @param maxConcurrentStreams calls allowed in flight on one connection
+     * @throws UnsupportedOperationException if the runtime has no java.net.http.HttpClient
+     */
+    public Http2Transport(int connections, int maxConcurrentStreams) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections must be positive");
+        }
+        if (maxConcurrentStreams <= 0) {
+            throw new IllegalArgumentException("maxConcurrentStreams must be positive");
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("HTTP/2 transport needs Java 11 or later");
+        }
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.clients = new Object[connections];
+        this.streams = new Semaphore[connections];
+        for (int i = 0; i < connections; i++) {
+            streams[i] = new Semaphore(maxConcurrentStreams);
+        }
+    }
+
+    /**
+     * Returns true if the runtime provides java.net.http.HttpClient.
+     */
+    public static boolean isSupported() {
+        return Jdk.AVAILABLE;
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        final int connection = acquire(request.getTimeout());
+        boolean released = false;
+        try {
+            requestCount.incrementAndGet();
+            Object response = Jdk.send(client(connection), request);
+            if ("HTTP_2".equals(Jdk.version(response))) {
+                http2Count.incrementAndGet();
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> header : Jdk.headers(response).entrySet()) {
+                headers.put(header.getKey(), String.join(",", header.getValue()));
+            }
+            InputStream body = new StreamBody(Jdk.body(response), streams[connection]);
+            released = true;	// from here on the body releases the stream
+            return new TransportResponse(Jdk.statusCode(response), "", headers, body);
+        } finally {
+            if (!released) {
+                streams[connection].release();
+            }
+        }
+    }
+
+    /**
+     * Returns the client of a connection, rebuilding all of them when ClearBlade.initialize
+     * replaced the shared TLS context since they were made.
+     */
+    private synchronized Object client(int connection) {
+        TlsContext shared = TlsContext.getShared();
+        if (shared != tls) {
+            SSLContext ssl = shared.getSSLContext();
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = Jdk.newClient(ssl);
+            }
+            tls = shared;
+        }
+        return clients[connection];
+    }
+
+    /**
+     * Takes a stream on the connection with the most free streams.
+     * @return the index of the connection
+     */
+    private int acquire(int timeout) throws IOException {
+        int best = 0;
+        for (int i = 1; i < streams.length; i++) {
+            if (streams[i].availablePermits() > streams[best].availablePermits()) {
+                best = i;
+            }
+        }
+        if (!streams[best].tryAcquire()) {
+            waitCount.incrementAndGet();
+            try {
+                if (timeout > 0) {
+                    if (!streams[best].tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                        throw new IOException("timed out waiting for a free HTTP/2 stream");
+                    }
+                } else {
+                    streams[best].acquire();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for a free HTTP/2 stream");
+            }
+        }
+        peakStreams.accumulateAndGet(getActiveStreams(), Math::max);
+        return best;
+    }
+
+    // Stats
+
+    public int getConnectionCount() {
+        return clients.length;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * Returns the number of calls in flight on the given connection, including bodies still being read.
+     */
+    public int getActiveStreams(int connection) {
+        return maxConcurrentStreams - streams[connection].availablePermits();
+    }
+
+    /**
+     * Returns the number of calls in flight over all connections.
+     */
+    public int getActiveStreams() {
+        int active = 0;
+        for (int i = 0; i < streams.length; i++) {
+            active += getActiveStreams(i);
+        }
+        return active;
+    }
+
+    /**
+     * Returns the highest number of calls that were in flight at once.
+     */
+    public int getPeakStreams() {
+        return peakStreams.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of calls that had to wait because every connection was at its stream limit.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Returns the number of responses received over HTTP/2; the rest fell back to HTTP/1.1.
+     */
+    public long getHttp2ResponseCount() {
+        return http2Count.get();
+    }
+
+    /**
+     * Response body that gives its stream back once it has been read to the end or closed.
+     */
+    private static class StreamBody extends FilterInputStream {
+
+        private final Semaphore streams;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        StreamBody(InputStream in, Semaphore streams) {
+            super(in);
+            this.streams = streams;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                release();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                release();
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                streams.release();
+            }
+        }
+    }
+
+    /**
+     * Reflective access to java.net.http, resolved once.
+     */
+    private static final class Jdk {
+
+        static final boolean AVAILABLE;
+
+        private static Object HTTP_2;
+        private static Method newBuilder, builderVersion, builderSslContext, builderBuild;
+        private static Method requestNewBuilder, requestMethod, requestHeader, requestTimeout, requestBuild;
+        private static Method ofByteArray, noBody, ofInputStream, send;
+        private static Method statusCode, headers, headersMap, body, version;
+
+        static {
+            boolean available;
+            try {
+                Class<?> client = Class.forName("java.net.http.HttpClient");
+                Class<?> clientBuilder = Class.forName("java.net.http.HttpClient$Builder");
+                Class<?> versionType = Class.forName("java.net.http.HttpClient$Version");
+                Class<?> request = Class.forName("java.net.http.HttpRequest");
+                Class<?> requestBuilder = Class.forName("java.net.http.HttpRequest$Builder");
+                Class<?> publisher = Class.forName("java.net.http.HttpRequest$BodyPublisher");
+                Class<?> publishers = Class.forName("java.net.http.HttpRequest$BodyPublishers");
+                Class<?> response = Class.forName("java.net.http.HttpResponse");
+                Class<?> handler = Class.forName("java.net.http.HttpResponse$BodyHandler");
+                Class<?> handlers = Class.forName("java.net.http.HttpResponse$BodyHandlers");
+                Class<?> httpHeaders = Class.forName("java.net.http.HttpHeaders");
+
+                for (Object constant : versionType.getEnumConstants()) {
+                    if (((Enum<?>) constant).name().equals("HTTP_2")) {
+                        HTTP_2 = constant;
+                    }
+                }
+                newBuilder = client.getMethod("newBuilder");
+                builderVersion = clientBuilder.getMethod("version", versionType);
+                builderSslContext = clientBuilder.getMethod("sslContext", SSLContext.class);
+                builderBuild = clientBuilder.getMethod("build");
+                requestNewBuilder = request.getMethod("newBuilder", URI.class);
+                requestMethod = requestBuilder.getMethod("method", String.class, publisher);
+                requestHeader = requestBuilder.getMethod("header", String.class, String.class);
+                requestTimeout = requestBuilder.getMethod("timeout", Duration.class);
+                requestBuild = requestBuilder.getMethod("build");
+                ofByteArray = publishers.getMethod("ofByteArray", byte[].class);
+                noBody = publishers.getMethod("noBody");
+                ofInputStream = handlers.getMethod("ofInputStream");
+                send = client.getMethod("send", request, handler);
+                statusCode = response.getMethod("statusCode");
+                headers = response.getMethod("headers");
+                headersMap = httpHeaders.getMethod("map");
+                body = response.getMethod("body");
+                version = response.getMethod("version");
+                available = HTTP_2 != null;
+            } catch (ReflectiveOperationException e) {
+                available = false;
+            }
+            AVAILABLE = available;
+        }
+
+        static Object newClient(SSLContext ssl) {
+            Object builder = invoke(newBuilder, null);
+            invoke(builderVersion, builder, HTTP_2);
+            invoke(builderSslContext, builder, ssl);
+            return invoke(builderBuild, builder);
+        }
+
+        static Object send(Object client, TransportRequest request) throws IOException {
+            Object builder;
+            try {
+                builder = invoke(requestNewBuilder, null, request.getUrl().toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("invalid url: " + request.getUrl(), e);
+            }
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                if (header.getValue() != null && !isRestricted(header.getKey())) {
+                    invoke(requestHeader, builder, header.getKey(), header.getValue());
+                }
+            }
+            if (request.getTimeout() > 0) {
+                invoke(requestTimeout, builder, Duration.ofMillis(request.getTimeout()));
+            }
+            // the JDK client wants the whole body; streamed bodies are written into memory here
+            byte[] bytes = request.getBody();
+            Object publisher = bytes != null ? invoke(ofByteArray, null, (Object) bytes) : invoke(noBody, null);
+            invoke(requestMethod, builder, request.getMethod(), publisher);
+            Object built = invoke(requestBuild, builder);
+            try {
+                return send.invoke(client, built, invoke(ofInputStream, null));
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for the response", cause);
+                }
+                throw new IOException(cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static int statusCode(Object response) {
+            return (Integer) invoke(statusCode, response);
+        }
+
+        @SuppressWarnings("unchecked")
+        static Map<String, List<String>> headers(Object response) {
+            return (Map<String, List<String>>) invoke(headersMap, invoke(headers, response));
+        }
+
+        static InputStream body(Object response) {
+            return (InputStream) invoke(body, response);
+        }
+
+        static String version(Object response) {
+            return ((Enum<?>) invoke(version, response)).name();
+        }
+
+        /**
+         * Headers the JDK client sets itself and refuses from callers.
+         */
+        private static boolean isRestricted(String name) {
+            switch (name.toLowerCase()) {
+                case "connection":
+                case "content-length":
+                case "expect":
+                case "host":
+                case "upgrade":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private static Object invoke(Method method, Object target, Object... args) {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
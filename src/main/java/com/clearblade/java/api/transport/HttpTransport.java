@@ -0,0 +1,24 @@
+package com.clearblade.java.api.transport;
+
+import java.io.IOException;
+
+/**
+ * Carries the SDK's platform calls. {@link com.clearblade.java.api.internal.RequestEngine} builds
+ * the request (url, headers, body) and parses the response; the transport only moves the bytes.
+ * <p>
+ * The default is {@link PooledTransport}, HTTP/1.1 over pooled keep-alive connections. Another
+ * transport is selected with {@link com.clearblade.java.api.InitOptions#setTransport(HttpTransport)},
+ * for example {@link InMemoryTransport} to run the SDK without a network. Implementations must be
+ * thread safe; one instance serves all concurrent calls.
+ * </p>
+ */
+public interface HttpTransport {
+
+    /**
+     * Sends the request and returns once the status and headers have been received.
+     * @param request the request to send
+     * @return the response, whose body the caller reads to the end or closes
+     * @throws IOException if the exchange failed
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+}
@@ -0,0 +1,436 @@
+package com.clearblade.java.api.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * A transport that serves the data, code and auth endpoints from memory, without any network.
+ * <p>
+ * It is meant for benchmarking the SDK's own overhead (request building, headers, JSON writing and
+ * parsing) and for tests. Collections are created on first use and hold JSON objects; queries
+ * support the EQ, NEQ, GT, GTE, LT and LTE filters and paging. Code services answer with the
+ * registered function, or echo their parameters. Every auth call succeeds.
+ * </p>
+ * <pre>
+ * InMemoryTransport platform = new InMemoryTransport();
+ * platform.registerService("double", params -&gt; ...);
+ * ClearBlade.initialize(systemKey, systemSecret, new InitOptions().setTransport(platform), callback);
+ * </pre>
+ */
+public class InMemoryTransport implements HttpTransport {
+
+    private final Map<String, List<JsonObject>> collections = new ConcurrentHashMap<>();
+    private final Map<String, Function<JsonObject, JsonObject>> services = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private volatile boolean compressResponses;
+
+    /**
+     * Adds rows to a collection, referenced by id or by name as the SDK addresses it. Rows without
+     * an item_id get one.
+     */
+    public void addItems(String collection, JsonArray rows) {
+        List<JsonObject> items = collection(collection);
+        synchronized (items) {
+            for (JsonElement row : rows) {
+                items.add(withId(row.getAsJsonObject().deepCopy()));
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the rows of a collection.
+     */
+    public JsonArray getItems(String collection) {
+        List<JsonObject> items = collection(collection);
+        JsonArray copy = new JsonArray();
+        synchronized (items) {
+            for (JsonObject item : items) {
+                copy.add(item.deepCopy());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Registers the function answering calls to the named code service.
+     */
+    public void registerService(String name, Function<JsonObject, JsonObject> service) {
+        services.put(name, service);
+    }
+
+    /**
+     * Gzips responses to requests that accept it, as a platform behind a compressing proxy would.
+     */
+    public void setCompressResponses(boolean compress) {
+        this.compressResponses = compress;
+    }
+
+    /**
+     * Returns the number of requests served so far.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        requestCount.incrementAndGet();
+        String path = request.getUrl().getPath();
+        String[] segments = path.startsWith("/") ? path.substring(1).split("/") : path.split("/");
+        Map<String, String> params = parseQueryString(request.getUrl().getQuery());
+        String accept = request.getHeaders().get("Accept-Encoding");
+        boolean gzip = compressResponses && accept != null && accept.contains("gzip");
+        try {
+            JsonElement body = null;
+            byte[] bytes = requestBody(request);
+            if (bytes != null && bytes.length > 0) {
+                body = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8));
+            }
+            JsonElement result = route(request.getMethod().toUpperCase(), segments, params, body);
+            if (result == null) {
+                return respond(404, "Not Found", "{\"error\":\"no such endpoint: " + path + "\"}", gzip);
+            }
+            return respond(200, "OK", result.toString(), gzip);
+        } catch (RuntimeException e) {
+            return respond(400, "Bad Request", "{\"error\":" + new JsonPrimitive(String.valueOf(e.getMessage())) + "}", gzip);
+        }
+    }
+
+    private static byte[] requestBody(TransportRequest request) throws IOException {
+        byte[] body = request.getBody();
+        if (body == null || !"gzip".equalsIgnoreCase(request.getHeaders().get("Content-Encoding"))) {
+            return body;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private JsonElement route(String method, String[] segments, Map<String, String> params, JsonElement body) {
+        // api/v/<version>/...
+        if (segments.length < 4 || !segments[0].equals("api") || !segments[1].equals("v")) {
+            return null;
+        }
+        String resource = segments[3];
+        if (resource.equals("user") && segments.length == 5) {
+            return user(segments[4]);
+        }
+        if (resource.equals("devices") && segments.length == 6 && segments[5].equals("auth")) {
+            JsonObject token = new JsonObject();
+            token.addProperty("deviceToken", UUID.randomUUID().toString());
+            return token;
+        }
+        if (resource.equals("data") && segments.length == 5) {
+            return data(method, segments[4], params, body);
+        }
+        if (resource.equals("collection") && segments.length == 6) {
+            return data(method, segments[5], params, body);
+        }
+        if (resource.equals("code") && segments.length == 6 && method.equals("POST")) {
+            return code(segments[5], body);
+        }
+        return null;
+    }
+
+    private JsonElement user(String action) {
+        JsonObject result = new JsonObject();
+        switch (action) {
+            case "auth":
+            case "anon":
+            case "reg":
+                result.addProperty("user_token", UUID.randomUUID().toString());
+                return result;
+            case "checkauth":
+                result.addProperty("is_authenticated", true);
+                return result;
+            case "logout":
+                return result;
+            default:
+                return null;
+        }
+    }
+
+    private JsonElement code(String name, JsonElement body) {
+        JsonObject params = body != null && body.isJsonObject() ? body.getAsJsonObject() : new JsonObject();
+        Function<JsonObject, JsonObject> service = services.get(name);
+        if (service != null) {
+            return service.apply(params);
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("success", true);
+        result.add("results", params);
+        return result;
+    }
+
+    private JsonElement data(String method, String collection, Map<String, String> params, JsonElement body) {
+        List<JsonObject> items = collection(collection);
+        synchronized (items) {
+            switch (method) {
+                case "GET":
+                    return fetch(items, params);
+                case "POST":
+                    return insert(items, body);
+                case "PUT":
+                    return update(items, body.getAsJsonObject());
+                case "DELETE":
+                    return remove(items, params);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private JsonElement fetch(List<JsonObject> items, Map<String, String> params) {
+        if (params.containsKey("item_id")) {
+            // Item.load asks for a single item by id
+            JsonArray found = new JsonArray();
+            for (JsonObject item : items) {
+                if (params.get("item_id").equals(asString(item.get("item_id")))) {
+                    found.add(item.deepCopy());
+                }
+            }
+            return found;
+        }
+        JsonObject query = params.containsKey("query") ? JsonParser.parseString(params.get("query")).getAsJsonObject() : new JsonObject();
+        JsonArray filters = query.has("FILTERS") ? query.getAsJsonArray("FILTERS") : new JsonArray();
+        int pageNum = query.has("PAGENUM") ? query.get("PAGENUM").getAsInt() : 0;
+        int pageSize = query.has("PAGESIZE") ? query.get("PAGESIZE").getAsInt() : 0;
+
+        List<JsonObject> matches = new ArrayList<>();
+        for (JsonObject item : items) {
+            if (matchesAny(item, filters)) {
+                matches.add(item);
+            }
+        }
+        int from = 0;
+        int to = matches.size();
+        if (pageNum > 0 && pageSize > 0) {
+            from = Math.min((pageNum - 1) * pageSize, matches.size());
+            to = Math.min(from + pageSize, matches.size());
+        }
+        JsonArray data = new JsonArray();
+        for (JsonObject item : matches.subList(from, to)) {
+            data.add(item.deepCopy());
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("CURRENTPAGE", pageNum);
+        result.add("NEXTPAGEURL", JsonNull.INSTANCE);
+        result.add("PREVPAGEURL", JsonNull.INSTANCE);
+        result.addProperty("TOTAL", matches.size());
+        result.add("DATA", data);
+        return result;
+    }
+
+    private JsonElement insert(List<JsonObject> items, JsonElement body) {
+        JsonArray rows = body.isJsonArray() ? body.getAsJsonArray() : new JsonArray();
+        if (body.isJsonObject()) {
+            rows.add(body);
+        }
+        JsonArray created = new JsonArray();
+        for (JsonElement row : rows) {
+            JsonObject item = withId(row.getAsJsonObject().deepCopy());
+            items.add(item);
+            JsonObject id = new JsonObject();
+            id.add("item_id", item.get("item_id"));
+            created.add(id);
+        }
+        return created;
+    }
+
+    private JsonElement update(List<JsonObject> items, JsonObject body) {
+        JsonObject changes = body.getAsJsonObject("$set");
+        JsonElement query = body.get("query");
+        JsonArray updated = new JsonArray();
+        for (JsonObject item : items) {
+            boolean match = query.isJsonObject()
+                    ? matchesFields(item, query.getAsJsonObject())	// Item.save: {"item_id": ...}
+                    : matchesAny(item, query.getAsJsonArray());	// Query.update: [[...]]
+            if (match) {
+                for (Map.Entry<String, JsonElement> change : changes.entrySet()) {
+                    item.add(change.getKey(), change.getValue());
+                }
+                updated.add(item.deepCopy());
+            }
+        }
+        return updated;
+    }
+
+    private JsonElement remove(List<JsonObject> items, Map<String, String> params) {
+        JsonArray query = params.containsKey("query") ? JsonParser.parseString(params.get("query")).getAsJsonArray() : new JsonArray();
+        JsonArray removed = new JsonArray();
+        Iterator<JsonObject> it = items.iterator();
+        while (it.hasNext()) {
+            JsonObject item = it.next();
+            if (matchesAny(item, query)) {
+                removed.add(item);
+                it.remove();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Matches a query as the platform does, both a fetch's FILTERS and the query of updates and
+     * removes: {@code [[clauses...], [clauses...]]} holds if the clauses of any inner array all
+     * hold. An empty query matches everything.
+     */
+    private static boolean matchesAny(JsonObject item, JsonArray filters) {
+        if (filters.size() == 0) {
+            return true;
+        }
+        for (JsonElement branch : filters) {
+            boolean all = true;
+            for (JsonElement clauses : branch.getAsJsonArray()) {
+                all &= matchesClauses(item, clauses.getAsJsonObject());
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches {"EQ":[{"field":value}], "GT":[...], ...}; every condition must hold.
+     */
+    private static boolean matchesClauses(JsonObject item, JsonObject clauses) {
+        for (Map.Entry<String, JsonElement> operator : clauses.entrySet()) {
+            for (JsonElement condition : operator.getValue().getAsJsonArray()) {
+                for (Map.Entry<String, JsonElement> field : condition.getAsJsonObject().entrySet()) {
+                    if (!holds(operator.getKey(), item.get(field.getKey()), field.getValue())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesFields(JsonObject item, JsonObject fields) {
+        for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+            if (!holds("EQ", item.get(field.getKey()), field.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean holds(String operator, JsonElement actual, JsonElement expected) {
+        if (operator.equals("EQ")) {
+            return compare(actual, expected) == 0;
+        }
+        if (operator.equals("NEQ")) {
+            return compare(actual, expected) != 0;
+        }
+        if (actual == null || actual.isJsonNull()) {
+            return false;
+        }
+        int order = compare(actual, expected);
+        switch (operator) {
+            case "GT":
+                return order > 0;
+            case "GTE":
+                return order >= 0;
+            case "LT":
+                return order < 0;
+            case "LTE":
+                return order <= 0;
+            default:
+                throw new IllegalArgumentException("unsupported operator " + operator);
+        }
+    }
+
+    private static int compare(JsonElement actual, JsonElement expected) {
+        boolean actualNull = actual == null || actual.isJsonNull();
+        boolean expectedNull = expected == null || expected.isJsonNull();
+        if (actualNull || expectedNull) {
+            return actualNull && expectedNull ? 0 : (actualNull ? -1 : 1);
+        }
+        if (actual.isJsonPrimitive() && expected.isJsonPrimitive()
+                && actual.getAsJsonPrimitive().isNumber() && expected.getAsJsonPrimitive().isNumber()) {
+            return Double.compare(actual.getAsDouble(), expected.getAsDouble());
+        }
+        return asString(actual).compareTo(asString(expected));
+    }
+
+    private static String asString(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        return element.isJsonPrimitive() ? element.getAsString() : element.toString();
+    }
+
+    private List<JsonObject> collection(String name) {
+        return collections.computeIfAbsent(name, k -> Collections.synchronizedList(new ArrayList<JsonObject>()));
+    }
+
+    private static JsonObject withId(JsonObject item) {
+        String id = asString(item.get("item_id"));
+        if (id == null || id.isEmpty()) {
+            item.addProperty("item_id", UUID.randomUUID().toString());
+        }
+        return item;
+    }
+
+    private static Map<String, String> parseQueryString(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return params;
+    }
+
+    private static TransportResponse respond(int status, String reason, String json, boolean gzip) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+                zip.write(bytes);
+            }
+            bytes = out.toByteArray();
+            headers.put("Content-Encoding", "gzip");
+        }
+        headers.put("Content-Length", Integer.toString(bytes.length));
+        return new TransportResponse(status, reason, headers, new ByteArrayInputStream(bytes));
+    }
+}
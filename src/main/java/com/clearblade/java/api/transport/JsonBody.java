@@ -0,0 +1,39 @@
+package com.clearblade.java.api.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Serializes a JSON tree onto the connection as it is written. The tree must not change once the
+ * body is built; {@link RequestBody#json(JsonElement)} hands it a copy.
+ */
+final class JsonBody implements RequestBody {
+
+    // same output as JsonElement.toString: nulls kept, no HTML escaping
+    private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+    private final JsonElement element;
+
+    JsonBody(JsonElement element) {
+        this.element = element;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        GSON.toJson(element, writer);
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        return element.toString();
+    }
+}
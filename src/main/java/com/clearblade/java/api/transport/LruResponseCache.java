@@ -0,0 +1,96 @@
+package com.clearblade.java.api.transport;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The default {@link ResponseCache}: entries in memory, the least recently used evicted once they
+ * hold more than a given number of bytes.
+ */
+public class LruResponseCache implements ResponseCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long evictionCount;
+
+    /**
+     * @param maxBytes memory the entries may hold, see {@link CachedResponse#getSize()}
+     */
+    public LruResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void put(String key, CachedResponse response) {
+        int entrySize = response.getSize() + key.length() * 2;
+        remove(key);
+        if (entrySize > maxBytes) {
+            return;     // would evict everything else and still not fit
+        }
+        entries.put(key, response);
+        size += entrySize;
+        Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+        while (size > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = eldest.next();
+            size -= entry.getValue().getSize() + entry.getKey().length() * 2;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(String path) {
+        Iterator<Map.Entry<String, CachedResponse>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = it.next();
+            if (entry.getValue().getPath().equals(path)) {
+                size -= entry.getValue().getSize() + entry.getKey().length() * 2;
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private void remove(String key) {
+        CachedResponse previous = entries.remove(key);
+        if (previous != null) {
+            size -= previous.getSize() + key.length() * 2;
+        }
+    }
+
+    // Stats
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the memory the entries hold right now, in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of entries dropped to stay within maxBytes.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
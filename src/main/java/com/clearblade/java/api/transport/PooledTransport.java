@@ -0,0 +1,24 @@
+package com.clearblade.java.api.transport;
+
+import java.io.IOException;
+
+import com.clearblade.java.api.internal.HttpConnectionPool;
+import com.clearblade.java.api.internal.PooledHttpClient;
+import com.clearblade.java.api.internal.PooledHttpResponse;
+
+/**
+ * The default transport: HTTP/1.1 over keep-alive connections from the shared
+ * {@link HttpConnectionPool}, which is sized by the connection settings of
+ * {@link com.clearblade.java.api.InitOptions}.
+ */
+public class PooledTransport implements HttpTransport {
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        // looked up per call, as ClearBlade.initialize may replace the shared pool
+        PooledHttpClient client = new PooledHttpClient(HttpConnectionPool.getShared());
+        PooledHttpResponse response = client.executeStreaming(request.getMethod(), request.getUrl(), request.getHeaders(),
+                request.getRequestBody(), request.getTimeout());
+        return new TransportResponse(response.getStatusCode(), response.getReasonPhrase(), response.getHeaders(), response.getBody());
+    }
+}
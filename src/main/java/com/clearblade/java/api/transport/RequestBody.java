@@ -0,0 +1,80 @@
+package com.clearblade.java.api.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.google.gson.JsonElement;
+
+/**
+ * The body of a platform call, written straight to the connection as UTF-8.
+ * <p>
+ * Bodies of unknown length are sent with chunked transfer encoding by the
+ * {@link PooledTransport}, so a large JSON payload is serialized onto the socket without being
+ * held as a String or byte array first. A body may be written more than once, e.g. when a call is
+ * retried on a fresh connection, and must write the same bytes every time.
+ * </p>
+ * <pre>
+ * new Code("ingest", out -&gt; {
+ *     try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+ *         // write the JSON parameters
+ *     }
+ * }).executeAsync();
+ * </pre>
+ */
+@FunctionalInterface
+public interface RequestBody {
+
+    /**
+     * Writes the body. Closing the stream is allowed and does not close the connection.
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Returns the length in bytes, or -1 if it is only known once written.
+     */
+    default long contentLength() {
+        return -1;
+    }
+
+    /**
+     * Writes the body into a byte array, for transports that need the whole body up front.
+     */
+    default byte[] toByteArray() throws IOException {
+        long length = contentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length >= 0 ? (int) length : 256);
+        writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns a body of the given bytes, sent with a Content-Length.
+     */
+    static RequestBody of(byte[] bytes) {
+        return new RequestBody() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(bytes);
+            }
+
+            @Override
+            public long contentLength() {
+                return bytes.length;
+            }
+
+            @Override
+            public byte[] toByteArray() {
+                return bytes;
+            }
+        };
+    }
+
+    /**
+     * Returns a body that serializes the element as it is written, exactly as
+     * {@link JsonElement#toString()} would but without building the String. The element is copied
+     * here, so later changes to it do not alter what is sent, even on a retry.
+     */
+    static RequestBody json(JsonElement element) {
+        return new JsonBody(element.deepCopy());
+    }
+}
@@ -0,0 +1,115 @@
+package com.clearblade.java.api.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Turns a successful response body into a value while it streams in, so callers need not hold the
+ * whole body as a String first.
+ * <p>
+ * The handler is only called for 2xx responses. The SDK closes the stream afterwards, which
+ * hands the connection back to the pool; handlers should not keep a reference to it. The body has
+ * already been decompressed, and platform responses are UTF-8.
+ * </p>
+ * <pre>
+ * // a large export goes to disk in 8 KB pieces
+ * query.fetchAsync(ResponseBodyHandler.ofFile(Paths.get("export.json")));
+ *
+ * String report = codeService.executeAsync(ResponseBodyHandler.ofString()).join();
+ * </pre>
+ * @param <T> the type the body is turned into
+ * @see com.clearblade.java.api.Code#executeAsync(ResponseBodyHandler)
+ * @see com.clearblade.java.api.Query#fetchAsync(ResponseBodyHandler)
+ */
+@FunctionalInterface
+public interface ResponseBodyHandler<T> {
+
+    /**
+     * @param body the response body
+     * @return the value built from the body
+     * @throws IOException if the body could not be read or parsed
+     */
+    T handle(InputStream body) throws IOException;
+
+    /**
+     * Reads the body as a UTF-8 String, line breaks included.
+     */
+    static ResponseBodyHandler<String> ofString() {
+        return body -> {
+            StringBuilder sb = new StringBuilder();
+            Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+            char[] buffer = new char[4096];
+            for (int n; (n = reader.read(buffer)) != -1; ) {
+                sb.append(buffer, 0, n);
+            }
+            return sb.toString();
+        };
+    }
+
+    /**
+     * Reads the body into a byte array.
+     */
+    static ResponseBodyHandler<byte[]> ofBytes() {
+        return body -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = body.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        };
+    }
+
+    /**
+     * Hands the body to a reader that pulls JSON tokens one at a time, so memory stays bounded
+     * by what the reader keeps, not by the size of the response.
+     */
+    static <T> ResponseBodyHandler<T> ofJsonReader(JsonReaderHandler<T> handler) {
+        return body -> {
+            JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            try {
+                return handler.read(reader);
+            } catch (IllegalStateException | JsonParseException e) {
+                throw new IOException("invalid JSON response: " + e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * Parses the body into a JSON tree without reading it into a String first.
+     */
+    static ResponseBodyHandler<JsonElement> ofJson() {
+        return ofJsonReader(JsonParser::parseReader);
+    }
+
+    /**
+     * Copies the body to a file, replacing it if it exists, and returns the file.
+     */
+    static ResponseBodyHandler<Path> ofFile(Path file) {
+        return body -> {
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        };
+    }
+
+    /**
+     * Reads a response from a JSON token stream.
+     * @param <T> the type the response is turned into
+     */
+    @FunctionalInterface
+    interface JsonReaderHandler<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+}
@@ -0,0 +1,35 @@
+package com.clearblade.java.api.transport;
+
+/**
+ * Stores platform responses for {@link com.clearblade.java.api.internal.ResponseCaching}.
+ * <p>
+ * The default is {@link LruResponseCache}, bounded by memory. Another store (off-heap, shared
+ * between processes, ...) is plugged in with
+ * {@link com.clearblade.java.api.CachePolicy#setCache(ResponseCache)}. Implementations must be
+ * thread safe; expiry and revalidation are handled by the caller, a store only keeps entries.
+ * </p>
+ */
+public interface ResponseCache {
+
+    /**
+     * Returns the entry stored under the key, fresh or not, or null.
+     * @param key method, url and auth identity of the call
+     */
+    CachedResponse get(String key);
+
+    /**
+     * Stores an entry, replacing any entry under the same key. A store may drop entries at any time.
+     */
+    void put(String key, CachedResponse response);
+
+    /**
+     * Removes every entry whose url path is the given one, whatever its query string.
+     * @param path url path, e.g. "/api/v/1/data/&lt;collectionId&gt;"
+     */
+    void invalidate(String path);
+
+    /**
+     * Removes every entry.
+     */
+    void clear();
+}
@@ -0,0 +1,75 @@
+package com.clearblade.java.api.transport;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A platform call as handed to an {@link HttpTransport}.
+ */
+public class TransportRequest {
+
+    private final String _method;
+    private final URL _url;
+    private final Map<String, String> _headers;
+    private final RequestBody _body;
+    private final int _timeout;
+
+    /**
+     * @param method http method
+     * @param url absolute url, including the query string
+     * @param headers request headers, without Host and Content-Length
+     * @param body request body, or null for none
+     * @param timeout milliseconds to wait for a connection (0 waits forever)
+     */
+    public TransportRequest(String method, URL url, Map<String, String> headers, byte[] body, int timeout) {
+        this(method, url, headers, body != null ? RequestBody.of(body) : null, timeout);
+    }
+
+    /**
+     * @param method http method
+     * @param url absolute url, including the query string
+     * @param headers request headers, without Host, Content-Length and Transfer-Encoding
+     * @param body request body, streamed to the connection, or null for none
+     * @param timeout milliseconds to wait for a connection (0 waits forever)
+     */
+    public TransportRequest(String method, URL url, Map<String, String> headers, RequestBody body, int timeout) {
+        this._method = method;
+        this._url = url;
+        this._headers = Collections.unmodifiableMap(headers);
+        this._body = body;
+        this._timeout = timeout;
+    }
+
+    public String getMethod() {
+        return this._method;
+    }
+
+    public URL getUrl() {
+        return this._url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return this._headers;
+    }
+
+    /**
+     * Returns the body, or null if the request has none.
+     */
+    public RequestBody getRequestBody() {
+        return this._body;
+    }
+
+    /**
+     * Returns the body as bytes, writing a streamed body into memory, or null if the request has none.
+     * Transports that can stream should use {@link #getRequestBody()} instead.
+     */
+    public byte[] getBody() throws IOException {
+        return this._body != null ? this._body.toByteArray() : null;
+    }
+
+    public int getTimeout() {
+        return this._timeout;
+    }
+}
@@ -0,0 +1,65 @@
+package com.clearblade.java.api.transport;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The response an {@link HttpTransport} returns for a {@link TransportRequest}.
+ * <p>
+ * The body must be read to the end or closed, which is what releases the connection (or stream)
+ * it came from.
+ * </p>
+ */
+public class TransportResponse {
+
+    private final int _statusCode;
+    private final String _reasonPhrase;
+    private final Map<String, String> _headers;
+    private final InputStream _body;
+
+    /**
+     * @param statusCode http status code
+     * @param reasonPhrase status text, may be empty
+     * @param headers response headers; names are looked up case insensitively
+     * @param body the response body
+     */
+    public TransportResponse(int statusCode, String reasonPhrase, Map<String, String> headers, InputStream body) {
+        Map<String, String> lowerCase = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            lowerCase.merge(entry.getKey().toLowerCase(), entry.getValue(), (a, b) -> a + "," + b);
+        }
+        this._statusCode = statusCode;
+        this._reasonPhrase = reasonPhrase != null ? reasonPhrase : "";
+        this._headers = Collections.unmodifiableMap(lowerCase);
+        this._body = body;
+    }
+
+    public int getStatusCode() {
+        return this._statusCode;
+    }
+
+    public String getReasonPhrase() {
+        return this._reasonPhrase;
+    }
+
+    /**
+     * Returns the response headers keyed by lower case name. Repeated headers are joined with a comma.
+     */
+    public Map<String, String> getHeaders() {
+        return this._headers;
+    }
+
+    /**
+     * Returns the value of the given header, or null.
+     * @param name case insensitive header name
+     */
+    public String getHeader(String name) {
+        return this._headers.get(name.toLowerCase());
+    }
+
+    public InputStream getBody() {
+        return this._body;
+    }
+}
@@ -0,0 +1,120 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.InMemoryTransport;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+import com.google.gson.JsonParser;
+
+
+public class CollectionReplicaTests {
+
+    private InMemoryTransport platform;
+    private volatile boolean unavailable;
+
+    @BeforeEach
+    void initialize() throws ClearBladeException {
+        platform = new InMemoryTransport();
+        HttpTransport transport = new HttpTransport() {
+            @Override
+            public TransportResponse execute(TransportRequest request) throws IOException {
+                if (unavailable) {
+                    throw new IOException("connection refused");
+                }
+                return platform.execute(request);
+            }
+        };
+        ClearBlade.initialize("systemKey", "systemSecret", new InitOptions().setTransport(transport), new InitCallback() {
+            @Override
+            public void done(boolean results) {
+            }
+
+            @Override
+            public void error(ClearBladeException exception) {
+                fail(exception);
+            }
+        });
+        add("[{\"item_id\":\"fr\",\"name\":\"France\",\"_lastModified\":1},"
+                + "{\"item_id\":\"de\",\"name\":\"Germany\",\"_lastModified\":2}]");
+    }
+
+    private void add(String rows) {
+        platform.addItems("countries", JsonParser.parseString(rows).getAsJsonArray());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "condition not met within 5 seconds");
+    }
+
+    @Test
+    void failedBackgroundSyncsKeepTheSnapshot() throws Exception {
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(20))) {
+            unavailable = true;
+            add("[{\"item_id\":\"es\",\"name\":\"Spain\",\"_lastModified\":3}]");
+            await(() -> replica.getFailedSyncCount() >= 2);
+
+            assertEquals(2, replica.size());
+            assertEquals("France", replica.get("fr").getString("name"));
+
+            // the next scheduled sync after the outage catches up
+            unavailable = false;
+            await(() -> replica.get("es") != null);
+            assertEquals(3, replica.size());
+        }
+    }
+
+    @Test
+    void fullSyncIntervalReloadsTheCollection() throws Exception {
+        ReplicaOptions options = new ReplicaOptions().setSyncInterval(20).setFullSyncInterval(200);
+        try (CollectionReplica replica = new Collection("countries").replicate(options)) {
+            List<String> removed = new CopyOnWriteArrayList<>();
+            replica.addChangeListener((previous, current) -> {
+                if (current == null) {
+                    removed.add(previous.getId());
+                }
+            });
+
+            // deltas do not carry deletes; only the full reload notices this one
+            Query germany = new Query("countries");
+            germany.equalTo("item_id", "de");
+            germany.removeSync();
+            await(() -> replica.get("de") == null);
+
+            assertEquals(1, replica.size());
+            assertEquals("[de]", removed.toString());
+        }
+    }
+
+    @Test
+    void syncOfAnEmptyReplicaFallsBackToResync() throws Exception {
+        new Query("countries").removeSync();
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000))) {
+            assertEquals(0, replica.size());
+            add("[{\"item_id\":\"it\",\"name\":\"Italy\",\"_lastModified\":4}]");
+
+            // no watermark to compare to yet
+            replica.sync();
+            assertEquals("Italy", replica.get("it").getString("name"));
+
+            // the loaded rows give the next sync a watermark
+            add("[{\"item_id\":\"pt\",\"name\":\"Portugal\",\"_lastModified\":5}]");
+            replica.sync();
+            assertEquals(2, replica.size());
+            assertEquals(0, replica.getFailedSyncCount());
+        }
+    }
+}
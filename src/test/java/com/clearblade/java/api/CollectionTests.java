@@ -0,0 +1,170 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+
+public class CollectionTests {
+
+    private static JsonArray created(String... ids) {
+        JsonArray rows = new JsonArray();
+        for (String id : ids) {
+            JsonObject row = new JsonObject();
+            row.addProperty("item_id", id);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    void saveAllInsertsNewItemsInChunksAndAssignsIds() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(created("a", "b")).doReturn(created("c")).when(collection).insertRows(any(JsonArray.class));
+
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Item item = new Item("collection");
+            item.set("n", i);
+            items.add(item);
+        }
+        BulkResult<Item> result = collection.saveAll(items, 2);
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getSuccessCount());
+        verify(collection, times(2)).insertRows(any(JsonArray.class));
+        List<String> ids = Arrays.asList(items.get(0).getId(), items.get(1).getId(), items.get(2).getId());
+        assertTrue(ids.containsAll(Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    void saveAllReportsFailedChunkPerItem() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(created("a")).doThrow(new ClearBladeException("boom")).when(collection).insertRows(any(JsonArray.class));
+
+        List<Item> items = Arrays.asList(new Item("collection"), new Item("collection"));
+        BulkResult<Item> result = collection.saveAll(items, 1);
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals("boom", result.getError(result.isSuccess(0) ? 1 : 0).getMessage());
+        assertEquals(1, result.getFailed().size());
+    }
+
+    @Test
+    void saveAllFailsItemsMissingFromTheInsertResponse() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(created("a")).when(collection).insertRows(any(JsonArray.class));
+
+        List<Item> items = Arrays.asList(new Item("collection"), new Item("collection"), new Item("collection"));
+        items.forEach(item -> item.set("n", 1));
+        BulkResult<Item> result = collection.saveAll(items, 3);
+
+        assertTrue(result.isSuccess(0));
+        assertEquals("a", items.get(0).getId());
+        assertEquals(Arrays.asList(items.get(1), items.get(2)), result.getFailed());
+        // still new with their changes, so a retry sends them again
+        assertTrue(items.get(1).isNew());
+        assertTrue(items.get(1).hasChanges());
+    }
+
+    @Test
+    void deleteByIdsSendsOneQueryPerChunk() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doNothing().when(collection).deleteChunk(Arrays.asList("1", "2"));
+        doThrow(new ClearBladeException("boom")).when(collection).deleteChunk(Arrays.asList("3"));
+
+        BulkResult<String> result = collection.deleteByIds(Arrays.asList("1", "2", "3"), 2);
+
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(Arrays.asList("3"), result.getFailed());
+        assertFalse(result.isSuccess(2));
+    }
+
+    @Test
+    void byIdsQueryMatchesAnyId() throws Exception {
+        Query query = new Collection("collection").byIdsQuery(Arrays.asList("1", "2"));
+        String param = URLDecoder.decode(query.getRemoveAnyURLParameter(), "UTF-8");
+        // one inner array per id: the platform ORs inner arrays and ANDs the clauses inside one
+        assertEquals("?query=[[{\"EQ\":[{\"item_id\":\"1\"}]}],[{\"EQ\":[{\"item_id\":\"2\"}]}]]", param);
+    }
+
+    private static Item[] items(String... ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < ids.length; i++) {
+            json.append(i > 0 ? "," : "").append("{ \"item_id\": \"").append(ids[i]).append("\" }");
+        }
+        json.append("]");
+        return Query.parseItemArrayWith(json.toString(), "collection", false);
+    }
+
+    @Test
+    void loadAllQueriesDistinctIdsOnceInGivenOrder() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(items("b", "a")).when(collection).loadChunk(Arrays.asList("a", "b", "missing"));
+
+        Map<String, Item> loaded = collection.loadAll(Arrays.asList("a", "b", "a", "missing"));
+
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(loaded.keySet()));
+        verify(collection, times(1)).loadChunk(any());
+    }
+
+    @Test
+    void loaderBatchesLoadsOfOneWindow() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(items("a", "b")).when(collection).loadChunk(Arrays.asList("a", "b", "c"));
+        ItemLoader loader = new ItemLoader(collection, 100, 1, TimeUnit.MINUTES);
+
+        CompletableFuture<Item> a = loader.load("a");
+        CompletableFuture<Item> b = loader.load("b");
+        CompletableFuture<Item> c = loader.load("c");
+        assertSame(a, loader.load("a"));
+        assertEquals(0, loader.getBatchCount());
+
+        loader.flush();
+        assertEquals("a", a.join().getId());
+        assertEquals("b", b.join().getId());
+        assertNull(c.join());
+        assertEquals(1, loader.getBatchCount());
+        verify(collection, times(1)).loadChunk(any());
+    }
+
+    @Test
+    void loaderSendsFullBatchesAndClosesTheWindowByItself() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(items("a", "b")).when(collection).loadChunk(Arrays.asList("a", "b"));
+        doReturn(items("c")).when(collection).loadChunk(Arrays.asList("c"));
+        ItemLoader loader = new ItemLoader(collection, 2, 20, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<Item> a = loader.load("a");
+        CompletableFuture<Item> b = loader.load("b");
+        assertEquals(1, loader.getBatchCount(), "a full batch goes out at once");
+        CompletableFuture<Item> c = loader.load("c");
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS).getId());
+        assertEquals("b", b.get(5, TimeUnit.SECONDS).getId());
+        assertEquals("c", c.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(2, loader.getBatchCount());
+    }
+
+    @Test
+    void byIdsFetchLeavesOutTheEmptyBranch() throws Exception {
+        Query query = new Collection("collection").byIdsQuery(Arrays.asList("1", "2"));
+        String param = URLDecoder.decode(query.getFetchURLParameter(0, -1), "UTF-8");
+        assertEquals("?query={\"FILTERS\":[[{\"EQ\":[{\"item_id\":\"1\"}]}],[{\"EQ\":[{\"item_id\":\"2\"}]}]],\"PAGENUM\":0}", param);
+    }
+}
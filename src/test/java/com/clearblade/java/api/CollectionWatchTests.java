@@ -0,0 +1,181 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.auth.Auth;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.InMemoryTransport;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+import com.google.gson.JsonParser;
+
+
+public class CollectionWatchTests {
+
+    private static final String TOPIC = "changes/countries";
+
+    private InMemoryTransport platform;
+    private volatile boolean unavailable;
+    private volatile CountDownLatch fetchGate = new CountDownLatch(0);
+    private org.eclipse.paho.client.mqttv3.MqttClient mockClient;
+    private MqttClient client;
+
+    @BeforeEach
+    void initialize() throws ClearBladeException {
+        platform = new InMemoryTransport();
+        HttpTransport transport = new HttpTransport() {
+            @Override
+            public TransportResponse execute(TransportRequest request) throws IOException {
+                if (unavailable) {
+                    throw new IOException("connection refused");
+                }
+                if (request.getMethod().equals("GET")) {
+                    try {
+                        fetchGate.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return platform.execute(request);
+            }
+        };
+        ClearBlade.initialize("systemKey", "systemSecret", new InitOptions().setTransport(transport), new InitCallback() {
+            @Override
+            public void done(boolean results) {
+            }
+
+            @Override
+            public void error(ClearBladeException exception) {
+                fail(exception);
+            }
+        });
+        platform.addItems("countries", JsonParser.parseString(
+                "[{\"item_id\":\"fr\",\"name\":\"France\",\"_lastModified\":1},"
+                + "{\"item_id\":\"de\",\"name\":\"Germany\",\"_lastModified\":2}]").getAsJsonArray());
+
+        mockClient = mock(org.eclipse.paho.client.mqttv3.MqttClient.class);
+        client = new MqttClient("url", mock(Auth.class), "systemKey", "identifier", 0, false, 10);
+        client.mqttClient = mockClient;
+    }
+
+    private void publish(String change) {
+        client.messageArrived(TOPIC, new MqttMessage(change.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void changesArePushedWithoutPolling() throws Exception {
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000));
+                CollectionWatch watch = replica.watch(client, TOPIC)) {
+            verify(mockClient).subscribe(TOPIC, 0);
+            long requests = platform.getRequestCount();
+
+            publish("{\"op\":\"update\",\"item\":{\"item_id\":\"fr\",\"name\":\"R\\u00e9publique fran\\u00e7aise\",\"_lastModified\":3}}");
+            publish("[{\"op\":\"delete\",\"item\":{\"item_id\":\"de\"}},{\"op\":\"insert\",\"item\":{\"item_id\":\"es\",\"name\":\"Spain\",\"_lastModified\":3}}]");
+            publish("{\"op\":\"update\",\"item\":{\"item_id\":\"fr\",\"name\":\"stale\",\"_lastModified\":2}}");
+            publish("not a change");
+
+            assertEquals("R\u00e9publique fran\u00e7aise", replica.get("fr").getString("name"));
+            assertEquals(3, replica.get("fr").getInt("_lastModified"));
+            assertNull(replica.get("de"));
+            assertEquals("Spain", replica.get("es").getString("name"));
+            assertEquals(4, watch.getEventCount());
+            assertEquals(1, watch.getInvalidMessageCount());
+            assertEquals(requests, platform.getRequestCount());
+        }
+    }
+
+    @Test
+    void updateOfAnUnknownRowFetchesTheWholeRow() throws Exception {
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000));
+                CollectionWatch watch = replica.watch(client, TOPIC)) {
+            platform.addItems("countries", JsonParser.parseString(
+                    "[{\"item_id\":\"it\",\"name\":\"Italy\",\"capital\":\"Rome\",\"_lastModified\":4}]").getAsJsonArray());
+
+            publish("{\"op\":\"update\",\"item\":{\"item_id\":\"it\",\"name\":\"Italy\",\"_lastModified\":4}}");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (replica.get("it") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals("Rome", replica.get("it").getString("capital"), "the partial row was not stored");
+            assertEquals(1, watch.getEventCount());
+        }
+    }
+
+    @Test
+    void failedFirstSyncUndoesTheSubscription() throws Exception {
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000))) {
+            unavailable = true;
+            assertThrows(ClearBladeException.class, () -> replica.watch(client, TOPIC));
+            verify(mockClient).unsubscribe(TOPIC);
+
+            // nothing reaches the replica through the watch the caller never got
+            publish("{\"op\":\"delete\",\"item\":{\"item_id\":\"fr\"}}");
+            assertNotNull(replica.get("fr"));
+
+            unavailable = false;
+            replica.watch(client, TOPIC).close();
+        }
+    }
+
+    @Test
+    void messagesAreAppliedWhileAFullReloadRuns() throws Exception {
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000));
+                CollectionWatch watch = replica.watch(client, TOPIC)) {
+            fetchGate = new CountDownLatch(1);
+            CompletableFuture<Void> reload = CompletableFuture.runAsync(() -> {
+                try {
+                    replica.resync();
+                } catch (ClearBladeException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Thread.sleep(50);	// the reload is waiting for its scan
+
+            CompletableFuture<Void> delivered = CompletableFuture.runAsync(() -> publish(
+                    "{\"op\":\"insert\",\"item\":{\"item_id\":\"es\",\"name\":\"Spain\",\"_lastModified\":3}}"));
+            delivered.get(1, TimeUnit.SECONDS);
+            assertEquals("Spain", replica.get("es").getString("name"));
+            assertFalse(reload.isDone());
+
+            fetchGate.countDown();
+            reload.get(5, TimeUnit.SECONDS);
+            assertEquals("Spain", replica.get("es").getString("name"), "kept over the rows scanned before it arrived");
+            assertEquals(3, replica.size());
+        }
+    }
+
+    @Test
+    void reconnectFillsTheGapWithADeltaSync() throws Exception {
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000));
+                CollectionWatch watch = replica.watch(client, TOPIC)) {
+            client.connectionLost(new RuntimeException("network down"));
+            assertFalse(watch.isConnected());
+            platform.addItems("countries", JsonParser.parseString(
+                    "[{\"item_id\":\"it\",\"name\":\"Italy\",\"_lastModified\":4}]").getAsJsonArray());
+
+            client.connectComplete(true, "url");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (replica.get("it") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertNotNull(replica.get("it"), "missed row fetched after the reconnect");
+            assertTrue(watch.isConnected());
+            assertEquals(1, watch.getGapFillCount());
+        }
+        verify(mockClient).unsubscribe(TOPIC);
+    }
+}
@@ -0,0 +1,61 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+
+public class ItemTests {
+
+    private static Item saved(String json) {
+        return new Item(JsonParser.parseString(json).getAsJsonObject(), "collection", false);
+    }
+
+    @Test
+    void newPropertiesOfASavedItemAreChanges() {
+        Item item = saved("{ \"item_id\": \"1\", \"name\": \"John\" }");
+        item.set("age", 30);
+        assertEquals("{\"age\":30}", item.copyChanges().toString());
+    }
+
+    @Test
+    void repeatedSetsAreMergedAndUnchangedValuesIgnored() {
+        Item item = saved("{ \"item_id\": \"1\", \"name\": \"John\", \"age\": 30 }");
+        item.set("age", 30);
+        item.set("name", "Johan");
+        item.set("name", "Jo");
+        assertEquals("{\"name\":\"Jo\"}", item.copyChanges().toString());
+    }
+
+    @Test
+    void savingWithoutChangesMakesNoRequest() throws ClearBladeException {
+        Item item = saved("{ \"item_id\": \"1\", \"name\": \"John\" }");
+        item.set("name", "John");
+        assertFalse(item.hasChanges());
+        assertNull(item.saveHeaders(item.copyChanges()));
+        assertSame(item, item.saveSync()[0]);	// would fail without an initialized platform
+        assertSame(item, item.saveAsync().join());
+    }
+
+    @Test
+    void changesSetDuringASaveAreKept() {
+        Item item = saved("{ \"item_id\": \"1\" }");
+        item.set("a", 1);
+        JsonObject sent = item.copyChanges();
+        item.set("a", 2);
+        item.set("b", 3);
+        item.applyCreated(null, sent);
+        assertEquals("{\"a\":2,\"b\":3}", item.copyChanges().toString());
+    }
+
+    @Test
+    void unsetOfASavedPropertyIsSentAsNull() {
+        Item item = saved("{ \"item_id\": \"1\", \"name\": \"John\" }");
+        item.unset("name");
+        assertFalse(item.hasProperty("name"));
+        assertEquals("{\"name\":null}", item.copyChanges().toString());
+    }
+}
@@ -1,8 +1,16 @@
 package com.clearblade.java.api;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -186,4 +194,61 @@ public class MqttClientTests {
         verify(mockCallback, times(1)).done("multi/foo/topic", "bar".getBytes());
         verify(mockCallback, times(1)).done("multi/foo/topic", "bar");
     }
+
+    @Test
+    void messageArrivedOnOverlappingSubscriptionsUsesEveryMatchingCallback() throws Exception {
+        MessageCallback exactCallback = mock(MessageCallback.class);
+        MessageCallback levelCallback = mock(MessageCallback.class);
+        MessageCallback multiCallback = mock(MessageCallback.class);
+
+        spyClient.subscribe("devices/42/telemetry", 0, exactCallback);
+        spyClient.subscribe("devices/+/telemetry", 0, levelCallback);
+        spyClient.subscribe("devices/#", 0, multiCallback);
+
+        MqttMessage mockMessage = mock(MqttMessage.class);
+
+        when(mockMessage.getPayload()).thenReturn("bar".getBytes());
+
+        spyClient.messageArrived("devices/42/telemetry", mockMessage);
+        verify(exactCallback, times(1)).done("devices/42/telemetry", "bar");
+        verify(levelCallback, times(1)).done("devices/42/telemetry", "bar");
+        verify(multiCallback, times(1)).done("devices/42/telemetry", "bar");
+
+        spyClient.unsubscribe("devices/#");
+        spyClient.messageArrived("devices/42/telemetry", mockMessage);
+        verify(multiCallback, times(1)).done("devices/42/telemetry", "bar");
+    }
+
+    @Test
+    void parallelDispatchDeliversOffTheCallingThreadInOrder() throws Exception {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        CountDownLatch done = new CountDownLatch(20);
+        MessageCallback callback = new MessageCallback() {
+            @Override
+            public void done(String topic, String message) {
+                threads.add(Thread.currentThread());
+                received.add(message);
+                done.countDown();
+            }
+        };
+
+        spyClient.subscribe("devices/+/telemetry", 0, callback);
+        spyClient.enableParallelDispatch(4, (topic, payload) -> topic.split("/")[1]);
+
+        for (int i = 0; i < 20; i++) {
+            MqttMessage message = new MqttMessage(String.valueOf(i).getBytes());
+            spyClient.messageArrived("devices/" + (i % 2) + "/telemetry", message);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(threads.contains(Thread.currentThread()));
+        for (int i = 2; i < 20; i++) {
+            // each device's messages keep their order
+            assertTrue(received.indexOf(String.valueOf(i - 2)) < received.indexOf(String.valueOf(i)));
+        }
+
+        spyClient.disableParallelDispatch();
+        assertNull(spyClient.getDispatcher());
+    }
 }
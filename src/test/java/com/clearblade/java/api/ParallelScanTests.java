@@ -0,0 +1,82 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+
+public class ParallelScanTests {
+
+    private static QueryResponse page(int total, int... ids) {
+        StringBuilder json = new StringBuilder("{ \"TOTAL\": " + total + ", \"DATA\": [");
+        for (int i = 0; i < ids.length; i++) {
+            json.append(i > 0 ? "," : "").append("{ \"id\": ").append(ids[i]).append(" }");
+        }
+        json.append("] }");
+        QueryResponse resp = QueryResponse.parseJson(json.toString());
+        resp.setDataItems(Query.parseItemArrayWith(resp.getData().toString(), "", false));
+        return resp;
+    }
+
+    @Test
+    void scanFetchesRemainingPagesOnceTotalIsKnown() throws ClearBladeException {
+        Query spyQuery = spy(new Query("collection"));
+        doReturn(page(7, 1, 2, 3)).when(spyQuery).fetchPage(1, 3);
+        doReturn(page(7, 4, 5, 6)).when(spyQuery).fetchPage(2, 3);
+        doReturn(page(7, 7)).when(spyQuery).fetchPage(3, 3);
+
+        ScanOptions options = new ScanOptions().setPageSize(3).setParallelism(2);
+        ParallelScan scan = ParallelScan.of(spyQuery, options);
+        List<Integer> ids = scan.stream().map(item -> item.getInt("id")).sorted().collect(Collectors.toList());
+
+        assertEquals(7, ids.size());
+        assertEquals(Integer.valueOf(1), ids.get(0));
+        assertEquals(Integer.valueOf(7), ids.get(6));
+        assertEquals(7, scan.getTotalCount());
+        assertEquals(3, scan.getPagesFetched());
+        verify(spyQuery, never()).fetchPage(4, 3);
+    }
+
+    @Test
+    void scanFailsWhenAPageFails() throws ClearBladeException {
+        Query spyQuery = spy(new Query("collection"));
+        doReturn(page(4, 1, 2)).when(spyQuery).fetchPage(1, 2);
+        doThrow(new ClearBladeException("boom")).when(spyQuery).fetchPage(2, 2);
+
+        ParallelScan scan = ParallelScan.of(spyQuery, new ScanOptions().setPageSize(2));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> {
+            while (scan.hasNext()) {
+                scan.next();
+            }
+        });
+        assertTrue(e.getCause() instanceof ClearBladeException);
+    }
+
+    @Test
+    void withRangeAddsBoundsToEveryBranch() throws Exception {
+        Query query = new Query("collection");
+        query.equalTo("type", "sensor");
+
+        Query partition = query.withRange("age", 18, 65);
+        String param = URLDecoder.decode(partition.getFetchURLParameter(1, 10), "UTF-8");
+
+        assertTrue(param.contains("\"GTE\":[{\"age\":18}]"));
+        assertTrue(param.contains("\"LT\":[{\"age\":65}]"));
+        assertTrue(param.contains("\"EQ\":[{\"type\":\"sensor\"}]"));
+        // the original query is left untouched
+        assertFalse(URLDecoder.decode(query.getFetchURLParameter(), "UTF-8").contains("age"));
+    }
+
+    @Test
+    void partitionBoundariesMustBeIntegersOrStrings() {
+        assertThrows(IllegalArgumentException.class, () -> new ScanOptions().setPartitions("age", 1L));
+        assertEquals(Collections.singletonList(18), Arrays.asList(new ScanOptions().setPartitions("age", 18).getPartitionBoundaries()));
+    }
+}
@@ -1,8 +1,14 @@
 package com.clearblade.java.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
 import com.google.gson.JsonSyntaxException;
 import org.junit.jupiter.api.Test;
 
@@ -56,4 +62,37 @@ public class QueryResponseTests {
             QueryResponse.parseJson(rawJson);
         });
     }
+
+    @Test
+    void parseStreamBuildsItemsInOnePass() throws IOException {
+        String rawJson = "{ \"CURRENTPAGE\": 2, \"NEXTPAGEURL\": null, \"PREVPAGEURL\": \"prev\", \"TOTAL\": 3, \"EXTRA\": { \"x\": [1] }, "
+                + "\"DATA\": [ { \"a\": \"data\", \"n\": { \"b\": 1 } }, 7, {}, { \"b\": \"data\" } ] }";
+
+        QueryResponse resp = QueryResponse.parseStream(new StringReader(rawJson), "collection", false);
+
+        assertEquals(2, resp.getCurrentPage());
+        assertEquals("prev", resp.getPrevPageURL());
+        assertNull(resp.getNextPageURL());
+        assertEquals(3, resp.getTotalCount());
+        assertEquals(2, resp.getDataItems().length);
+        assertEquals("data", resp.getDataItems()[0].getString("a"));
+        assertEquals("data", resp.getDataItems()[1].getString("b"));
+        assertEquals(2, resp.getData().size());
+    }
+
+    @Test
+    void parseStreamDecodesUtf8() throws IOException {
+        String rawJson = "{ \"TOTAL\": 1, \"DATA\": [ { \"name\": \"J\u00f6rg \u2713\" } ] }";
+
+        QueryResponse resp = QueryResponse.parseStream(new ByteArrayInputStream(rawJson.getBytes(StandardCharsets.UTF_8)), "collection", false);
+
+        assertEquals("J\u00f6rg \u2713", resp.getDataItems()[0].getString("name"));
+    }
+
+    @Test
+    void parseStreamWithBadJsonFails() {
+        assertThrows(IOException.class, () -> {
+            QueryResponse.parseStream(new StringReader("{ \"DATA\": { } }"), "collection", false);
+        });
+    }
 }
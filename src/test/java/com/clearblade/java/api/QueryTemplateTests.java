@@ -0,0 +1,61 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+
+
+public class QueryTemplateTests {
+
+    @Test
+    void boundTemplateMatchesEquivalentQuery() {
+        Query query = new Query("collection");
+        query.equalTo("deviceId", QueryTemplate.param("device")).greaterThan("ts", QueryTemplate.param("since"));
+        query.setPageSize(50);
+        QueryTemplate template = QueryTemplate.compile(query);
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("device", "sensor-42");
+        values.put("since", 1700);
+
+        Query expected = new Query("collection");
+        expected.equalTo("deviceId", "sensor-42").greaterThan("ts", 1700);
+        expected.setPageSize(50);
+
+        assertEquals(expected.getFetchURLParameter(), template.getFetchURLParameter(values));
+        assertEquals(2, template.getParameterNames().size());
+    }
+
+    @Test
+    void boundValuesAreJsonEscaped() throws Exception {
+        QueryTemplate template = QueryTemplate.compile(new Query("collection").equalTo("name", QueryTemplate.param("name")));
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", "say \"hi\"\\");
+        String json = URLDecoder.decode(template.getFetchURLParameter(values).substring("?query=".length()), "UTF-8");
+
+        assertEquals("say \"hi\"\\", JsonParser.parseString(json).getAsJsonObject()
+                .getAsJsonArray("FILTERS").get(0).getAsJsonArray().get(0).getAsJsonObject()
+                .getAsJsonArray("EQ").get(0).getAsJsonObject().get("name").getAsString());
+    }
+
+    @Test
+    void missingValueIsRejected() {
+        QueryTemplate template = QueryTemplate.compile(new Query("collection").equalTo("name", QueryTemplate.param("name")));
+
+        assertThrows(IllegalArgumentException.class, () -> template.getFetchURLParameter(new HashMap<String, Object>()));
+    }
+
+    @Test
+    void queryWithParameterCannotBeFetchedDirectly() {
+        Query query = new Query("collection").equalTo("name", QueryTemplate.param("name"));
+
+        assertThrows(IllegalStateException.class, query::getFetchURLParameter);
+    }
+}
@@ -3,8 +3,16 @@ package com.clearblade.java.api;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
 
 public class QueryTests {
 
@@ -72,4 +80,74 @@ public class QueryTests {
         });
     }
 
+
+    private static QueryResponse page(int total, int... ids) {
+        StringBuilder json = new StringBuilder("{ \"TOTAL\": " + total + ", \"DATA\": [");
+        for (int i = 0; i < ids.length; i++) {
+            json.append(i > 0 ? "," : "").append("{ \"id\": ").append(ids[i]).append(" }");
+        }
+        json.append("] }");
+        QueryResponse resp = QueryResponse.parseJson(json.toString());
+        resp.setDataItems(Query.parseItemArrayWith(resp.getData().toString(), "", false));
+        return resp;
+    }
+
+    @Test
+    void streamWalksAllPagesUntilTotalIsReached() throws ClearBladeException {
+        Query spyQuery = spy(new Query("collection"));
+        doReturn(page(5, 1, 2)).when(spyQuery).fetchPage(1, 2);
+        doReturn(page(5, 3, 4)).when(spyQuery).fetchPage(2, 2);
+        doReturn(page(5, 5)).when(spyQuery).fetchPage(3, 2);
+
+        List<Integer> ids = spyQuery.stream(2, 2)
+                .map(item -> item.getInt("id"))
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids);
+        verify(spyQuery, never()).fetchPage(4, 2);
+    }
+
+    @Test
+    void iteratorStopsAtEmptyPageWithoutTotal() throws ClearBladeException {
+        Query spyQuery = spy(new Query("collection"));
+        doReturn(page(0, 1)).when(spyQuery).fetchPage(1, 1);
+        doReturn(page(0)).when(spyQuery).fetchPage(2, 1);
+
+        QueryIterator items = spyQuery.iterator(1, 0);
+
+        assertEquals(1, items.next().getInt("id"));
+        assertFalse(items.hasNext());
+        assertEquals(2, items.getPagesFetched());
+    }
+
+    @Test
+    void iteratorReportsFailedPage() throws ClearBladeException {
+        Query spyQuery = spy(new Query("collection"));
+        doThrow(new ClearBladeException("boom")).when(spyQuery).fetchPage(anyInt(), anyInt());
+
+        QueryIterator items = spyQuery.iterator(10);
+
+        RuntimeException e = assertThrows(RuntimeException.class, items::hasNext);
+        assertTrue(e.getCause() instanceof ClearBladeException);
+    }
+
+    @Test
+    void fetchURLParameterIsStableAcrossCallsAndValidJson() throws Exception {
+        Query query = new Query("collection");
+        query.equalTo("name", "J\"o").lessThan("age", 40);
+        Query other = new Query("collection");
+        other.equalTo("name", "Ann");
+        query.or(other);
+
+        String first = query.getFetchURLParameter();
+        assertEquals(first, query.getFetchURLParameter());
+
+        String json = URLDecoder.decode(first.substring("?query=".length()), "UTF-8");
+        JsonArray filters = JsonParser.parseString(json).getAsJsonObject().getAsJsonArray("FILTERS");
+        assertEquals(2, filters.size());
+        assertEquals("J\"o", filters.get(1).getAsJsonArray().get(0).getAsJsonObject()
+                .getAsJsonArray("EQ").get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals(40, filters.get(1).getAsJsonArray().get(0).getAsJsonObject()
+                .getAsJsonArray("LT").get(0).getAsJsonObject().get("age").getAsInt());
+    }
 }
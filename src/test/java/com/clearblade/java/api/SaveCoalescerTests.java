@@ -0,0 +1,120 @@
+package com.clearblade.java.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+
+public class SaveCoalescerTests {
+
+    private static JsonArray created(int count) {
+        JsonArray rows = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            JsonObject row = new JsonObject();
+            row.addProperty("item_id", "id-" + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    void fullBatchIsSentAsOneRequest() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(created(3)).when(collection).insertRows(any(JsonArray.class));
+        collection.enableSaveCoalescing(3, 1000);
+        SaveCoalescer coalescer = collection.getSaveCoalescer();
+
+        List<CompletableFuture<Item>> futures = new ArrayList<>();
+        synchronized (coalescer) {	// keep the timer from flushing a partial batch
+            for (int i = 0; i < 3; i++) {
+                futures.add(collection.saveAsync(new Item("collection")));
+            }
+        }
+        for (CompletableFuture<Item> future : futures) {
+            assertNotNull(future.join().getId());
+        }
+        verify(collection, times(1)).insertRows(any(JsonArray.class));
+        assertEquals(3, coalescer.getSaveCount());
+        assertEquals(1, coalescer.getBatchCount());
+    }
+
+    @Test
+    void pendingItemIsNotQueuedTwice() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doReturn(created(1)).when(collection).insertRows(any(JsonArray.class));
+        collection.enableSaveCoalescing(10, 1000);
+        SaveCoalescer coalescer = collection.getSaveCoalescer();
+
+        Item item = new Item("collection");
+        CompletableFuture<Item> first;
+        CompletableFuture<Item> second;
+        synchronized (coalescer) {
+            first = collection.saveAsync(item);
+            second = collection.saveAsync(item);
+        }
+        assertSame(first, second);
+        assertEquals("id-0", first.join().getId());
+        assertEquals(1, coalescer.getSaveCount());
+    }
+
+    @Test
+    void failedBatchFailsEverySave() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        doThrow(new ClearBladeException("boom")).when(collection).insertRows(any(JsonArray.class));
+        collection.enableSaveCoalescing(2, 1000);
+
+        CompletableFuture<Item> first;
+        CompletableFuture<Item> second;
+        synchronized (collection.getSaveCoalescer()) {
+            first = collection.saveAsync(new Item("collection"));
+            second = collection.saveAsync(new Item("collection"));
+        }
+        CompletionException e = assertThrows(CompletionException.class, first::join);
+        assertTrue(e.getCause() instanceof ClearBladeException);
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    void updatesAreSentRightAway() throws Exception {
+        Collection collection = spy(new Collection("collection"));
+        collection.enableSaveCoalescing(10, 1000);
+        SaveCoalescer coalescer = collection.getSaveCoalescer();
+        Item item = spy(new Item(JsonParser.parseString("{ \"item_id\": \"1\" }").getAsJsonObject(), "collection", false));
+        item.set("name", "John");
+        doReturn(CompletableFuture.completedFuture(item)).when(item).saveAsync();
+
+        CompletableFuture<Item> saved = collection.saveAsync(item);
+
+        assertTrue(saved.isDone());
+        verify(item).saveAsync();
+        verify(collection, never()).insertRows(any(JsonArray.class));
+        assertEquals(0, coalescer.getSaveCount());
+        assertEquals(0, coalescer.getWindow(TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    void windowGrowsUnderLoadAndShrinksWhenIdle() {
+        SaveCoalescer coalescer = new SaveCoalescer(new Collection("collection"), 100, 8, TimeUnit.MILLISECONDS);
+        assertEquals(0, coalescer.getWindow(TimeUnit.MICROSECONDS));
+        for (int i = 0; i < 10; i++) {
+            coalescer.adapt(50);
+        }
+        assertEquals(8, coalescer.getWindow(TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 10; i++) {
+            coalescer.adapt(1);
+        }
+        assertEquals(0, coalescer.getWindow(TimeUnit.MICROSECONDS));
+    }
+}
@@ -0,0 +1,68 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+
+public class ContentCodingTests {
+
+    private static final String JSON = "{\"DATA\":[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]}";
+
+    private static String decode(byte[] body, String encoding) throws IOException {
+        try (InputStream in = ContentCoding.decode(new ByteArrayInputStream(body), encoding)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16];
+            for (int n; (n = in.read(buffer)) >= 0; ) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] deflate(boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(JSON.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void decodesEveryAdvertisedEncoding() throws IOException {
+        assertEquals(JSON, decode(JSON.getBytes(StandardCharsets.UTF_8), null));
+        assertEquals(JSON, decode(ContentCoding.gzip(JSON.getBytes(StandardCharsets.UTF_8)), "gzip"));
+        assertEquals(JSON, decode(deflate(false), "deflate"));
+        assertEquals(JSON, decode(deflate(true), "Deflate"));
+    }
+
+    @Test
+    void rejectsUnknownEncodings() {
+        assertThrows(IOException.class, () -> decode(new byte[0], "br"));
+    }
+
+    @Test
+    void closesTheBodyWhenItsHeaderIsInvalid() {
+        for (byte[] body : new byte[][] { new byte[0], "not gzip".getBytes(StandardCharsets.UTF_8) }) {
+            AtomicBoolean closed = new AtomicBoolean();
+            InputStream received = new ByteArrayInputStream(body) {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+
+            assertThrows(IOException.class, () -> ContentCoding.decode(received, "gzip"));
+            assertTrue(closed.get());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.HedgePolicy;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+
+
+public class HedgingTests {
+
+    /**
+     * Answers after 1 ms, except the given call which stalls for 2 seconds; the status is the call number.
+     */
+    private static HttpTransport stallingOn(int stalledCall, AtomicInteger calls) {
+        return request -> {
+            int call = calls.incrementAndGet();
+            try {
+                Thread.sleep(call == stalledCall ? 2000 : 1);
+            } catch (InterruptedException e) {
+                throw new IOException("cancelled");
+            }
+            return new TransportResponse(200 + call, "", Collections.emptyMap(), new ByteArrayInputStream(new byte[0]));
+        };
+    }
+
+    private static TransportRequest request(String method) throws IOException {
+        return new TransportRequest(method, new URL("http://localhost/api/v/1/data/abc"), Collections.emptyMap(), (byte[]) null, 5000);
+    }
+
+    @Test
+    void slowCallIsAnsweredByItsHedge() throws IOException {
+        Hedging hedging = new Hedging(new HedgePolicy().setSamples(10, 5).setBudgetRatio(0.5).setMinDelay(20));
+        AtomicInteger calls = new AtomicInteger();
+        HttpTransport transport = stallingOn(6, calls);
+        for (int i = 0; i < 5; i++) {
+            hedging.execute(transport, request("GET"));
+        }
+        assertEquals(20, hedging.getHedgeDelay("/api/v/1/data/abc"));
+
+        long start = System.nanoTime();
+        TransportResponse response = hedging.execute(transport, request("GET"));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(207, response.getStatusCode());
+        assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+        assertEquals(1, hedging.getHedgeCount());
+        assertEquals(1, hedging.getHedgeWinCount());
+    }
+
+    @Test
+    void onlyGetsAreHedgedAndTheBudgetCapsHedges() throws IOException {
+        Hedging hedging = new Hedging(new HedgePolicy().setSamples(10, 5).setBudgetRatio(0.01).setMinDelay(20));
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            hedging.execute(stallingOn(-1, calls), request("GET"));
+        }
+
+        assertEquals(206, hedging.execute(stallingOn(6, calls), request("PUT")).getStatusCode());
+        // slow, but the budget has less than one token
+        assertEquals(207, hedging.execute(stallingOn(7, calls), request("GET")).getStatusCode());
+        assertEquals(0, hedging.getHedgeCount());
+        assertEquals(1, hedging.getBudgetExhaustedCount());
+    }
+}
@@ -0,0 +1,273 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.transport.RequestBody;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+
+public class HttpConnectionPoolTests {
+
+    private HttpServer server;
+    private HttpConnectionPool pool;
+    private PooledHttpClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] body = readAll(exchange.getRequestBody());
+            byte[] resp = body.length > 0 ? body : "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, resp.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(resp);
+            }
+        });
+        server.createContext("/close", exchange -> {
+            byte[] resp = "bye".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Connection", "close");
+            exchange.sendResponseHeaders(200, resp.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(resp);
+            }
+        });
+        server.createContext("/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("[1,".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                out.write("2]".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+
+        pool = new HttpConnectionPool(2, 30000, 0);
+        client = new PooledHttpClient(pool);
+    }
+
+    @AfterEach
+    void stopServer() {
+        pool.shutdown();
+        server.stop(0);
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private String call(String method, String path, String body) throws IOException {
+        byte[] bytes = body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+        PooledHttpResponse resp = client.execute(method, url(path), new HashMap<>(), bytes, 5000);
+        assertEquals(200, resp.getStatusCode());
+        return new String(readAll(resp.getBody()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void sequentialRequestsReuseOneConnection() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("{\"ok\":true}", call("GET", "/echo", null));
+        }
+
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(4, pool.getReusedCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getLeasedCount());
+    }
+
+    @Test
+    void requestBodyIsSentWithByteContentLength() throws IOException {
+        String body = "{\"name\":\"J\u00f6rg \u2713\"}";
+
+        assertEquals(body, call("POST", "/echo", body));
+        assertEquals(body, call("PUT", "/echo", body));
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void chunkedResponseIsDecodedAndConnectionReused() throws IOException {
+        assertEquals("[1,2]", call("GET", "/chunked", null));
+        assertEquals("[1,2]", call("GET", "/chunked", null));
+
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void connectionCloseResponseIsNotPooled() throws IOException {
+        assertEquals("bye", call("GET", "/close", null));
+        assertEquals(0, pool.getIdleCount());
+
+        call("GET", "/echo", null);
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void unconsumedBodyKeepsConnectionLeasedUntilClosed() throws IOException {
+        PooledHttpResponse first = client.execute("GET", url("/echo"), new HashMap<>(), null, 5000);
+        PooledHttpResponse second = client.execute("GET", url("/echo"), new HashMap<>(), null, 5000);
+
+        assertEquals(2, pool.getLeasedCount());
+        assertThrows(IOException.class, () -> client.execute("GET", url("/echo"), new HashMap<>(), null, 200));
+
+        first.getBody().close();
+        second.getBody().close();
+
+        assertEquals(0, pool.getLeasedCount());
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    void expiredIdleConnectionsAreEvicted() throws Exception {
+        pool.shutdown();
+        pool = new HttpConnectionPool(2, 50, 0);
+        client = new PooledHttpClient(pool);
+
+        call("GET", "/echo", null);
+        assertEquals(1, pool.getIdleCount());
+
+        Thread.sleep(100);
+        pool.evictExpired();
+
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getEvictedCount());
+    }
+
+    @Test
+    void connectionClosedByServerIsDetectedAndReplaced() throws IOException {
+        call("GET", "/echo", null);
+
+        // stopping the server closes its side of the idle keep-alive connection
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] resp = "again".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, resp.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(resp);
+            }
+        });
+        server.start();
+
+        assertEquals("again", call("GET", "/echo", null));
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void streamedBodiesAreSentChunkedAsUtf8() throws IOException {
+        JsonObject params = new JsonObject();
+        params.addProperty("city", "Z\u00fcrich");
+        params.addProperty("path", "C:\\temp \"quoted\"");
+        params.add("nested", JsonParser.parseString("{\"emoji\":\"\uD83D\uDE00\"}"));
+
+        for (int i = 0; i < 2; i++) {
+            PooledHttpResponse resp = client.executeStreaming("POST", url("/echo"), new HashMap<>(), RequestBody.json(params), 5000);
+            assertEquals(200, resp.getStatusCode());
+            assertEquals(params, JsonParser.parseString(new String(readAll(resp.getBody()), StandardCharsets.UTF_8)));
+        }
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void headersWithLineBreaksAreRejected() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("ClearBlade-UserToken", "token\r\nX-Injected: yes");
+
+        assertThrows(IllegalArgumentException.class, () -> client.execute("GET", url("/echo"), headers, null, 5000));
+        assertEquals(0, pool.getCreatedCount());
+    }
+
+    private static ProxySelector proxyAt(SocketAddress address) {
+        return new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                return Collections.singletonList(new Proxy(Proxy.Type.HTTP, address));
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            }
+        };
+    }
+
+    @Test
+    void plainRequestsGoToTheSelectedProxy() throws IOException {
+        ProxySelector saved = ProxySelector.getDefault();
+        ProxySelector.setDefault(proxyAt(server.getAddress()));
+        try {
+            // the test server stands in for the proxy; the host itself does not resolve
+            PooledHttpResponse resp = client.execute("GET", new URL("http://platform.invalid/echo"), new HashMap<>(), null, 5000);
+
+            assertEquals(200, resp.getStatusCode());
+            assertEquals("{\"ok\":true}", new String(readAll(resp.getBody()), StandardCharsets.UTF_8));
+        } finally {
+            ProxySelector.setDefault(saved);
+        }
+    }
+
+    @Test
+    void httpsRequestsAskTheProxyForATunnel() throws Exception {
+        ProxySelector saved = ProxySelector.getDefault();
+        try (ServerSocket proxy = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<String> requestLine = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = proxy.accept()) {
+                    String line = PooledHttpClient.readLine(socket.getInputStream());
+                    while (PooledHttpClient.readLine(socket.getInputStream()).length() > 0) {
+                        // skip the headers
+                    }
+                    socket.getOutputStream().write("HTTP/1.1 407 Proxy Authentication Required\r\nContent-Length: 0\r\n\r\n"
+                            .getBytes(StandardCharsets.ISO_8859_1));
+                    return line;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            ProxySelector.setDefault(proxyAt(proxy.getLocalSocketAddress()));
+
+            IOException error = assertThrows(IOException.class,
+                    () -> client.execute("GET", new URL("https://platform.invalid/echo"), new HashMap<>(), null, 5000));
+
+            assertEquals("CONNECT platform.invalid:443 HTTP/1.1", requestLine.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getMessage().contains("407"), error.getMessage());
+        } finally {
+            ProxySelector.setDefault(saved);
+        }
+    }
+}
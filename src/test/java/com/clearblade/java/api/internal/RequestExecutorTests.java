@@ -0,0 +1,75 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.ClearBladeException;
+
+
+public class RequestExecutorTests {
+
+    @Test
+    void futuresCompleteWithTheCallResult() throws Exception {
+        RequestExecutor executor = new RequestExecutor(2);
+        assertEquals(42, executor.submit(() -> 42).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedCallsCompleteExceptionallyWithTheirException() {
+        RequestExecutor executor = new RequestExecutor(2);
+        CompletableFuture<Object> future = executor.submit(() -> {
+            throw new ClearBladeException("platform unavailable");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ClearBladeException);
+        assertEquals("platform unavailable", e.getCause().getMessage());
+    }
+
+    @Test
+    void callsBeyondTheLimitAreQueued() throws Exception {
+        RequestExecutor executor = new RequestExecutor(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(executor.submit(() -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                release.await();
+                return running.decrementAndGet();
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(2, running.get());
+        assertEquals(2, executor.getInFlightCount());
+        assertEquals(3, executor.getQueuedCount());
+
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(2, mostRunning.get());
+    }
+
+    @Test
+    void workerThreadsAreRecognised() throws Exception {
+        RequestExecutor executor = new RequestExecutor(1);
+        RequestExecutor other = new RequestExecutor(1);
+
+        assertFalse(executor.isWorkerThread());
+        assertTrue(executor.submit(executor::isWorkerThread).get(5, TimeUnit.SECONDS));
+        assertFalse(other.submit(executor::isWorkerThread).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,105 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.RetryPolicy;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+
+
+public class ResilienceTests {
+
+    /**
+     * Answers with the scripted status codes, then 200; -1 throws an IOException.
+     */
+    private static class ScriptedTransport implements HttpTransport {
+        final Deque<Integer> statuses;
+        int calls;
+
+        ScriptedTransport(Integer... statuses) {
+            this.statuses = new ArrayDeque<>(Arrays.asList(statuses));
+        }
+
+        @Override
+        public TransportResponse execute(TransportRequest request) throws IOException {
+            calls++;
+            int status = statuses.isEmpty() ? 200 : statuses.poll();
+            if (status < 0) {
+                throw new IOException("connection reset");
+            }
+            return new TransportResponse(status, "", Collections.emptyMap(), new ByteArrayInputStream(new byte[0]));
+        }
+    }
+
+    private static TransportRequest request(String method) throws IOException {
+        return new TransportRequest(method, new URL("http://localhost/api/v/1/data/abc"), Collections.emptyMap(), (byte[]) null, 1000);
+    }
+
+    private static RetryPolicy fastPolicy() {
+        return new RetryPolicy().setDelays(0, 0);
+    }
+
+    @Test
+    void retriesIdempotentCallsOnRetryableFailures() throws IOException {
+        Resilience resilience = new Resilience(fastPolicy());
+        ScriptedTransport transport = new ScriptedTransport(503, -1);
+
+        assertEquals(200, resilience.execute(transport, request("GET")).getStatusCode());
+        assertEquals(3, transport.calls);
+        assertEquals(2, resilience.getRetryCount());
+    }
+
+    @Test
+    void doesNotRetryPostsOrClientErrors() throws IOException {
+        Resilience resilience = new Resilience(fastPolicy());
+        ScriptedTransport post = new ScriptedTransport(503);
+        assertEquals(503, resilience.execute(post, request("POST")).getStatusCode());
+        assertEquals(1, post.calls);
+
+        ScriptedTransport notFound = new ScriptedTransport(404);
+        assertEquals(404, resilience.execute(notFound, request("GET")).getStatusCode());
+        assertEquals(1, notFound.calls);
+    }
+
+    @Test
+    void budgetStopsRetriesDuringAnOutage() throws IOException {
+        Resilience resilience = new Resilience(fastPolicy().setBudget(4, 0.1).setCircuitBreaker(0, 0));
+        ScriptedTransport transport = new ScriptedTransport(503, 503, 503, 503, 503, 503, 503, 503);
+
+        resilience.execute(transport, request("GET"));
+        resilience.execute(transport, request("GET"));
+
+        // 4 tokens: retries stop once 2 failures have drawn the budget down to half
+        assertEquals(1, resilience.getRetryCount());
+        assertTrue(resilience.getBudgetExhaustedCount() > 0);
+    }
+
+    @Test
+    void openBreakerFailsFastUntilATrialSucceeds() throws Exception {
+        Resilience resilience = new Resilience(fastPolicy().setMaxAttempts(1).setCircuitBreaker(2, 50));
+        ScriptedTransport transport = new ScriptedTransport(500, 500);
+        String endpoint = "GET /api/v/1/data/abc";
+
+        resilience.execute(transport, request("GET"));
+        resilience.execute(transport, request("GET"));
+        assertEquals(Resilience.State.OPEN, resilience.getBreakerState(endpoint));
+        assertThrows(Resilience.CircuitOpenException.class, () -> resilience.execute(transport, request("GET")));
+        assertEquals(2, transport.calls);
+        assertEquals(1, resilience.getShortCircuitCount());
+
+        Thread.sleep(60);
+        assertEquals(200, resilience.execute(transport, request("GET")).getStatusCode());
+        assertEquals(Resilience.State.CLOSED, resilience.getBreakerState(endpoint));
+    }
+}
@@ -0,0 +1,116 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.CachePolicy;
+import com.clearblade.java.api.transport.CachedResponse;
+import com.clearblade.java.api.transport.HttpTransport;
+import com.clearblade.java.api.transport.LruResponseCache;
+import com.clearblade.java.api.transport.TransportRequest;
+import com.clearblade.java.api.transport.TransportResponse;
+
+
+public class ResponseCachingTests {
+
+    /**
+     * Serves version N of every resource with ETag "vN", answering 304 to a matching If-None-Match.
+     */
+    private static class VersionedPlatform implements HttpTransport {
+        final List<TransportRequest> requests = new ArrayList<>();
+        int version = 1;
+
+        @Override
+        public synchronized TransportResponse execute(TransportRequest request) {
+            requests.add(request);
+            String etag = "\"v" + version + "\"";
+            Map<String, String> headers = new HashMap<>();
+            headers.put("ETag", etag);
+            if (etag.equals(request.getHeaders().get("If-None-Match"))) {
+                return new TransportResponse(304, "Not Modified", headers, new ByteArrayInputStream(new byte[0]));
+            }
+            byte[] body = ("version " + version).getBytes(StandardCharsets.UTF_8);
+            return new TransportResponse(200, "OK", headers, new ByteArrayInputStream(body));
+        }
+    }
+
+    private static TransportRequest request(String method, String path) throws IOException {
+        return new TransportRequest(method, new URL("http://localhost" + path), Collections.emptyMap(), (byte[]) null, 5000);
+    }
+
+    private static String read(TransportResponse response) {
+        try (InputStream in = response.getBody(); Scanner scanner = new Scanner(in, "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    void freshEntriesAnswerAndExpiredOnesAreRevalidated() throws Exception {
+        ResponseCaching caching = new ResponseCaching(new CachePolicy().setCollectionTtl("abc", 200));
+        VersionedPlatform platform = new VersionedPlatform();
+
+        assertEquals("version 1", read(caching.execute(platform, request("GET", "/api/v/1/data/abc"), "user-a")));
+        assertEquals("version 1", read(caching.execute(platform, request("GET", "/api/v/1/data/abc"), "user-a")));
+        assertEquals(1, platform.requests.size());
+        assertEquals(1, caching.getHitCount());
+
+        // another identity has entries of its own
+        caching.execute(platform, request("GET", "/api/v/1/data/abc"), "user-b").getBody().close();
+        assertEquals(2, platform.requests.size());
+
+        Thread.sleep(250);
+        assertEquals("version 1", read(caching.execute(platform, request("GET", "/api/v/1/data/abc"), "user-a")));
+        assertEquals("\"v1\"", platform.requests.get(2).getHeaders().get("If-None-Match"));
+        assertEquals(1, caching.getRevalidatedCount());
+
+        // collections without a TTL are not cached
+        caching.execute(platform, request("GET", "/api/v/1/data/other"), "user-a").getBody().close();
+        caching.execute(platform, request("GET", "/api/v/1/data/other"), "user-a").getBody().close();
+        assertEquals(5, platform.requests.size());
+    }
+
+    @Test
+    void writesInvalidateTheirCollection() throws Exception {
+        ResponseCaching caching = new ResponseCaching(new CachePolicy().setCollectionTtl("abc", 60000));
+        VersionedPlatform platform = new VersionedPlatform();
+
+        assertEquals("version 1", read(caching.execute(platform, request("GET", "/api/v/1/data/abc?query=x"), "user-a")));
+        platform.version = 2;
+        caching.execute(platform, request("PUT", "/api/v/1/data/abc"), "user-a").getBody().close();
+
+        assertEquals("version 2", read(caching.execute(platform, request("GET", "/api/v/1/data/abc?query=x"), "user-a")));
+        assertEquals(1, caching.getInvalidationCount());
+        assertEquals(0, caching.getHitCount());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        LruResponseCache cache = new LruResponseCache(600);
+        TransportResponse response = new TransportResponse(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(new byte[0]));
+        for (String key : new String[] { "a", "b", "c" }) {
+            cache.put(key, new CachedResponse("/p", response, new byte[100], Long.MAX_VALUE));
+        }
+        cache.get("a");
+        cache.put("d", new CachedResponse("/p", response, new byte[100], Long.MAX_VALUE));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertTrue(cache.getSize() <= 600);
+        assertEquals(1, cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,57 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+
+public class SingleFlightTests {
+
+    @Test
+    void identicalCallsInFlightShareOneResult() throws Exception {
+        SingleFlight flights = new SingleFlight(Arrays.asList("api/v/1/data/"));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<SingleFlight.Result<Integer>> leader = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+            leaderStarted.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return calls.incrementAndGet();
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<SingleFlight.Result<Integer>> follower = CompletableFuture.supplyAsync(() -> flights.execute("key", calls::incrementAndGet));
+        while (flights.getSharedCount() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertEquals(1, leader.get(5, TimeUnit.SECONDS).getValue());
+        assertFalse(leader.get().isShared());
+        assertEquals(1, follower.get(5, TimeUnit.SECONDS).getValue());
+        assertTrue(follower.get().isShared());
+        assertEquals(1, calls.get());
+        assertEquals(1, flights.getLeaderCount());
+        assertEquals(0, flights.getInFlightCount());
+
+        // nothing is cached once the call completed
+        assertEquals(2, flights.execute("key", calls::incrementAndGet).getValue());
+    }
+
+    @Test
+    void onlyConfiguredEndpointsAreCollapsed() {
+        SingleFlight flights = new SingleFlight(Arrays.asList("/api/v/1/data/"));
+        assertTrue(flights.appliesTo("/api/v/1/data/abc"));
+        assertFalse(flights.appliesTo("/api/v/1/code/abc/svc"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+public class StripedExecutorTests {
+
+    private StripedExecutor executor;
+
+    @BeforeEach
+    void createExecutor() {
+        executor = new StripedExecutor("test", 4);
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    void tasksWithSameKeyRunInOrder() throws Exception {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 1000; i++) {
+            final int n = i;
+            executor.execute("device-1", () -> seen.add(n));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1000, seen.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, seen.get(i).intValue());
+        }
+        assertEquals(1000, executor.getCompletedCount());
+    }
+
+    @Test
+    void blockedKeyDoesNotHoldUpOtherStripes() throws Exception {
+        Object slowKey = "slow";
+        Object fastKey = null;
+        for (int i = 0; fastKey == null; i++) {
+            if (executor.stripeFor("fast-" + i) != executor.stripeFor(slowKey)) {
+                fastKey = "fast-" + i;
+            }
+        }
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        executor.execute(slowKey, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(slowKey, () -> { });
+        executor.execute(slowKey, () -> { });
+        executor.execute(fastKey, fastDone::countDown);
+
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getQueueDepth(executor.stripeFor(slowKey)));
+        assertEquals(2, executor.getTotalQueueDepth());
+        assertEquals(2, executor.getMaxQueueDepth());
+
+        release.countDown();
+    }
+}
@@ -0,0 +1,64 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509TrustManager;
+
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.TlsConfig;
+
+
+public class TlsContextTests {
+
+    @Test
+    void contextIsBuiltWithoutTouchingJvmDefaults() {
+        SSLSocketFactory before = HttpsURLConnection.getDefaultSSLSocketFactory();
+        TlsContext tls = new TlsContext(new TlsConfig().setSessionCacheSize(7).setSessionTimeout(60), true);
+        assertSame(before, HttpsURLConnection.getDefaultSSLSocketFactory());
+        assertEquals(7, tls.getSSLContext().getClientSessionContext().getSessionCacheSize());
+        assertEquals(60, tls.getSSLContext().getClientSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    void configuredProtocolsAndHostNameCheckAreApplied() throws Exception {
+        TlsContext tls = new TlsContext(new TlsConfig().setProtocols("TLSv1.2"), false);
+        try (SSLSocket socket = (SSLSocket) tls.getSSLContext().getSocketFactory().createSocket()) {
+            tls.configure(socket);
+            assertArrayEquals(new String[] { "TLSv1.2" }, socket.getSSLParameters().getProtocols());
+            assertEquals("HTTPS", socket.getSSLParameters().getEndpointIdentificationAlgorithm());
+        }
+    }
+
+    @Test
+    void sharedContextIsKeptForEqualSettings() {
+        TlsContext first = TlsContext.configureShared(new TlsConfig(), false);
+        assertSame(first, TlsContext.configureShared(new TlsConfig(), false));
+        assertNotSame(first, TlsContext.configureShared(new TlsConfig(), true));
+        TlsContext.configureShared(new TlsConfig(), false);
+    }
+
+    @Test
+    void malformedPinIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig().addPinnedKey("abc"));
+        assertThrows(IllegalArgumentException.class, () -> new TlsConfig().addPinnedKey("sha256/"));
+    }
+
+    @Test
+    void unpinnedChainIsRejected() {
+        X509TrustManager trustAll = new X509TrustManager() {
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+            public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+        };
+        TlsContext.PinningTrustManager pinning = new TlsContext.PinningTrustManager(trustAll, Collections.singleton("sha256/AAAA"));
+        assertThrows(CertificateException.class, () -> pinning.checkServerTrusted(new X509Certificate[0], "RSA"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+public class TopicTrieTests {
+
+    private TopicTrie<String> trie;
+
+    @BeforeEach
+    void setupTrie() {
+        trie = new TopicTrie<>();
+    }
+
+    private List<String> match(String topic) {
+        List<String> matched = new ArrayList<>();
+        int count = trie.match(topic, (value, t, list) -> list.add(value), matched);
+        assertEquals(matched.size(), count);
+        return matched;
+    }
+
+    @Test
+    void exactFilterMatchesOnlyItsTopic() {
+        trie.put("a/b", "exact");
+
+        assertEquals(1, match("a/b").size());
+        assertTrue(match("a").isEmpty());
+        assertTrue(match("a/b/c").isEmpty());
+        assertTrue(match("a/bc").isEmpty());
+    }
+
+    @Test
+    void singleLevelWildcardMatchesExactlyOneLevel() {
+        trie.put("a/+/c", "plus");
+
+        assertEquals(1, match("a/b/c").size());
+        assertEquals(1, match("a//c").size());
+        assertTrue(match("a/b/x/c").isEmpty());
+        assertTrue(match("a/c").isEmpty());
+        assertTrue(match("ab/b/c").isEmpty());
+    }
+
+    @Test
+    void multiLevelWildcardMatchesParentAndDescendants() {
+        trie.put("a/#", "hash");
+
+        assertEquals(1, match("a").size());
+        assertEquals(1, match("a/b").size());
+        assertEquals(1, match("a/b/c/d").size());
+        assertTrue(match("b/a").isEmpty());
+    }
+
+    @Test
+    void overlappingFiltersAreAllMatched() {
+        trie.put("a/b/c", "exact");
+        trie.put("a/+/c", "plus");
+        trie.put("a/#", "hash");
+        trie.put("#", "all");
+        trie.put("+/+/+", "three");
+
+        List<String> matched = match("a/b/c");
+        assertEquals(5, matched.size());
+        assertTrue(matched.containsAll(Arrays.asList("exact", "plus", "hash", "all", "three")));
+    }
+
+    @Test
+    void firstLevelWildcardsDoNotMatchSystemTopics() {
+        trie.put("#", "all");
+        trie.put("+/status", "plus");
+        trie.put("$SYS/#", "sys");
+
+        assertEquals(Collections.singletonList("sys"), match("$SYS/status"));
+        assertEquals(2, match("broker/status").size());
+    }
+
+    @Test
+    void removedFilterNoLongerMatches() {
+        trie.put("a/+", "plus");
+        trie.put("a/b", "exact");
+
+        assertEquals("plus", trie.remove("a/+"));
+        assertNull(trie.remove("a/+"));
+
+        assertEquals(Collections.singletonList("exact"), match("a/b"));
+        assertEquals(1, trie.size());
+    }
+}
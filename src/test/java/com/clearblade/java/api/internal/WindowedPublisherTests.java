@@ -0,0 +1,145 @@
+package com.clearblade.java.api.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clearblade.java.api.ClearBladeException;
+import com.clearblade.java.api.PublishBackpressure;
+
+
+public class WindowedPublisherTests {
+
+    private IMqttAsyncClient mockClient;
+    private List<IMqttActionListener> listeners;
+    private List<String> sentTopics;
+
+    @BeforeEach
+    void setupMockClient() throws MqttException {
+        mockClient = mock(IMqttAsyncClient.class);
+        listeners = new ArrayList<>();
+        sentTopics = new ArrayList<>();
+        when(mockClient.publish(anyString(), any(byte[].class), anyInt(), anyBoolean(), any(), any())).thenAnswer(invocation -> {
+            synchronized (listeners) {
+                sentTopics.add(invocation.getArgument(0));
+                listeners.add(invocation.getArgument(5));
+            }
+            return null;
+        });
+    }
+
+    private void ack(int index) {
+        IMqttActionListener listener;
+        synchronized (listeners) {
+            listener = listeners.get(index);
+        }
+        listener.onSuccess(null);
+    }
+
+    @Test
+    void publishesBeyondWindowWaitForAcknowledgements() {
+        WindowedPublisher publisher = new WindowedPublisher(mockClient, 2, 10, PublishBackpressure.BLOCK);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(publisher.publish("t" + i, new byte[0], 1, false));
+        }
+        assertEquals(2, listeners.size());
+        assertEquals(2, publisher.getInFlightCount());
+        assertEquals(2, publisher.getPendingCount());
+
+        ack(0);
+        assertTrue(futures.get(0).isDone());
+        assertEquals(3, listeners.size());
+        assertEquals("t2", sentTopics.get(2));
+
+        ack(1);
+        ack(2);
+        ack(3);
+        assertEquals(0, publisher.getInFlightCount());
+        assertEquals(4, publisher.getPublishedCount());
+        futures.forEach(f -> assertTrue(f.isDone() && !f.isCompletedExceptionally()));
+    }
+
+    @Test
+    void failFastRejectsWhenWindowAndQueueAreFull() {
+        WindowedPublisher publisher = new WindowedPublisher(mockClient, 1, 1, PublishBackpressure.FAIL_FAST);
+
+        publisher.publish("a", new byte[0], 1, false);
+        publisher.publish("b", new byte[0], 1, false);
+        CompletableFuture<Void> rejected = publisher.publish("c", new byte[0], 1, false);
+
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof ClearBladeException);
+        assertEquals(1, publisher.getRejectedCount());
+    }
+
+    @Test
+    void dropOldestReplacesOldestQueuedMessage() {
+        WindowedPublisher publisher = new WindowedPublisher(mockClient, 1, 1, PublishBackpressure.DROP_OLDEST);
+
+        publisher.publish("a", new byte[0], 1, false);
+        CompletableFuture<Void> oldest = publisher.publish("b", new byte[0], 1, false);
+        publisher.publish("c", new byte[0], 1, false);
+
+        assertTrue(oldest.isCompletedExceptionally());
+        assertEquals(1, publisher.getDroppedCount());
+
+        ack(0);
+        assertEquals("c", sentTopics.get(1));
+    }
+
+    @Test
+    void blockWaitsForFreeSlot() throws Exception {
+        WindowedPublisher publisher = new WindowedPublisher(mockClient, 1, 0, PublishBackpressure.BLOCK);
+        publisher.publish("a", new byte[0], 1, false);
+
+        CompletableFuture<CompletableFuture<Void>> blocked = CompletableFuture.supplyAsync(() -> publisher.publish("b", new byte[0], 1, false));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        ack(0);
+        blocked.get(5, TimeUnit.SECONDS);
+        assertEquals("b", sentTopics.get(1));
+    }
+
+    @Test
+    void blockFailsFastOnTheCallbackThread() throws Exception {
+        WindowedPublisher publisher = new WindowedPublisher(mockClient, 1, 0, PublishBackpressure.BLOCK);
+        publisher.publish("a", new byte[0], 1, false);
+
+        CompletableFuture<CompletableFuture<Void>> published = new CompletableFuture<>();
+        Thread callback = new Thread(() -> published.complete(publisher.publish("b", new byte[0], 1, false)), "MQTT Call: client");
+        callback.start();
+
+        CompletableFuture<Void> rejected = published.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof ClearBladeException);
+        assertEquals(1, publisher.getRejectedCount());
+        assertEquals(1, sentTopics.size());
+    }
+
+    @Test
+    void failedPublishFreesItsSlot() throws Exception {
+        reset(mockClient);
+        when(mockClient.publish(anyString(), any(byte[].class), anyInt(), anyBoolean(), any(), any()))
+                .thenThrow(new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED));
+        WindowedPublisher publisher = new WindowedPublisher(mockClient, 1, 0, PublishBackpressure.FAIL_FAST);
+
+        assertTrue(publisher.publish("a", new byte[0], 1, false).isCompletedExceptionally());
+        assertTrue(publisher.publish("b", new byte[0], 1, false).isCompletedExceptionally());
+        assertEquals(2, publisher.getFailedCount());
+        assertEquals(0, publisher.getRejectedCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.clearblade.java.api.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * The JDK HttpServer the local tests run against only speaks HTTP/1.1, so they verify the stream
+ * limits and their accounting, not HTTP/2 itself. Negotiation and multiplexing are checked against
+ * a real HTTP/2 server when its URL is given, e.g. {@code mvn test -Dclearblade.test.http2Url=https://...};
+ * without it that test is skipped.
+ */
+public class Http2TransportTests {
+
+    private static final String HTTP2_URL_PROPERTY = "clearblade.test.http2Url";
+
+    private HttpServer server;
+    private URL url;
+    private CountDownLatch gate;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        assumeTrue(Http2Transport.isSupported());
+        gate = new CountDownLatch(0);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v/1/code/key/service");
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private String call(Http2Transport transport) throws IOException {
+        TransportResponse response = transport.execute(new TransportRequest("POST", url,
+                Collections.singletonMap("Content-Type", "application/json"), "{}".getBytes(StandardCharsets.UTF_8), 5000));
+        assertEquals(200, response.getStatusCode());
+        assertEquals("application/json", response.getHeader("Content-Type"));
+        try (InputStream body = response.getBody()) {
+            return new String(readAll(body), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        for (int n; (n = in.read(buffer)) >= 0; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void releasesTheStreamOnceTheBodyIsRead() throws IOException {
+        Http2Transport transport = new Http2Transport();
+
+        assertEquals("{\"ok\":true}", call(transport));
+        assertEquals(0, transport.getActiveStreams());
+        assertEquals(1, transport.getPeakStreams());
+        assertEquals(1, transport.getRequestCount());
+        // the test server only speaks HTTP/1.1
+        assertEquals(0, transport.getHttp2ResponseCount());
+    }
+
+    @Test
+    void capsTheStreamsInFlight() throws Exception {
+        Http2Transport transport = new Http2Transport(1, 2);
+        gate = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] calls = new Future<?>[4];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = callers.submit(() -> call(transport));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (transport.getWaitCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, transport.getActiveStreams());
+            gate.countDown();
+            for (Future<?> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(2, transport.getPeakStreams());
+        assertEquals(2, transport.getWaitCount());
+        assertEquals(4, transport.getRequestCount());
+        assertEquals(0, transport.getActiveStreams());
+    }
+
+    @Test
+    void multiplexesCallsOverHttp2() throws Exception {
+        String http2Url = System.getProperty(HTTP2_URL_PROPERTY);
+        assumeTrue(http2Url != null && !http2Url.isEmpty(), "set " + HTTP2_URL_PROPERTY + " to an HTTP/2 server");
+        Http2Transport transport = new Http2Transport(1, 10);
+        ExecutorService callers = Executors.newFixedThreadPool(10);
+        try {
+            Future<?>[] calls = new Future<?>[10];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = callers.submit(() -> {
+                    TransportResponse response = transport.execute(new TransportRequest("GET", new URL(http2Url),
+                            Collections.<String, String>emptyMap(), (byte[]) null, 10000));
+                    try (InputStream body = response.getBody()) {
+                        readAll(body);
+                    }
+                    return response.getStatusCode();
+                });
+            }
+            for (Future<?> call : calls) {
+                call.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(10, transport.getRequestCount());
+        assertEquals(10, transport.getHttp2ResponseCount(), "every call negotiated HTTP/2");
+        assertEquals(0, transport.getActiveStreams());
+    }
+}
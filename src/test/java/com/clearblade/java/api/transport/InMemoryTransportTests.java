@@ -0,0 +1,299 @@
+package com.clearblade.java.api.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.clearblade.java.api.BulkResult;
+import com.clearblade.java.api.ClearBlade;
+import com.clearblade.java.api.ClearBladeException;
+import com.clearblade.java.api.Code;
+import com.clearblade.java.api.Collection;
+import com.clearblade.java.api.CollectionReplica;
+import com.clearblade.java.api.InitCallback;
+import com.clearblade.java.api.InitOptions;
+import com.clearblade.java.api.Item;
+import com.clearblade.java.api.Query;
+import com.clearblade.java.api.QueryIterator;
+import com.clearblade.java.api.ReplicaOptions;
+import com.clearblade.java.api.ScanOptions;
+import com.clearblade.java.api.internal.ContentCoding;
+import com.clearblade.java.api.internal.RequestExecutor;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+
+public class InMemoryTransportTests {
+
+    private InMemoryTransport platform;
+
+    @BeforeEach
+    void initialize() {
+        platform = new InMemoryTransport();
+        initialize(new InitOptions().setTransport(platform));
+    }
+
+    private static void initialize(InitOptions options) {
+        ClearBlade.initialize("systemKey", "systemSecret", options, new InitCallback() {
+            @Override
+            public void done(boolean results) {
+            }
+
+            @Override
+            public void error(ClearBladeException exception) {
+                fail(exception);
+            }
+        });
+    }
+
+    @Test
+    void itemsRoundTripThroughTheSdk() throws ClearBladeException {
+        Item item = new Item("people");
+        item.set("name", "John");
+        item.set("age", 30);
+        item.saveSync();
+        assertFalse(item.getId().isEmpty());
+
+        item.set("age", 31);
+        item.saveSync();
+
+        Query query = new Query("people");
+        query.equalTo("name", "John");
+        Item[] found = query.fetchSync();
+        assertEquals(1, found.length);
+        assertEquals(31, found[0].getInt("age"));
+
+        Item loaded = new Item("people");
+        loaded.loadSync(item.getId());
+        assertEquals("John", loaded.getString("name"));
+
+        new Query("people").removeSync();
+        assertEquals(0, platform.getItems("people").size());
+    }
+
+    @Test
+    void queriesFilterAndPage() throws ClearBladeException {
+        platform.addItems("numbers", JsonParser.parseString("[{\"n\":1},{\"n\":2},{\"n\":3},{\"n\":4}]").getAsJsonArray());
+        Query query = new Query("numbers");
+        query.greaterThan("n", 1);
+        query.setPageNum(1);
+        query.setPageSize(2);
+        Item[] page = query.fetchSync();
+        assertEquals(2, page.length);
+        assertEquals(2, page[0].getInt("n"));
+    }
+
+    @Test
+    void deleteByIdsRemovesEveryIdOfAChunk() throws ClearBladeException {
+        platform.addItems("people", JsonParser.parseString(
+                "[{\"item_id\":\"1\"},{\"item_id\":\"2\"},{\"item_id\":\"3\"},{\"item_id\":\"4\"}]").getAsJsonArray());
+
+        BulkResult<String> result = new Collection("people").deleteByIds(Arrays.asList("1", "2", "4"), 2);
+
+        assertTrue(result.isSuccess());
+        assertEquals(1, platform.getItems("people").size());
+        assertEquals("3", platform.getItems("people").get(0).getAsJsonObject().get("item_id").getAsString());
+    }
+
+    @Test
+    void parametersAreCapturedWhenTheCallIsBuilt() {
+        JsonObject params = new JsonObject();
+        params.addProperty("value", 1);
+        Code code = new Code("echo", params);
+        params.addProperty("value", 2);
+
+        JsonObject result = code.executeAsync().join();
+        assertEquals(1, result.getAsJsonObject("results").get("value").getAsInt());
+    }
+
+    @Test
+    void asyncCallsCompleteWithTheirResult() throws Exception {
+        Item item = new Item("people");
+        item.set("name", "John");
+        assertSame(item, item.saveAsync().get(5, TimeUnit.SECONDS));
+
+        Item[] found = new Query("people").fetchAsync().get(5, TimeUnit.SECONDS).getDataItems();
+        assertEquals(1, found.length);
+        assertEquals("John", found[0].getString("name"));
+    }
+
+    @Test
+    void failedAsyncCallsCompleteWithAClearBladeException() {
+        platform.registerService("broken", params -> {
+            throw new IllegalStateException("boom");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> new Code("broken", new JsonObject()).executeAsync().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ClearBladeException);
+    }
+
+    @Test
+    void bulkCallsMadeOnARequestThreadRunInline() throws Exception {
+        initialize(new InitOptions().setTransport(platform).setMaxInFlightRequests(1));
+        Collection people = new Collection("people");
+        List<Item> items = Arrays.asList(new Item("people"), new Item("people"), new Item("people"));
+
+        // the only worker would wait for chunks queued behind itself
+        int remaining = RequestExecutor.getShared().submit(() -> {
+            assertTrue(people.saveAll(items, 2).isSuccess());
+            List<String> ids = Arrays.asList(items.get(0).getId(), items.get(1).getId());
+            assertEquals(2, people.loadAll(ids).size());
+            assertTrue(people.deleteByIds(ids, 1).isSuccess());
+            return platform.getItems("people").size();
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, remaining);
+    }
+
+    @Test
+    void queryIteratorOnARequestThreadFetchesInline() throws Exception {
+        platform.addItems("numbers", JsonParser.parseString(
+                "[{\"n\":1},{\"n\":2},{\"n\":3},{\"n\":4},{\"n\":5}]").getAsJsonArray());
+        initialize(new InitOptions().setTransport(platform).setMaxInFlightRequests(1));
+
+        // read-ahead pages queued behind the only worker would never run
+        int count = RequestExecutor.getShared().submit(() -> {
+            int n = 0;
+            try (QueryIterator items = new Query("numbers").iterator(2, 2)) {
+                while (items.hasNext()) {
+                    items.next();
+                    n++;
+                }
+            }
+            return n;
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, count);
+    }
+
+    @Test
+    void scanOnARequestThreadFetchesInline() throws Exception {
+        platform.addItems("numbers", JsonParser.parseString(
+                "[{\"n\":1},{\"n\":2},{\"n\":3},{\"n\":4},{\"n\":5}]").getAsJsonArray());
+        initialize(new InitOptions().setTransport(platform).setMaxInFlightRequests(1));
+
+        long count = RequestExecutor.getShared().submit(
+                () -> new Collection("numbers").scanStream(new Query(), new ScanOptions().setPageSize(2).setParallelism(4)).count())
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, count);
+    }
+
+    @Test
+    void replicaPullsDeltasAndNoticesDeletesOnResync() throws ClearBladeException {
+        platform.addItems("countries", JsonParser.parseString(
+                "[{\"item_id\":\"fr\",\"name\":\"France\",\"_lastModified\":1},"
+                + "{\"item_id\":\"de\",\"name\":\"Germany\",\"_lastModified\":2}]").getAsJsonArray());
+        List<String> changes = new ArrayList<>();
+        try (CollectionReplica replica = new Collection("countries").replicate(new ReplicaOptions().setSyncInterval(60000))) {
+            assertEquals(2, replica.size());
+            replica.addChangeListener((previous, current) -> changes.add(
+                    (previous != null ? previous.getString("name") : "-") + ">" + (current != null ? current.getString("name") : "-")));
+
+            Query rename = new Query("countries");
+            rename.equalTo("item_id", "fr");
+            rename.addChange("name", "R\u00e9publique fran\u00e7aise");
+            rename.addChange("_lastModified", 3);
+            rename.updateSync();
+            long before = platform.getRequestCount();
+            replica.sync();
+
+            assertEquals(1, platform.getRequestCount() - before);
+            assertEquals("R\u00e9publique fran\u00e7aise", replica.get("fr").getString("name"));
+            Query delete = new Query("countries");
+            delete.equalTo("item_id", "de");
+            delete.removeSync();
+            replica.sync();
+            assertNotNull(replica.get("de"), "deltas do not see deletes");
+            replica.resync();
+
+            assertNull(replica.get("de"));
+            assertEquals(Arrays.asList("France>R\u00e9publique fran\u00e7aise", "Germany>-"), changes);
+            assertEquals(2, replica.getChangeCount());
+        }
+    }
+
+    @Test
+    void codeServicesAnswerFromTheRegisteredFunction() throws Exception {
+        platform.registerService("double", params -> {
+            JsonObject result = new JsonObject();
+            result.addProperty("value", params.get("value").getAsInt() * 2);
+            return result;
+        });
+        JsonObject params = new JsonObject();
+        params.addProperty("value", 21);
+        JsonObject result = new Code("double", params).executeAsync().join();
+        assertEquals(42, result.get("value").getAsInt());
+    }
+
+    @Test
+    void bodiesAreCompressedBothWays() throws ClearBladeException {
+        initialize(new InitOptions().setTransport(platform).setRequestCompressionThreshold(512));
+        platform.setCompressResponses(true);
+        ContentCoding.Stats stats = ContentCoding.getStats();
+        stats.reset();
+
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Item item = new Item("sensors");
+            item.set("name", "temperature sensor");
+            item.set("reading", i);
+            items.add(item);
+        }
+        assertTrue(new Collection("sensors").saveAll(items).isSuccess());
+        assertEquals(50, new Query("sensors").fetchSync().length);
+
+        assertEquals(1, stats.getCompressedRequestCount());
+        assertTrue(stats.getRequestCompressionRatio() > 2);
+        assertTrue(stats.getCompressedResponseCount() >= 2);
+        assertTrue(stats.getResponseCompressionRatio() > 2);
+        assertTrue(stats.getSavedBytes() > 0);
+    }
+
+    @Test
+    void responsesStreamToHandlers(@TempDir Path dir) throws Exception {
+        platform.registerService("report", params -> {
+            JsonObject result = new JsonObject();
+            result.addProperty("text", "line one\nline two \u00e9");
+            return result;
+        });
+
+        Code code = new Code("report");
+        JsonObject parsed = JsonParser.parseString(code.executeAsync(ResponseBodyHandler.ofString()).join()).getAsJsonObject();
+        assertEquals("line one\nline two \u00e9", parsed.get("text").getAsString());
+
+        Path file = code.executeAsync(ResponseBodyHandler.ofFile(dir.resolve("report.json"))).join();
+        assertEquals(parsed, JsonParser.parseString(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+
+        platform.addItems("numbers", JsonParser.parseString("[{\"n\":1},{\"n\":2},{\"n\":3}]").getAsJsonArray());
+        int rows = new Query("numbers").fetchAsync(ResponseBodyHandler.ofJsonReader(reader -> {
+            int count = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("DATA")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                        count++;
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return count;
+        })).join();
+        assertEquals(3, rows);
+    }
+}